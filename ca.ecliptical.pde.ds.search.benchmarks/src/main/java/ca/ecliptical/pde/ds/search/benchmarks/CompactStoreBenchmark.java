@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.ecliptical.pde.ds.search.core.CompactDescriptorStore;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+
+/**
+ * Opens a compact store of the scanned corpus, looks up the descriptors that
+ * refer to a name, and decodes the facts of all descriptors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompactStoreBenchmark {
+
+	private File file;
+
+	private CompactDescriptorStore store;
+
+	private String token;
+
+	@Setup
+	public void setUp(CorpusState state) throws IOException {
+		CompactDescriptorStore.Writer writer = new CompactDescriptorStore.Writer(1, 0, 0);
+		for (int i = 0; i < state.infos.size(); ++i) {
+			if (i % state.componentsPerBundle == 0)
+				writer.addBundle("bundle" + i / state.componentsPerBundle, null, new long[0]);
+
+			writer.addDescriptor("OSGI-INF/component" + i + ".xml", new long[0], state.infos.get(i));
+		}
+
+		file = File.createTempFile("descriptors", ".dscs");
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+		try {
+			writer.write(out);
+		} finally {
+			out.close();
+		}
+
+		store = CompactDescriptorStore.open(file);
+		token = DescriptorInfo.toLowerCase(state.corpus.getModel().findType(state.corpus.getImplementationNames().get(0)).getSimpleName());
+	}
+
+	@TearDown
+	public void tearDown() {
+		store = null;
+		file.delete();
+	}
+
+	@Benchmark
+	public CompactDescriptorStore open() throws IOException {
+		return CompactDescriptorStore.open(file);
+	}
+
+	@Benchmark
+	public int[] findDescriptors() {
+		return store.findDescriptors(token);
+	}
+
+	@Benchmark
+	public void decode(Blackhole blackhole) {
+		for (int i = 0, n = store.getBundleCount(); i < n; ++i) {
+			for (int d = store.getFirstDescriptor(i), end = d + store.getDescriptorCount(i); d < end; ++d) {
+				blackhole.consume(store.getDescriptorInfo(d));
+			}
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+import ca.ecliptical.pde.ds.search.core.DescriptorScanner;
+
+/**
+ * Generated corpus shared by all benchmarks, along with its scanned descriptors.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+	@Param({ "200" })
+	public int bundles;
+
+	@Param({ "10" })
+	public int componentsPerBundle;
+
+	@Param({ "42" })
+	public long seed;
+
+	DescriptorCorpus corpus;
+
+	List<DescriptorInfo> infos;
+
+	@Setup
+	public void setUp() throws IOException {
+		corpus = DescriptorCorpus.generate(bundles, componentsPerBundle, seed);
+		infos = new ArrayList<DescriptorInfo>(corpus.getDescriptors().size());
+		DescriptorScanner scanner = DescriptorScanner.getDefault();
+		for (byte[] descriptor : corpus.getDescriptors()) {
+			infos.add(scanner.scan(new ByteArrayInputStream(descriptor)));
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Type;
+
+/**
+ * Deterministically generated set of bundles with component descriptors,
+ * along with a class model of all the types they refer to.
+ * <p>
+ * Implementation classes extend one of a few abstract base classes that
+ * declare the default lifecycle methods; references use the various bind
+ * method signatures allowed by the specification, so that all of the method
+ * selection rules are exercised.
+ * </p>
+ */
+public class DescriptorCorpus {
+
+	private static final String COMPONENT_CONTEXT = "org.osgi.service.component.ComponentContext";
+
+	private static final String BUNDLE_CONTEXT = "org.osgi.framework.BundleContext";
+
+	private static final String SERVICE_REFERENCE = "org.osgi.framework.ServiceReference";
+
+	private static final String MAP = "java.util.Map";
+
+	private static final String ABSTRACT_SERVICE = "com.example.base.AbstractService";
+
+	private static final int BASE_CLASSES = 4;
+
+	private final SyntheticModel model = new SyntheticModel();
+
+	private final List<InMemoryDescriptorSource> sources = new ArrayList<InMemoryDescriptorSource>();
+
+	private final List<byte[]> descriptors = new ArrayList<byte[]>();
+
+	private final List<String> implementationNames = new ArrayList<String>();
+
+	private final List<String> interfaceNames = new ArrayList<String>();
+
+	private final List<Type> baseTypes = new ArrayList<Type>();
+
+	// types declared by each bundle, by bundle name
+	private final Map<String, List<Type>> bundleTypes = new HashMap<String, List<Type>>();
+
+	// other bundles whose API each bundle refers to, by bundle name
+	private final Map<String, Set<String>> requiredBundles = new HashMap<String, Set<String>>();
+
+	private final String prefix;
+
+	private DescriptorCorpus(String prefix) {
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Generates a new corpus.
+	 *
+	 * @param bundles number of bundles
+	 * @param componentsPerBundle number of components (descriptors) per bundle
+	 * @param seed random seed; the same seed always yields the same corpus
+	 * @return generated corpus
+	 */
+	public static DescriptorCorpus generate(int bundles, int componentsPerBundle, long seed) {
+		return generate("com.example.bundle", bundles, componentsPerBundle, seed);
+	}
+
+	/**
+	 * Generates a new corpus whose bundles (and their packages) are named with
+	 * the given prefix followed by the bundle index; base types are always the same.
+	 *
+	 * @param prefix bundle name prefix
+	 * @param bundles number of bundles
+	 * @param componentsPerBundle number of components (descriptors) per bundle
+	 * @param seed random seed; the same seed always yields the same corpus
+	 * @return generated corpus
+	 */
+	public static DescriptorCorpus generate(String prefix, int bundles, int componentsPerBundle, long seed) {
+		DescriptorCorpus corpus = new DescriptorCorpus(prefix);
+		Random random = new Random(seed);
+		corpus.addBaseTypes();
+		for (int b = 0; b < bundles; ++b) {
+			corpus.addBundle(b, componentsPerBundle, random);
+		}
+
+		return corpus;
+	}
+
+	public SyntheticModel getModel() {
+		return model;
+	}
+
+	public List<InMemoryDescriptorSource> getSources() {
+		return Collections.unmodifiableList(sources);
+	}
+
+	/**
+	 * Returns the contents of all descriptors, in bundle order.
+	 */
+	public List<byte[]> getDescriptors() {
+		return Collections.unmodifiableList(descriptors);
+	}
+
+	public List<String> getImplementationNames() {
+		return Collections.unmodifiableList(implementationNames);
+	}
+
+	public List<String> getInterfaceNames() {
+		return Collections.unmodifiableList(interfaceNames);
+	}
+
+	/**
+	 * Returns the types that all bundles depend on (including stand-ins for
+	 * the OSGi API types), which belong to none of them.
+	 */
+	public List<Type> getBaseTypes() {
+		return Collections.unmodifiableList(baseTypes);
+	}
+
+	/**
+	 * Returns the types declared by the given bundle.
+	 */
+	public List<Type> getTypes(String bundleName) {
+		List<Type> types = bundleTypes.get(bundleName);
+		return types == null ? Collections.<Type> emptyList() : Collections.unmodifiableList(types);
+	}
+
+	/**
+	 * Returns the other bundles whose API types the given bundle refers to.
+	 */
+	public Set<String> getRequiredBundles(String bundleName) {
+		Set<String> bundles = requiredBundles.get(bundleName);
+		return bundles == null ? Collections.<String> emptySet() : Collections.unmodifiableSet(bundles);
+	}
+
+	private void addBaseTypes() {
+		baseTypes.add(model.addType(COMPONENT_CONTEXT, null));
+		baseTypes.add(model.addType(BUNDLE_CONTEXT, null));
+		baseTypes.add(model.addType(SERVICE_REFERENCE, null));
+		model.addType(MAP, null);
+		baseTypes.add(model.addType(ABSTRACT_SERVICE, null));
+
+		Type lifecycle = model.addType("com.example.base.AbstractLifecycle", null);
+		baseTypes.add(lifecycle);
+		lifecycle.addMethod("activate", true);
+		lifecycle.addMethod("deactivate", false);
+		for (int k = 0; k < BASE_CLASSES; ++k) {
+			Type base = model.addType("com.example.base.AbstractComponent" + k, lifecycle);
+			baseTypes.add(base);
+			if (k % 2 == 0)
+				base.addMethod("activate", false, COMPONENT_CONTEXT);
+			else
+				base.addMethod("activate", false, MAP);
+
+			if (k == BASE_CLASSES - 1)
+				base.addMethod("deactivate", false, "int");
+		}
+	}
+
+	private void addBundle(int b, int components, Random random) {
+		String pkg = prefix + b;
+		ArrayList<Type> types = new ArrayList<Type>();
+		bundleTypes.put(pkg, types);
+		int firstInterface = interfaceNames.size();
+		for (int i = 0; i <= components / 2; ++i) {
+			String name = pkg + ".api.Service" + i;
+			types.add(model.addType(name, i % 3 == 0 ? model.findType(ABSTRACT_SERVICE) : null));
+			interfaceNames.add(name);
+		}
+
+		LinkedHashMap<String, byte[]> files = new LinkedHashMap<String, byte[]>();
+		StringBuilder header = new StringBuilder();
+		for (int c = 0; c < components; ++c) {
+			String path = "OSGI-INF/component" + c + ".xml";
+			byte[] content = createComponent(pkg, c, firstInterface, types, random).getBytes(StandardCharsets.UTF_8);
+			files.put(path, content);
+			descriptors.add(content);
+			if (header.length() > 0)
+				header.append(", ");
+
+			header.append(path);
+		}
+
+		// alternate between wildcard and explicit headers
+		InMemoryDescriptorSource source = new InMemoryDescriptorSource(pkg, b % 2 == 0 ? "OSGI-INF/*.xml" : header.toString());
+		for (Map.Entry<String, byte[]> file : files.entrySet()) {
+			source.addFile(file.getKey(), file.getValue());
+		}
+
+		sources.add(source);
+	}
+
+	private String createComponent(String pkg, int c, int firstInterface, List<Type> types, Random random) {
+		String implName = pkg + ".internal.Component" + c + "Impl";
+		Type impl = model.addType(implName, model.findType("com.example.base.AbstractComponent" + random.nextInt(BASE_CLASSES)));
+		types.add(impl);
+		implementationNames.add(implName);
+
+		StringBuilder buf = new StringBuilder();
+		buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		buf.append("<scr:component xmlns:scr=\"http://www.osgi.org/xmlns/scr/v1.1.0\" name=\"").append(implName).append('"');
+		if (random.nextInt(4) == 0) {
+			buf.append(" activate=\"start\"");
+			impl.addMethod("start", false, COMPONENT_CONTEXT, BUNDLE_CONTEXT);
+		}
+
+		if (random.nextInt(4) == 0) {
+			buf.append(" modified=\"modified\"");
+			impl.addMethod("modified", false, MAP);
+		}
+
+		buf.append(">\n");
+		buf.append("   <implementation class=\"").append(implName).append("\"/>\n");
+
+		int ownInterfaces = interfaceNames.size() - firstInterface;
+		buf.append("   <service>\n");
+		int provides = 1 + random.nextInt(2);
+		for (int i = 0; i < provides; ++i) {
+			buf.append("      <provide interface=\"").append(interfaceNames.get(firstInterface + random.nextInt(ownInterfaces))).append("\"/>\n");
+		}
+
+		buf.append("   </service>\n");
+
+		int references = random.nextInt(4);
+		for (int i = 0; i < references; ++i) {
+			String iface = interfaceNames.get(random.nextInt(interfaceNames.size()));
+			String ifaceBundle = iface.substring(0, iface.lastIndexOf(".api."));
+			if (!ifaceBundle.equals(pkg)) {
+				Set<String> bundles = requiredBundles.get(pkg);
+				if (bundles == null) {
+					bundles = new TreeSet<String>();
+					requiredBundles.put(pkg, bundles);
+				}
+
+				bundles.add(ifaceBundle);
+			}
+
+			String simpleName = iface.substring(iface.lastIndexOf('.') + 1);
+			buf.append("   <reference name=\"ref").append(i).append("\" interface=\"").append(iface).append('"');
+			buf.append(" cardinality=\"").append(i == 0 ? "1..1" : "0..n").append("\" policy=\"").append(i == 0 ? "static" : "dynamic").append('"');
+			buf.append(" bind=\"set").append(simpleName).append(i).append("\" unbind=\"unset").append(simpleName).append(i).append('"');
+			switch (random.nextInt(4)) {
+			case 0:
+				impl.addMethod("set" + simpleName + i, false, iface);
+				impl.addMethod("unset" + simpleName + i, false, iface);
+				break;
+			case 1:
+				impl.addMethod("set" + simpleName + i, false, SERVICE_REFERENCE);
+				impl.addMethod("unset" + simpleName + i, false, SERVICE_REFERENCE);
+				break;
+			case 2:
+				impl.addMethod("set" + simpleName + i, false, ABSTRACT_SERVICE);
+				impl.addMethod("unset" + simpleName + i, false, ABSTRACT_SERVICE);
+				break;
+			default:
+				impl.addMethod("set" + simpleName + i, false, iface, MAP);
+				impl.addMethod("unset" + simpleName + i, false, iface, MAP);
+				buf.append(" updated=\"updated").append(simpleName).append(i).append('"');
+				impl.addMethod("updated" + simpleName + i, false, MAP);
+				break;
+			}
+
+			buf.append("/>\n");
+		}
+
+		buf.append("</scr:component>\n");
+		return buf.toString();
+	}
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.ecliptical.pde.ds.search.core.DescriptorExtractor;
+import ca.ecliptical.pde.ds.search.core.DescriptorPrefilter;
+
+/**
+ * Extracts the descriptors of all bundles, i.e., resolves their headers
+ * (including wildcards), reads, prefilters and scans each descriptor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtractionBenchmark {
+
+	@Param({ "none", "hit", "miss" })
+	public String prefilter;
+
+	private DescriptorExtractor extractor;
+
+	@Setup
+	public void setUp(CorpusState state) {
+		DescriptorPrefilter filter = null;
+		if ("hit".equals(prefilter))
+			filter = DescriptorPrefilter.create(Collections.singleton(state.corpus.getModel().findType(state.corpus.getInterfaceNames().get(0)).getSimpleName()), true);
+		else if ("miss".equals(prefilter))
+			filter = DescriptorPrefilter.create(Collections.singleton("NoSuchService"), true);
+
+		extractor = new DescriptorExtractor(filter);
+	}
+
+	@Benchmark
+	public void extract(CorpusState state, Blackhole blackhole) throws IOException {
+		for (InMemoryDescriptorSource source : state.corpus.getSources()) {
+			blackhole.consume(extractor.extract(source));
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ca.ecliptical.pde.ds.search.core.DescriptorSource;
+import ca.ecliptical.pde.ds.search.core.ServiceComponentHeader;
+
+/**
+ * Bundle whose files are held in memory.
+ */
+public class InMemoryDescriptorSource implements DescriptorSource {
+
+	private final String name;
+
+	private final String header;
+
+	private final Map<String, byte[]> files = new LinkedHashMap<String, byte[]>();
+
+	public InMemoryDescriptorSource(String name, String header) {
+		this.name = name;
+		this.header = header;
+	}
+
+	public void addFile(String path, byte[] content) {
+		files.put(path, content);
+	}
+
+	public Map<String, byte[]> getFiles() {
+		return files;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getServiceComponentHeader() {
+		return header;
+	}
+
+	public String[] list(String folderPath) {
+		ArrayList<String> names = new ArrayList<String>();
+		for (String path : files.keySet()) {
+			if (ServiceComponentHeader.getFolder(path).equals(folderPath))
+				names.add(ServiceComponentHeader.getFileName(path));
+		}
+
+		return names.isEmpty() ? null : names.toArray(new String[names.size()]);
+	}
+
+	public InputStream open(String path) {
+		byte[] content = files.get(path);
+		return content == null ? null : new ByteArrayInputStream(content);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
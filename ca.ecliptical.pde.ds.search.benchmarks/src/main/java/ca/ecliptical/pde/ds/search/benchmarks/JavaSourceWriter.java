@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Method;
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Type;
+
+/**
+ * Writes Java sources for synthetic types, and compiles them, so that
+ * generated bundles can be searched by JDT.
+ */
+public class JavaSourceWriter {
+
+	private JavaSourceWriter() {
+		// not instantiable
+	}
+
+	/**
+	 * Returns the source path of the given type, relative to its source folder.
+	 */
+	public static String getPath(Type type) {
+		return type.getName().replace('.', '/') + ".java";
+	}
+
+	/**
+	 * Returns the class file path of the given type, relative to its output folder.
+	 */
+	public static String getClassPath(Type type) {
+		return type.getName().replace('.', '/') + ".class";
+	}
+
+	/**
+	 * Returns the given type's source. OSGi API stand-ins are interfaces,
+	 * base and API types are abstract classes, and all others are classes;
+	 * methods have empty bodies.
+	 */
+	public static String toSource(Type type) {
+		StringBuilder buf = new StringBuilder();
+		if (type.getPackageName().length() > 0)
+			buf.append("package ").append(type.getPackageName()).append(";\n\n");
+
+		if (type.getName().startsWith("org.osgi."))
+			buf.append("public interface ");
+		else if (type.getName().startsWith("com.example.base.") || type.getPackageName().endsWith(".api"))
+			buf.append("public abstract class ");
+		else
+			buf.append("public class ");
+
+		buf.append(type.getSimpleName());
+		if (type.getSuperclass() != null)
+			buf.append(" extends ").append(type.getSuperclass().getName());
+
+		buf.append(" {\n");
+		for (Method method : type.getMethods()) {
+			buf.append("\n\t").append(method.isPrivate() ? "private" : "public").append(" void ").append(method.getName()).append('(');
+			String[] paramTypes = method.getParameterTypes();
+			for (int i = 0; i < paramTypes.length; ++i) {
+				if (i > 0)
+					buf.append(", ");
+
+				buf.append(paramTypes[i]).append(" arg").append(i);
+			}
+
+			buf.append(") {\n\t}\n");
+		}
+
+		buf.append("}\n");
+		return buf.toString();
+	}
+
+	/**
+	 * Writes the sources of the given types into the given source folder.
+	 *
+	 * @return written files
+	 */
+	public static List<File> write(Collection<Type> types, File sourceDir) throws IOException {
+		ArrayList<File> files = new ArrayList<File>(types.size());
+		for (Type type : types) {
+			File file = new File(sourceDir, getPath(type));
+			file.getParentFile().mkdirs();
+			Files.write(file.toPath(), toSource(type).getBytes(StandardCharsets.UTF_8));
+			files.add(file);
+		}
+
+		return files;
+	}
+
+	/**
+	 * Compiles the given source files into the given output folder.
+	 */
+	public static void compile(List<File> files, File outputDir) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null)
+			throw new IOException("No Java compiler available; run on a JDK.");
+
+		outputDir.mkdirs();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+		try {
+			Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(files);
+			List<String> options = new ArrayList<String>();
+			options.add("-nowarn");
+			options.add("-d");
+			options.add(outputDir.getAbsolutePath());
+			if (!compiler.getTask(null, fileManager, null, options, null, units).call())
+				throw new IOException("Compilation of generated sources failed.");
+		} finally {
+			fileManager.close();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Type;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Attribute;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Reference;
+import ca.ecliptical.pde.ds.search.core.LifecycleMethodSelector;
+
+/**
+ * Selects all lifecycle and event methods of every component in the corpus,
+ * without any caching across components.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LifecycleResolutionBenchmark {
+
+	@Benchmark
+	public void resolve(CorpusState state, Blackhole blackhole) {
+		for (DescriptorInfo info : state.infos) {
+			SyntheticTypeResolver resolver = new SyntheticTypeResolver(state.corpus.getModel());
+			Type implClassType = resolver.findType(info.getImplementation().getValue());
+			Attribute activate = info.getActivate();
+			blackhole.consume(resolver.findLifecycleMethod(implClassType, LifecycleMethodSelector.ACTIVATE, activate == null ? DescriptorInfo.DEFAULT_ACTIVATE : activate.getValue(), null));
+			Attribute deactivate = info.getDeactivate();
+			blackhole.consume(resolver.findLifecycleMethod(implClassType, LifecycleMethodSelector.DEACTIVATE, deactivate == null ? DescriptorInfo.DEFAULT_DEACTIVATE : deactivate.getValue(), null));
+			for (Reference reference : info.getReferences()) {
+				blackhole.consume(resolver.findLifecycleMethod(implClassType, LifecycleMethodSelector.BIND, reference.getBind().getValue(), reference.getInterface().getValue()));
+				blackhole.consume(resolver.findLifecycleMethod(implClassType, LifecycleMethodSelector.BIND, reference.getUnbind().getValue(), reference.getInterface().getValue()));
+			}
+		}
+	}
+}
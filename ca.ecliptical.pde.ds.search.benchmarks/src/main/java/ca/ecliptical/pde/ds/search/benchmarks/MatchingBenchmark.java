@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Method;
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Type;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+import ca.ecliptical.pde.ds.search.core.DescriptorMatcher;
+import ca.ecliptical.pde.ds.search.core.ElementMatcher;
+import ca.ecliptical.pde.ds.search.core.NameMatcher;
+
+/**
+ * Matches every descriptor in the corpus against a simple name query for
+ * types, interfaces, or methods, including type and method resolution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatchingBenchmark {
+
+	@Param({ "type", "interface", "method" })
+	public String searchFor;
+
+	private DescriptorMatcher<Type, Method, RuntimeException> matcher;
+
+	@Setup
+	public void setUp(CorpusState state) {
+		NameMatcher nameMatcher;
+		if ("method".equals(searchFor))
+			nameMatcher = Queries.exact("activate");
+		else if ("interface".equals(searchFor))
+			nameMatcher = Queries.exact(state.corpus.getModel().findType(state.corpus.getInterfaceNames().get(0)).getSimpleName());
+		else
+			nameMatcher = Queries.exact(state.corpus.getModel().findType(state.corpus.getImplementationNames().get(0)).getSimpleName());
+
+		ElementMatcher<Type, Method, RuntimeException> elementMatcher = Queries.simpleNames(nameMatcher);
+
+		matcher = new DescriptorMatcher<Type, Method, RuntimeException>(elementMatcher, "type".equals(searchFor), !"method".equals(searchFor), "method".equals(searchFor));
+	}
+
+	@Benchmark
+	public void match(CorpusState state, Blackhole blackhole) {
+		for (DescriptorInfo info : state.infos) {
+			blackhole.consume(matcher.match(info, new SyntheticTypeResolver(state.corpus.getModel())));
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.ecliptical.pde.ds.search.core.NamePattern;
+
+/**
+ * Matches the names of all implementation classes and service interfaces in
+ * the corpus against a name pattern of each match rule, either as simple names
+ * or as the simple name regions of their qualified names (as pattern searches
+ * for simple type names do).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PatternBenchmark {
+
+	@Param({ "exact", "prefix", "pattern", "camelcase" })
+	public String matchRule;
+
+	@Param({ "true", "false" })
+	public boolean caseSensitive;
+
+	private NamePattern pattern;
+
+	private List<String> simpleNames;
+
+	private List<String> qualifiedNames;
+
+	@Setup
+	public void setUp(CorpusState state) {
+		int rule;
+		String text;
+		if ("prefix".equals(matchRule)) {
+			rule = NamePattern.PREFIX;
+			text = "Component1";
+		} else if ("pattern".equals(matchRule)) {
+			rule = NamePattern.PATTERN;
+			text = "Comp?nent1*Impl";
+		} else if ("camelcase".equals(matchRule)) {
+			rule = NamePattern.CAMEL_CASE;
+			text = "C1I";
+		} else {
+			rule = NamePattern.EXACT;
+			text = "Component1Impl";
+		}
+
+		pattern = NamePattern.compile(text, caseSensitive ? rule | NamePattern.CASE_SENSITIVE : rule);
+
+		qualifiedNames = new ArrayList<String>(state.corpus.getImplementationNames());
+		qualifiedNames.addAll(state.corpus.getInterfaceNames());
+		simpleNames = new ArrayList<String>(qualifiedNames.size());
+		for (String name : qualifiedNames) {
+			simpleNames.add(name.substring(name.lastIndexOf('.') + 1));
+		}
+	}
+
+	@Benchmark
+	public void simpleNames(Blackhole blackhole) {
+		for (String name : simpleNames) {
+			blackhole.consume(pattern.matches(name));
+		}
+	}
+
+	@Benchmark
+	public void qualifiedNames(Blackhole blackhole) {
+		for (String name : qualifiedNames) {
+			blackhole.consume(pattern.matches(name, name.lastIndexOf('.') + 1, name.length()));
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ca.ecliptical.pde.ds.search.core.DescriptorPrefilter;
+
+/**
+ * Tests the raw contents of all descriptors against a prefilter for a name
+ * that either occurs in the corpus or doesn't.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrefilterBenchmark {
+
+	@Param({ "hit", "miss" })
+	public String query;
+
+	@Param({ "true", "false" })
+	public boolean caseSensitive;
+
+	private DescriptorPrefilter prefilter;
+
+	@Setup
+	public void setUp(CorpusState state) {
+		String name = "hit".equals(query) ? state.corpus.getModel().findType(state.corpus.getImplementationNames().get(0)).getSimpleName() : "NoSuchComponent";
+		prefilter = DescriptorPrefilter.create(Collections.singleton(name), caseSensitive);
+	}
+
+	@Benchmark
+	public void accept(CorpusState state, Blackhole blackhole) {
+		for (byte[] descriptor : state.corpus.getDescriptors()) {
+			blackhole.consume(prefilter.accept(descriptor, 0, descriptor.length));
+		}
+	}
+}
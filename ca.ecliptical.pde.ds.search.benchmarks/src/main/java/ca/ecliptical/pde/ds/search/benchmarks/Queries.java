@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Method;
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Type;
+import ca.ecliptical.pde.ds.search.core.ElementMatcher;
+import ca.ecliptical.pde.ds.search.core.NameMatcher;
+import ca.ecliptical.pde.ds.search.core.NamePattern;
+
+/**
+ * Simple name queries over the synthetic class model.
+ */
+public class Queries {
+
+	private Queries() {
+		// not instantiable
+	}
+
+	/**
+	 * Returns a matcher for names equal to the given one.
+	 */
+	public static NameMatcher exact(final String name) {
+		return new NameMatcher() {
+			public boolean matches(String candidate) {
+				return name.equals(candidate);
+			}
+		};
+	}
+
+	/**
+	 * Returns a matcher for names matching the given pattern, using the given
+	 * {@link NamePattern} match rule.
+	 */
+	public static NameMatcher pattern(String pattern, int matchRule) {
+		return NamePattern.compile(pattern, matchRule);
+	}
+
+	/**
+	 * Returns an element matcher that tests simple type names and method names.
+	 */
+	public static ElementMatcher<Type, Method, RuntimeException> simpleNames(final NameMatcher matcher) {
+		return new ElementMatcher<Type, Method, RuntimeException>() {
+			public boolean matchesType(Type type) {
+				return matcher.matches(type.getSimpleName());
+			}
+
+			public boolean matchesMethod(Method method) {
+				return matcher.matches(method.getName());
+			}
+		};
+	}
+}
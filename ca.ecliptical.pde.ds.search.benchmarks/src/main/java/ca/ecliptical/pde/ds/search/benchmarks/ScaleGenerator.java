@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Command line entry point for generating synthetic target platforms and workspaces:
+ *
+ * <pre>
+ * ScaleGenerator target &lt;dir&gt; [-bundles n] [-components n] [-dsRatio f] [-jarRatio f] [-seed n] [-classes]
+ * ScaleGenerator workspace &lt;dir&gt; [-projects n] [-components n] [-seed n]
+ * </pre>
+ */
+public class ScaleGenerator {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			usage();
+			return;
+		}
+
+		File dir = new File(args[1]);
+		if ("target".equals(args[0])) {
+			TargetPlatformGenerator generator = new TargetPlatformGenerator();
+			for (int i = 2; i < args.length; ++i) {
+				if ("-bundles".equals(args[i]))
+					generator.setBundles(Integer.parseInt(args[++i]));
+				else if ("-components".equals(args[i]))
+					generator.setComponentsPerBundle(Integer.parseInt(args[++i]));
+				else if ("-dsRatio".equals(args[i]))
+					generator.setDSRatio(Double.parseDouble(args[++i]));
+				else if ("-jarRatio".equals(args[i]))
+					generator.setJarRatio(Double.parseDouble(args[++i]));
+				else if ("-seed".equals(args[i]))
+					generator.setSeed(Long.parseLong(args[++i]));
+				else if ("-classes".equals(args[i]))
+					generator.setClasses(true);
+				else {
+					usage();
+					return;
+				}
+			}
+
+			DescriptorCorpus corpus = generator.generate(dir);
+			System.out.printf("Generated %d DS bundle(s) with %d descriptor(s) in %s%n", corpus.getSources().size(), corpus.getDescriptors().size(), new File(dir, "plugins"));
+		} else if ("workspace".equals(args[0])) {
+			WorkspaceGenerator generator = new WorkspaceGenerator();
+			for (int i = 2; i < args.length; ++i) {
+				if ("-projects".equals(args[i]))
+					generator.setProjects(Integer.parseInt(args[++i]));
+				else if ("-components".equals(args[i]))
+					generator.setComponentsPerBundle(Integer.parseInt(args[++i]));
+				else if ("-seed".equals(args[i]))
+					generator.setSeed(Long.parseLong(args[++i]));
+				else {
+					usage();
+					return;
+				}
+			}
+
+			DescriptorCorpus corpus = generator.generate(dir);
+			System.out.printf("Generated %d DS project(s) with %d descriptor(s) in %s%n", corpus.getSources().size(), corpus.getDescriptors().size(), dir);
+		} else {
+			usage();
+		}
+	}
+
+	private static void usage() {
+		System.err.println("Usage: ScaleGenerator target <dir> [-bundles n] [-components n] [-dsRatio f] [-jarRatio f] [-seed n] [-classes]");
+		System.err.println("       ScaleGenerator workspace <dir> [-projects n] [-components n] [-seed n]");
+	}
+}
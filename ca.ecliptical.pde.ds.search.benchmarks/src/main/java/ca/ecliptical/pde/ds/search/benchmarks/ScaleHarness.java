@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Method;
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Type;
+import ca.ecliptical.pde.ds.search.core.BundleDescriptorSource;
+import ca.ecliptical.pde.ds.search.core.DescriptorExtractor;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+import ca.ecliptical.pde.ds.search.core.DescriptorMatcher;
+import ca.ecliptical.pde.ds.search.core.DescriptorPrefilter;
+import ca.ecliptical.pde.ds.search.core.ElementMatcher;
+import ca.ecliptical.pde.ds.search.core.NamePattern;
+
+/**
+ * Measures how headless searches scale with the size of the target platform.
+ * For each bundle count, a target platform is generated and searched
+ * sequentially (i.e., from disk, the way the participant searches external
+ * bundles without a warm cache) for a type, a method, and a name pattern.
+ * <p>
+ * Results are printed as CSV: bundle count, query, descriptors in the target,
+ * descriptors read past the prefilter, matches, and the median wall time and
+ * allocation of a few runs.
+ * </p>
+ *
+ * <pre>
+ * ScaleHarness &lt;dir&gt; [bundle counts...]
+ * </pre>
+ */
+public class ScaleHarness {
+
+	private static final int[] DEFAULT_SIZES = { 500, 1000, 2000, 5000 };
+
+	private static final int RUNS = 3;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: ScaleHarness <dir> [bundle counts...]");
+			return;
+		}
+
+		int[] sizes = DEFAULT_SIZES;
+		if (args.length > 1) {
+			sizes = new int[args.length - 1];
+			for (int i = 1; i < args.length; ++i) {
+				sizes[i - 1] = Integer.parseInt(args[i]);
+			}
+		}
+
+		System.out.println("bundles,query,descriptors,read,matches,millis,allocatedKB");
+		for (int size : sizes) {
+			File dir = new File(args[0], String.valueOf(size));
+			TargetPlatformGenerator generator = new TargetPlatformGenerator();
+			generator.setBundles(size);
+			DescriptorCorpus corpus = generator.generate(dir);
+			File[] bundles = new File(dir, "plugins").listFiles();
+			Arrays.sort(bundles);
+
+			for (Query query : createQueries(corpus)) {
+				// warm up
+				query.run(bundles, corpus.getModel());
+
+				long[] millis = new long[RUNS];
+				long[] allocated = new long[RUNS];
+				Result result = null;
+				for (int i = 0; i < RUNS; ++i) {
+					long startAllocated = getAllocatedBytes();
+					long start = System.nanoTime();
+					result = query.run(bundles, corpus.getModel());
+					millis[i] = (System.nanoTime() - start) / 1000000L;
+					allocated[i] = getAllocatedBytes() - startAllocated;
+				}
+
+				Arrays.sort(millis);
+				Arrays.sort(allocated);
+				System.out.printf("%d,%s,%d,%d,%d,%d,%d%n", size, query.name, corpus.getDescriptors().size(), result.read, result.matches, millis[RUNS / 2], allocated[RUNS / 2] / 1024);
+			}
+		}
+	}
+
+	private static List<Query> createQueries(DescriptorCorpus corpus) {
+		List<String> implNames = corpus.getImplementationNames();
+		String typeName = corpus.getModel().findType(implNames.get(implNames.size() / 2)).getSimpleName();
+		return Arrays.asList(
+				// like a type reference search: literal name, so descriptors can be prefiltered
+				new Query("type", Queries.simpleNames(Queries.exact(typeName)), DescriptorPrefilter.create(Collections.singleton(typeName), true), true, true, false),
+				// default lifecycle methods aren't named in descriptors, so no prefilter
+				new Query("method", Queries.simpleNames(Queries.exact("activate")), null, false, false, true),
+				new Query("pattern", Queries.simpleNames(Queries.pattern("Component1*Impl", NamePattern.PATTERN | NamePattern.CASE_SENSITIVE)), null, true, true, true));
+	}
+
+	private static long getAllocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+
+		return 0;
+	}
+
+	private static class Query {
+
+		final String name;
+
+		private final DescriptorExtractor extractor;
+
+		private final DescriptorMatcher<Type, Method, RuntimeException> matcher;
+
+		Query(String name, ElementMatcher<Type, Method, RuntimeException> elementMatcher, DescriptorPrefilter prefilter, boolean implementations, boolean interfaces, boolean methods) {
+			this.name = name;
+			extractor = new DescriptorExtractor(prefilter);
+			matcher = new DescriptorMatcher<Type, Method, RuntimeException>(elementMatcher, implementations, interfaces, methods);
+		}
+
+		Result run(File[] bundles, SyntheticModel model) throws IOException {
+			Result result = new Result();
+			for (File bundle : bundles) {
+				BundleDescriptorSource source = new BundleDescriptorSource(bundle);
+				try {
+					Map<String, DescriptorInfo> infos = extractor.extract(source);
+					result.read += infos.size();
+					SyntheticTypeResolver resolver = new SyntheticTypeResolver(model);
+					for (DescriptorInfo info : infos.values()) {
+						if (info != null)
+							result.matches += matcher.match(info, resolver).size();
+					}
+				} finally {
+					source.close();
+				}
+			}
+
+			return result;
+		}
+	}
+
+	private static class Result {
+
+		int read;
+
+		int matches;
+	}
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory class model for generated descriptor corpora: just enough of
+ * each type (superclass and declared methods) to select lifecycle methods.
+ */
+public class SyntheticModel {
+
+	private final Map<String, Type> types = new HashMap<String, Type>();
+
+	public Type addType(String name, Type superclass) {
+		Type type = new Type(name, superclass);
+		types.put(name, type);
+		return type;
+	}
+
+	public Type findType(String name) {
+		return types.get(name);
+	}
+
+	public int getTypeCount() {
+		return types.size();
+	}
+
+	public static class Type {
+
+		private final String name;
+
+		private final Type superclass;
+
+		private final List<Method> methods = new ArrayList<Method>();
+
+		Type(String name, Type superclass) {
+			this.name = name;
+			this.superclass = superclass;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getSimpleName() {
+			return name.substring(name.lastIndexOf('.') + 1);
+		}
+
+		public String getPackageName() {
+			int i = name.lastIndexOf('.');
+			return i == -1 ? "" : name.substring(0, i);
+		}
+
+		public Type getSuperclass() {
+			return superclass;
+		}
+
+		public List<Method> getMethods() {
+			return Collections.unmodifiableList(methods);
+		}
+
+		public Method addMethod(String methodName, boolean isPrivate, String... paramTypes) {
+			Method method = new Method(this, methodName, isPrivate, paramTypes);
+			methods.add(method);
+			return method;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	public static class Method {
+
+		private final Type declaringType;
+
+		private final String name;
+
+		private final boolean isPrivate;
+
+		private final String[] paramTypes;
+
+		Method(Type declaringType, String name, boolean isPrivate, String[] paramTypes) {
+			this.declaringType = declaringType;
+			this.name = name;
+			this.isPrivate = isPrivate;
+			this.paramTypes = paramTypes;
+		}
+
+		public Type getDeclaringType() {
+			return declaringType;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isPrivate() {
+			return isPrivate;
+		}
+
+		public String[] getParameterTypes() {
+			return paramTypes;
+		}
+
+		@Override
+		public String toString() {
+			return declaringType.getName() + '.' + name;
+		}
+	}
+}
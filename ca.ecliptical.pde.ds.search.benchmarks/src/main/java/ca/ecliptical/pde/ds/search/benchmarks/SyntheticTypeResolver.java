@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Method;
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Type;
+import ca.ecliptical.pde.ds.search.core.LifecycleMethodSelector;
+import ca.ecliptical.pde.ds.search.core.MethodResolver;
+import ca.ecliptical.pde.ds.search.core.TypeResolver;
+
+/**
+ * Resolves descriptor references against a {@link SyntheticModel}, the same
+ * way the Java model adapter does: one walk of the class hierarchy per
+ * implementation class, shared by all of its lifecycle method lookups.
+ */
+public class SyntheticTypeResolver implements TypeResolver<Type, Method, RuntimeException> {
+
+	private final SyntheticModel model;
+
+	private Resolver resolver;
+
+	public SyntheticTypeResolver(SyntheticModel model) {
+		this.model = model;
+	}
+
+	public Type findType(String name) {
+		return model.findType(name);
+	}
+
+	public Method findLifecycleMethod(Type implClassType, int kind, String name, String referenceInterface) {
+		if (resolver == null || resolver.implClassType != implClassType)
+			resolver = new Resolver(model, implClassType);
+
+		return LifecycleMethodSelector.select(resolver, kind, name, referenceInterface);
+	}
+
+	private static class Resolver implements MethodResolver<Method, RuntimeException> {
+
+		private final SyntheticModel model;
+
+		final Type implClassType;
+
+		private HashMap<String, List<Method>> methods;
+
+		Resolver(SyntheticModel model, Type implClassType) {
+			this.model = model;
+			this.implClassType = implClassType;
+		}
+
+		public List<Method> getCandidates(String name) {
+			if (methods == null) {
+				methods = new HashMap<String, List<Method>>();
+				for (Type type = implClassType; type != null; type = type.getSuperclass()) {
+					for (Method method : type.getMethods()) {
+						if (type != implClassType && method.isPrivate())
+							continue;
+
+						List<Method> candidates = methods.get(method.getName());
+						if (candidates == null) {
+							candidates = new ArrayList<Method>(1);
+							methods.put(method.getName(), candidates);
+						}
+
+						candidates.add(method);
+					}
+				}
+			}
+
+			List<Method> candidates = methods.get(name);
+			return candidates == null ? Collections.<Method> emptyList() : candidates;
+		}
+
+		public String[] getParameterTypes(Method method) {
+			return method.getParameterTypes();
+		}
+
+		public boolean isSuperclass(String typeName, String superclassName) {
+			Type superclass = model.findType(superclassName);
+			if (superclass == null)
+				return false;
+
+			for (Type type = model.findType(typeName); type != null; type = type.getSuperclass()) {
+				if (type == superclass)
+					return true;
+			}
+
+			return false;
+		}
+	}
+}
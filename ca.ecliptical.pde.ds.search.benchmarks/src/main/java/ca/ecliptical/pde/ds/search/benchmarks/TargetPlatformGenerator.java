@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Type;
+
+/**
+ * Generates a synthetic target platform: a {@code plugins} folder with a mix
+ * of jarred and directory bundles, some of which declare components (using
+ * wildcard or explicit {@code Service-Component} headers) and some of which
+ * don't. DS bundles require the bundles whose API they refer to, as well as
+ * a common {@code synthetic.base} bundle with the base classes and stand-ins
+ * for the OSGi API types.
+ * <p>
+ * Bundles only contain class files if requested, since compiling them takes
+ * a while; without them, JDT can't resolve any of the referenced types.
+ * </p>
+ */
+public class TargetPlatformGenerator {
+
+	public static final String BASE_BUNDLE = "synthetic.base";
+
+	private int bundles = 1000;
+
+	private int componentsPerBundle = 10;
+
+	private double dsRatio = 0.5;
+
+	private double jarRatio = 0.5;
+
+	private long seed = 42;
+
+	private boolean classes;
+
+	/**
+	 * Sets the total number of bundles (not counting the base bundle).
+	 */
+	public void setBundles(int bundles) {
+		this.bundles = bundles;
+	}
+
+	public void setComponentsPerBundle(int componentsPerBundle) {
+		this.componentsPerBundle = componentsPerBundle;
+	}
+
+	/**
+	 * Sets the fraction of bundles that declare components.
+	 */
+	public void setDSRatio(double dsRatio) {
+		this.dsRatio = dsRatio;
+	}
+
+	/**
+	 * Sets the fraction of bundles that are jarred rather than directories.
+	 */
+	public void setJarRatio(double jarRatio) {
+		this.jarRatio = jarRatio;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets whether to compile the generated types into the bundles.
+	 */
+	public void setClasses(boolean classes) {
+		this.classes = classes;
+	}
+
+	/**
+	 * Generates the target platform into the given folder.
+	 *
+	 * @param dir target folder; bundles go into its {@code plugins} subfolder
+	 * @return corpus of the generated DS bundles
+	 */
+	public DescriptorCorpus generate(File dir) throws IOException {
+		int dsBundles = (int) Math.round(bundles * dsRatio);
+		DescriptorCorpus corpus = DescriptorCorpus.generate(dsBundles, componentsPerBundle, seed);
+		File plugins = new File(dir, "plugins");
+		plugins.mkdirs();
+
+		File classDir = null;
+		if (classes) {
+			File buildDir = Files.createTempDirectory("ds-search-target").toFile();
+			ArrayList<Type> types = new ArrayList<Type>(corpus.getBaseTypes());
+			for (InMemoryDescriptorSource source : corpus.getSources()) {
+				types.addAll(corpus.getTypes(source.getName()));
+			}
+
+			classDir = new File(buildDir, "bin");
+			JavaSourceWriter.compile(JavaSourceWriter.write(types, new File(buildDir, "src")), classDir);
+		}
+
+		Manifest baseManifest = createManifest(BASE_BUNDLE);
+		baseManifest.getMainAttributes().putValue("Export-Package", "com.example.base,org.osgi.framework,org.osgi.service.component");
+		writeBundle(new File(plugins, BASE_BUNDLE + "_1.0.0"), false, baseManifest, getClassFiles(corpus.getBaseTypes(), classDir));
+
+		Random random = new Random(seed);
+		for (InMemoryDescriptorSource source : corpus.getSources()) {
+			Manifest manifest = createManifest(source.getName());
+			Attributes attributes = manifest.getMainAttributes();
+			attributes.putValue("Require-Bundle", getRequireBundle(corpus, source.getName()));
+			attributes.putValue("Export-Package", source.getName() + ".api");
+			attributes.putValue("Service-Component", source.getServiceComponentHeader());
+			Map<String, byte[]> files = getClassFiles(corpus.getTypes(source.getName()), classDir);
+			files.putAll(source.getFiles());
+			writeBundle(new File(plugins, source.getName() + "_1.0.0"), random.nextDouble() < jarRatio, manifest, files);
+		}
+
+		for (int i = dsBundles; i < bundles; ++i) {
+			String name = "com.example.plain" + i;
+			writeBundle(new File(plugins, name + "_1.0.0"), random.nextDouble() < jarRatio, createManifest(name), new LinkedHashMap<String, byte[]>());
+		}
+
+		return corpus;
+	}
+
+	static Manifest createManifest(String symbolicName) {
+		Manifest manifest = new Manifest();
+		Attributes attributes = manifest.getMainAttributes();
+		attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		attributes.putValue("Bundle-ManifestVersion", "2");
+		attributes.putValue("Bundle-SymbolicName", symbolicName);
+		attributes.putValue("Bundle-Version", "1.0.0");
+		return manifest;
+	}
+
+	static String getRequireBundle(DescriptorCorpus corpus, String bundleName) {
+		StringBuilder buf = new StringBuilder(BASE_BUNDLE);
+		for (String required : corpus.getRequiredBundles(bundleName)) {
+			buf.append(',').append(required);
+		}
+
+		return buf.toString();
+	}
+
+	private static Map<String, byte[]> getClassFiles(Collection<Type> types, File classDir) throws IOException {
+		Map<String, byte[]> files = new LinkedHashMap<String, byte[]>();
+		if (classDir == null)
+			return files;
+
+		for (Type type : types) {
+			String path = JavaSourceWriter.getClassPath(type);
+			files.put(path, Files.readAllBytes(new File(classDir, path).toPath()));
+		}
+
+		return files;
+	}
+
+	/**
+	 * Writes a bundle with the given manifest and files, either as a jar
+	 * (with a {@code .jar} extension) or as a directory.
+	 */
+	static void writeBundle(File location, boolean jar, Manifest manifest, Map<String, byte[]> files) throws IOException {
+		if (jar) {
+			JarOutputStream out = new JarOutputStream(new FileOutputStream(location.getPath() + ".jar"), manifest);
+			try {
+				List<String> folders = new ArrayList<String>();
+				for (Map.Entry<String, byte[]> file : files.entrySet()) {
+					String folder = file.getKey().substring(0, file.getKey().lastIndexOf('/') + 1);
+					if (folder.length() > 0 && !folders.contains(folder)) {
+						folders.add(folder);
+						out.putNextEntry(new JarEntry(folder));
+						out.closeEntry();
+					}
+
+					out.putNextEntry(new JarEntry(file.getKey()));
+					out.write(file.getValue());
+					out.closeEntry();
+				}
+			} finally {
+				out.close();
+			}
+
+			return;
+		}
+
+		File manifestFile = new File(location, "META-INF/MANIFEST.MF");
+		manifestFile.getParentFile().mkdirs();
+		OutputStream out = new FileOutputStream(manifestFile);
+		try {
+			manifest.write(out);
+		} finally {
+			out.close();
+		}
+
+		for (Map.Entry<String, byte[]> file : files.entrySet()) {
+			File target = new File(location, file.getKey());
+			target.getParentFile().mkdirs();
+			Files.write(target.toPath(), file.getValue());
+		}
+	}
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import ca.ecliptical.pde.ds.search.benchmarks.SyntheticModel.Type;
+
+/**
+ * Generates a folder of DS plug-in projects, ready to be imported into a
+ * workspace (e.g., using <i>Import &gt; Existing Projects into Workspace</i>).
+ * Each project has Java sources for its types and a component descriptor for
+ * each of its components; headers alternate between wildcards and explicit
+ * paths. Projects require the projects whose API they refer to, as well as a
+ * {@code synthetic.base} project, which is generated too.
+ */
+public class WorkspaceGenerator {
+
+	private int projects = 100;
+
+	private int componentsPerBundle = 10;
+
+	private long seed = 42;
+
+	public void setProjects(int projects) {
+		this.projects = projects;
+	}
+
+	public void setComponentsPerBundle(int componentsPerBundle) {
+		this.componentsPerBundle = componentsPerBundle;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Generates the projects into the given folder.
+	 *
+	 * @return corpus of the generated projects
+	 */
+	public DescriptorCorpus generate(File dir) throws IOException {
+		DescriptorCorpus corpus = DescriptorCorpus.generate("com.example.ws.bundle", projects, componentsPerBundle, seed);
+
+		Manifest baseManifest = TargetPlatformGenerator.createManifest(TargetPlatformGenerator.BASE_BUNDLE);
+		baseManifest.getMainAttributes().putValue("Export-Package", "com.example.base,org.osgi.framework,org.osgi.service.component");
+		writeProject(new File(dir, TargetPlatformGenerator.BASE_BUNDLE), TargetPlatformGenerator.BASE_BUNDLE, baseManifest, corpus.getBaseTypes(), null);
+
+		for (InMemoryDescriptorSource source : corpus.getSources()) {
+			Manifest manifest = TargetPlatformGenerator.createManifest(source.getName());
+			Attributes attributes = manifest.getMainAttributes();
+			attributes.putValue("Require-Bundle", TargetPlatformGenerator.getRequireBundle(corpus, source.getName()));
+			attributes.putValue("Export-Package", source.getName() + ".api");
+			attributes.putValue("Service-Component", source.getServiceComponentHeader());
+			writeProject(new File(dir, source.getName()), source.getName(), manifest, corpus.getTypes(source.getName()), source.getFiles());
+		}
+
+		return corpus;
+	}
+
+	private void writeProject(File projectDir, String name, Manifest manifest, Collection<Type> types, Map<String, byte[]> descriptors) throws IOException {
+		File manifestFile = new File(projectDir, "META-INF/MANIFEST.MF");
+		manifestFile.getParentFile().mkdirs();
+		OutputStream out = new FileOutputStream(manifestFile);
+		try {
+			manifest.write(out);
+		} finally {
+			out.close();
+		}
+
+		writeText(new File(projectDir, ".project"), ""
+				+ "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<projectDescription>\n"
+				+ "\t<name>" + name + "</name>\n"
+				+ "\t<comment></comment>\n"
+				+ "\t<projects>\n"
+				+ "\t</projects>\n"
+				+ "\t<buildSpec>\n"
+				+ "\t\t<buildCommand>\n"
+				+ "\t\t\t<name>org.eclipse.jdt.core.javabuilder</name>\n"
+				+ "\t\t\t<arguments>\n"
+				+ "\t\t\t</arguments>\n"
+				+ "\t\t</buildCommand>\n"
+				+ "\t\t<buildCommand>\n"
+				+ "\t\t\t<name>org.eclipse.pde.ManifestBuilder</name>\n"
+				+ "\t\t\t<arguments>\n"
+				+ "\t\t\t</arguments>\n"
+				+ "\t\t</buildCommand>\n"
+				+ "\t\t<buildCommand>\n"
+				+ "\t\t\t<name>org.eclipse.pde.SchemaBuilder</name>\n"
+				+ "\t\t\t<arguments>\n"
+				+ "\t\t\t</arguments>\n"
+				+ "\t\t</buildCommand>\n"
+				+ "\t</buildSpec>\n"
+				+ "\t<natures>\n"
+				+ "\t\t<nature>org.eclipse.pde.PluginNature</nature>\n"
+				+ "\t\t<nature>org.eclipse.jdt.core.javanature</nature>\n"
+				+ "\t</natures>\n"
+				+ "</projectDescription>\n");
+
+		writeText(new File(projectDir, ".classpath"), ""
+				+ "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<classpath>\n"
+				+ "\t<classpathentry kind=\"con\" path=\"org.eclipse.jdt.launching.JRE_CONTAINER\"/>\n"
+				+ "\t<classpathentry kind=\"con\" path=\"org.eclipse.pde.core.requiredPlugins\"/>\n"
+				+ "\t<classpathentry kind=\"src\" path=\"src\"/>\n"
+				+ "\t<classpathentry kind=\"output\" path=\"bin\"/>\n"
+				+ "</classpath>\n");
+
+		writeText(new File(projectDir, "build.properties"), ""
+				+ "source.. = src/\n"
+				+ "output.. = bin/\n"
+				+ "bin.includes = META-INF/,\\\n"
+				+ (descriptors == null ? "" : "               OSGI-INF/,\\\n")
+				+ "               .\n");
+
+		JavaSourceWriter.write(types, new File(projectDir, "src"));
+		if (descriptors != null) {
+			for (Map.Entry<String, byte[]> descriptor : descriptors.entrySet()) {
+				File file = new File(projectDir, descriptor.getKey());
+				file.getParentFile().mkdirs();
+				Files.write(file.toPath(), descriptor.getValue());
+			}
+		}
+	}
+
+	private static void writeText(File file, String text) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.ui.search.QuerySpecification;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ca.ecliptical.pde.ds.search.TestWorkspace.CollectingRequestor;
+import ca.ecliptical.pde.ds.search.TestWorkspace.Query;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+
+/**
+ * Runs many searches at once on a single {@link DescriptorQueryParticipant},
+ * and verifies that each reports exactly the matches the same query reports
+ * when run by itself.
+ * <p>
+ * The searched projects are in {@code testdata/workspace}: an API bundle with
+ * service interfaces, and a bundle with components that implement, provide,
+ * and reference them.
+ * </p>
+ */
+public class ConcurrentSearchTest {
+
+	private static final String TEST_DATA = "testdata/workspace"; //$NON-NLS-1$
+
+	private static final String IMPL_PROJECT = "ds.test.impl"; //$NON-NLS-1$
+
+	private static final String TYPE_PATTERN = "*Impl"; //$NON-NLS-1$
+
+	private static final int THREADS = 8;
+
+	private static final int ROUNDS = 10;
+
+	private static List<Query> queries;
+
+	private static List<List<String>> expected;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		IProgressMonitor monitor = new NullProgressMonitor();
+		TestWorkspace.deleteProjects(monitor);
+		TestWorkspace.importProjects(TestWorkspace.getTestData(TEST_DATA), monitor);
+
+		queries = createQueries();
+		expected = new ArrayList<List<String>>(queries.size());
+		DescriptorQueryParticipant participant = new DescriptorQueryParticipant();
+		for (Query query : queries) {
+			CollectingRequestor requestor = new CollectingRequestor();
+			participant.search(requestor, query.spec, monitor);
+			List<String> matches = requestor.getMatches();
+			assertTrue(String.format("No matches for %s query", query.name), !matches.isEmpty()); //$NON-NLS-1$
+			expected.add(matches);
+		}
+	}
+
+	@AfterClass
+	public static void tearDown() throws CoreException {
+		TestWorkspace.deleteProjects(new NullProgressMonitor());
+	}
+
+	@Test
+	public void testConcurrentSearches() throws Exception {
+		final DescriptorQueryParticipant participant = new DescriptorQueryParticipant();
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			ArrayList<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+			for (int i = 0, n = queries.size() * ROUNDS; i < n; ++i) {
+				final QuerySpecification query = queries.get(i % queries.size()).spec;
+				results.add(executor.submit(new Callable<List<String>>() {
+					public List<String> call() throws Exception {
+						start.await();
+						CollectingRequestor requestor = new CollectingRequestor();
+						participant.search(requestor, query, new NullProgressMonitor());
+						return requestor.getMatches();
+					}
+				}));
+			}
+
+			start.countDown();
+			for (int i = 0, n = results.size(); i < n; ++i) {
+				assertEquals(queries.get(i % queries.size()).name, expected.get(i % queries.size()), results.get(i).get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testBatchSearch() throws CoreException {
+		LinkedHashMap<QuerySpecification, CollectingRequestor> batch = new LinkedHashMap<QuerySpecification, CollectingRequestor>();
+		for (Query query : queries) {
+			batch.put(query.spec, new CollectingRequestor());
+		}
+
+		new DescriptorQueryParticipant().search(batch, new NullProgressMonitor());
+
+		int i = 0;
+		for (CollectingRequestor requestor : batch.values()) {
+			assertEquals(queries.get(i).name, expected.get(i), requestor.getMatches());
+			++i;
+		}
+	}
+
+	private static List<Query> createQueries() throws CoreException {
+		IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(IMPL_PROJECT);
+		IJavaProject javaProject = JavaCore.create(project);
+		IType clock = javaProject.findType("ds.test.api.Clock"); //$NON-NLS-1$
+		assertNotNull(clock);
+
+		IType greeterImpl = javaProject.findType("ds.test.impl.GreeterImpl"); //$NON-NLS-1$
+		assertNotNull(greeterImpl);
+
+		IType abstractComponent = javaProject.findType("ds.test.impl.AbstractComponent"); //$NON-NLS-1$
+		assertNotNull(abstractComponent);
+
+		IMethod setClock = TestWorkspace.findMethod(greeterImpl, "setClock"); //$NON-NLS-1$
+		IMethod start = TestWorkspace.findMethod(greeterImpl, "start"); //$NON-NLS-1$
+		IMethod activate = TestWorkspace.findMethod(abstractComponent, DescriptorInfo.DEFAULT_ACTIVATE);
+
+		IJavaSearchScope scope = SearchEngine.createWorkspaceScope();
+		ArrayList<Query> queries = new ArrayList<Query>();
+		// provided and referenced interface
+		queries.add(Query.references("interface", clock, scope)); //$NON-NLS-1$
+		queries.add(Query.references("implementation", greeterImpl, scope)); //$NON-NLS-1$
+		queries.add(Query.references("bind", setClock, scope)); //$NON-NLS-1$
+		queries.add(Query.references("activate", start, scope)); //$NON-NLS-1$
+		// inherited default lifecycle method
+		queries.add(Query.references("default activate", activate, scope)); //$NON-NLS-1$
+		queries.add(Query.typeReferences("pattern", TYPE_PATTERN, scope)); //$NON-NLS-1$
+		return queries;
+	}
+}
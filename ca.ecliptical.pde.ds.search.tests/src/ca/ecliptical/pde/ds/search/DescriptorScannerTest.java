@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.pde.internal.ds.core.IDSComponent;
+import org.eclipse.pde.internal.ds.core.text.DSModel;
+import org.junit.Test;
+
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Attribute;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Reference;
+import ca.ecliptical.pde.ds.search.core.DescriptorScanner;
+
+/**
+ * Verifies that {@link DescriptorScanner} extracts the same values, at the
+ * same offsets, as PDE's {@link DSModel}, which is what workspace descriptors
+ * open in editors are parsed with.
+ */
+@SuppressWarnings("restriction")
+public class DescriptorScannerTest {
+
+	private static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
+
+	private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"; //$NON-NLS-1$
+
+	@Test
+	public void testTestData() throws Exception {
+		File dir = new File(TestWorkspace.getTestData("testdata/workspace"), "ds.test.impl/OSGI-INF"); //$NON-NLS-1$ //$NON-NLS-2$
+		File[] files = dir.listFiles();
+		assertNotNull(files);
+		for (File file : files) {
+			assertParity(new String(readAll(new FileInputStream(file)), UTF_8));
+		}
+	}
+
+	@Test
+	public void testDefaultNamespace() throws Exception {
+		assertParity(HEADER
+				+ "<component xmlns=\"http://www.osgi.org/xmlns/scr/v1.2.0\" name=\"test\" activate=\"start\" deactivate=\"stop\" modified=\"update\">\n" //$NON-NLS-1$
+				+ "  <implementation class=\"test.Impl\"/>\n" //$NON-NLS-1$
+				+ "  <service servicefactory=\"false\">\n" //$NON-NLS-1$
+				+ "    <provide interface=\"test.A\"/>\n" //$NON-NLS-1$
+				+ "    <provide interface=\"test.B\"/>\n" //$NON-NLS-1$
+				+ "  </service>\n" //$NON-NLS-1$
+				+ "  <reference name=\"c\" interface=\"test.C\" cardinality=\"0..n\" policy=\"dynamic\" bind=\"addC\" unbind=\"removeC\" updated=\"updatedC\"/>\n" //$NON-NLS-1$
+				+ "  <reference name=\"d\" interface=\"test.D\" target=\"(type=d)\"/>\n" //$NON-NLS-1$
+				+ "</component>\n"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testPrefix() throws Exception {
+		assertParity(HEADER
+				+ "<ds:component xmlns:ds=\"http://www.osgi.org/xmlns/scr/v1.1.0\" name=\"test\">\n" //$NON-NLS-1$
+				+ "  <implementation class=\"test.Impl\"/>\n" //$NON-NLS-1$
+				+ "  <reference name=\"c\" interface=\"test.C\" bind=\"setC\"/>\n" //$NON-NLS-1$
+				+ "</ds:component>\n"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testFormatting() throws Exception {
+		// single quotes, whitespace around '=', attributes across lines, CRLF
+		assertParity(HEADER.replace("\n", "\r\n") //$NON-NLS-1$ //$NON-NLS-2$
+				+ "<scr:component\r\n\txmlns:scr='http://www.osgi.org/xmlns/scr/v1.1.0'\r\n\tname = 'test'\r\n\tactivate\t=\t\"start\" >\r\n" //$NON-NLS-1$
+				+ "\t<implementation\r\n\t\tclass='test.Impl' />\r\n" //$NON-NLS-1$
+				+ "\t<service><provide\r\n\t\tinterface='test.A'/></service>\r\n" //$NON-NLS-1$
+				+ "\t<reference\r\n\t\tname='c'\r\n\t\tinterface='test.C'\r\n\t\tbind='setC'\r\n\t\tunbind='unsetC'/>\r\n" //$NON-NLS-1$
+				+ "</scr:component>\r\n"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testComments() throws Exception {
+		assertParity(HEADER
+				+ "<!-- <component name=\"commented\"><implementation class=\"test.Commented\"/></component> -->\n" //$NON-NLS-1$
+				+ "<scr:component xmlns:scr=\"http://www.osgi.org/xmlns/scr/v1.1.0\" name=\"test\">\n" //$NON-NLS-1$
+				+ "  <!-- <implementation class=\"test.Commented\"/> -->\n" //$NON-NLS-1$
+				+ "  <property name=\"class\" value=\"test.NotImpl\"/>\n" //$NON-NLS-1$
+				+ "  <implementation class=\"test.Impl\"/>\n" //$NON-NLS-1$
+				+ "  <service>\n" //$NON-NLS-1$
+				+ "    <!-- <provide interface=\"test.Commented\"/> -->\n" //$NON-NLS-1$
+				+ "    <provide interface=\"test.A\"/>\n" //$NON-NLS-1$
+				+ "  </service>\n" //$NON-NLS-1$
+				+ "</scr:component>\n"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testNonAscii() throws Exception {
+		// offsets are in characters, not bytes
+		assertParity(HEADER
+				+ "<scr:component xmlns:scr=\"http://www.osgi.org/xmlns/scr/v1.1.0\" name=\"gr\u00FC\u00DFe.\u4E16\u754C\">\n" //$NON-NLS-1$
+				+ "  <implementation class=\"test.Gr\u00FC\u00DFeImpl\"/>\n" //$NON-NLS-1$
+				+ "  <service><provide interface=\"test.A\"/></service>\n" //$NON-NLS-1$
+				+ "</scr:component>\n"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testByteOrderMark() throws Exception {
+		String content = HEADER
+				+ "<scr:component xmlns:scr=\"http://www.osgi.org/xmlns/scr/v1.1.0\" name=\"test\">\n" //$NON-NLS-1$
+				+ "  <implementation class=\"test.Impl\"/>\n" //$NON-NLS-1$
+				+ "</scr:component>\n"; //$NON-NLS-1$
+
+		// editor documents don't include the byte order mark
+		byte[] bytes = ("\uFEFF" + content).getBytes(UTF_8); //$NON-NLS-1$
+		DescriptorInfo info = DescriptorScanner.getDefault().scan(new ByteArrayInputStream(bytes));
+		assertEquals(describe(parse(content)), describe(info));
+	}
+
+	private static void assertParity(String content) throws Exception {
+		DescriptorInfo expected = parse(content);
+		assertNotNull(expected);
+		assertEquals(describe(expected), describe(DescriptorScanner.getDefault().scan(content)));
+		assertEquals(describe(expected), describe(DescriptorScanner.getDefault().scan(new ByteArrayInputStream(content.getBytes(UTF_8)))));
+	}
+
+	private static DescriptorInfo parse(String content) throws CoreException {
+		DSModel model = new DSModel(new Document(content), false);
+		try {
+			model.load();
+			IDSComponent component = model.getDSComponent();
+			return component == null || component.getImplementation() == null ? null : DescriptorQueryParticipant.createDescriptorInfo(component);
+		} finally {
+			model.dispose();
+		}
+	}
+
+	private static String describe(DescriptorInfo info) {
+		if (info == null)
+			return String.valueOf(info);
+
+		StringBuilder buf = new StringBuilder();
+		buf.append("component=").append(info.getComponent()); //$NON-NLS-1$
+		buf.append("\nname=").append(info.getName()); //$NON-NLS-1$
+		buf.append("\nimplementation=").append(info.getImplementation()); //$NON-NLS-1$
+		buf.append("\nactivate=").append(info.getActivate()); //$NON-NLS-1$
+		buf.append("\ndeactivate=").append(info.getDeactivate()); //$NON-NLS-1$
+		buf.append("\nmodified=").append(info.getModified()); //$NON-NLS-1$
+		if (info.getProvides() != null) {
+			for (Attribute provide : info.getProvides()) {
+				buf.append("\nprovide=").append(provide); //$NON-NLS-1$
+			}
+		}
+
+		if (info.getReferences() != null) {
+			for (Reference reference : info.getReferences()) {
+				buf.append("\nreference=").append(reference.getName()); //$NON-NLS-1$
+				buf.append(",interface=").append(reference.getInterface()); //$NON-NLS-1$
+				buf.append(",cardinality=").append(reference.getCardinality()); //$NON-NLS-1$
+				buf.append(",policy=").append(reference.getPolicy()); //$NON-NLS-1$
+				buf.append(",target=").append(reference.getTarget()); //$NON-NLS-1$
+				buf.append(",bind=").append(reference.getBind()); //$NON-NLS-1$
+				buf.append(",unbind=").append(reference.getUnbind()); //$NON-NLS-1$
+				buf.append(",updated=").append(reference.getUpdated()); //$NON-NLS-1$
+			}
+		}
+
+		return buf.toString();
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[4096];
+			int n;
+			while ((n = in.read(buf)) != -1) {
+				out.write(buf, 0, n);
+			}
+
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
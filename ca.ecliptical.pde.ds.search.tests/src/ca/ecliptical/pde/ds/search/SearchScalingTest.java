@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import ca.ecliptical.pde.ds.search.TestWorkspace.CollectingRequestor;
+import ca.ecliptical.pde.ds.search.TestWorkspace.Query;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+
+/**
+ * Measures how {@link DescriptorQueryParticipant#search} scales with the size
+ * of the workspace and target platform, including everything the participant
+ * does: scope filtering, manifest header lookup, descriptor resolution,
+ * reading and parsing, and resolution of types and lifecycle methods in JDT.
+ * <p>
+ * The data sets are read from the folder named by the
+ * {@value #SCALE_DIR_PROPERTY} system property (the test is skipped if it's
+ * not set), one subfolder per data set, in name order. Each has a
+ * {@code target} folder with a generated target platform and a
+ * {@code workspace} folder with generated projects (see
+ * {@code ScaleGenerator} in the benchmarks module). Every data set is set
+ * as the target platform, with all bundles included in Java searches, and
+ * its projects imported, before it's searched for references to a type,
+ * a default lifecycle method, and a type name pattern.
+ * </p>
+ * <p>
+ * Results are printed as CSV: data set, workspace and external bundle
+ * counts, query, matches, and the wall time of the first search (with the
+ * participant's caches only as warm as previous queries left them) and the
+ * median of the following ones.
+ * </p>
+ */
+public class SearchScalingTest {
+
+	/**
+	 * System property that names the folder of data sets.
+	 */
+	public static final String SCALE_DIR_PROPERTY = "ca.ecliptical.pde.ds.search.tests.scaleDir"; //$NON-NLS-1$
+
+	private static final String WORKSPACE_BUNDLE_PREFIX = "com.example.ws.bundle"; //$NON-NLS-1$
+
+	private static final String LIFECYCLE_TYPE = "com.example.base.AbstractLifecycle"; //$NON-NLS-1$
+
+	private static final String TYPE_PATTERN = "Component1*Impl"; //$NON-NLS-1$
+
+	private static final int RUNS = 5;
+
+	@AfterClass
+	public static void tearDown() throws CoreException {
+		IProgressMonitor monitor = new NullProgressMonitor();
+		TestWorkspace.deleteProjects(monitor);
+		TestWorkspace.setTarget(null, monitor);
+	}
+
+	@Test
+	public void testScaling() throws CoreException {
+		String scaleDir = System.getProperty(SCALE_DIR_PROPERTY);
+		assumeNotNull(scaleDir);
+
+		File[] dataSets = new File(scaleDir).listFiles();
+		assertNotNull(dataSets);
+		Arrays.sort(dataSets);
+
+		System.out.println("dataSet,workspaceBundles,externalBundles,query,matches,firstMillis,medianMillis"); //$NON-NLS-1$
+		IProgressMonitor monitor = new NullProgressMonitor();
+		for (File dataSet : dataSets) {
+			if (!dataSet.isDirectory())
+				continue;
+
+			TestWorkspace.deleteProjects(monitor);
+			int externalBundles = TestWorkspace.setTarget(new File(dataSet, "target/plugins"), monitor); //$NON-NLS-1$
+			List<IProject> projects = TestWorkspace.importProjects(new File(dataSet, "workspace"), monitor); //$NON-NLS-1$
+
+			DescriptorQueryParticipant participant = new DescriptorQueryParticipant();
+			for (Query query : createQueries(projects)) {
+				long[] millis = new long[RUNS];
+				List<String> matches = null;
+				for (int i = 0; i < RUNS; ++i) {
+					CollectingRequestor requestor = new CollectingRequestor();
+					long start = System.nanoTime();
+					participant.search(requestor, query.spec, monitor);
+					millis[i] = (System.nanoTime() - start) / 1000000L;
+					matches = requestor.getMatches();
+				}
+
+				assertTrue(String.format("No matches for %s query in data set %s", query.name, dataSet.getName()), !matches.isEmpty()); //$NON-NLS-1$
+
+				long first = millis[0];
+				Arrays.sort(millis, 1, RUNS);
+				System.out.println(String.format("%s,%d,%d,%s,%d,%d,%d", dataSet.getName(), projects.size(), externalBundles, query.name, matches.size(), first, millis[1 + (RUNS - 1) / 2])); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private List<Query> createQueries(List<IProject> projects) throws CoreException {
+		ArrayList<IProject> bundleProjects = new ArrayList<IProject>();
+		for (IProject project : projects) {
+			if (project.getName().startsWith(WORKSPACE_BUNDLE_PREFIX))
+				bundleProjects.add(project);
+		}
+
+		assertTrue("No generated bundle projects", !bundleProjects.isEmpty()); //$NON-NLS-1$
+
+		// an implementation class in the middle of the workspace
+		IProject project = bundleProjects.get(bundleProjects.size() / 2);
+		IType type = JavaCore.create(project).findType(project.getName() + ".internal.Component0Impl"); //$NON-NLS-1$
+		assertNotNull(type);
+
+		IType lifecycleType = JavaCore.create(project).findType(LIFECYCLE_TYPE);
+		assertNotNull(lifecycleType);
+
+		IMethod activate = TestWorkspace.findMethod(lifecycleType, DescriptorInfo.DEFAULT_ACTIVATE);
+
+		IJavaSearchScope scope = SearchEngine.createWorkspaceScope();
+		ArrayList<Query> queries = new ArrayList<Query>(3);
+		queries.add(Query.references("type", type, scope)); //$NON-NLS-1$
+		queries.add(Query.references("method", activate, scope)); //$NON-NLS-1$
+		queries.add(Query.typeReferences("pattern", TYPE_PATTERN, scope)); //$NON-NLS-1$
+		return queries;
+	}
+}
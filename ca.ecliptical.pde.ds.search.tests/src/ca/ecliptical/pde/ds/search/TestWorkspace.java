@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceDescription;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.search.IJavaSearchConstants;
+import org.eclipse.jdt.core.search.IJavaSearchScope;
+import org.eclipse.jdt.core.search.SearchEngine;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.TypeNameRequestor;
+import org.eclipse.jdt.ui.search.ElementQuerySpecification;
+import org.eclipse.jdt.ui.search.ISearchRequestor;
+import org.eclipse.jdt.ui.search.PatternQuerySpecification;
+import org.eclipse.jdt.ui.search.QuerySpecification;
+import org.eclipse.pde.core.plugin.IPluginModelBase;
+import org.eclipse.pde.core.plugin.PluginRegistry;
+import org.eclipse.pde.core.target.ITargetDefinition;
+import org.eclipse.pde.core.target.ITargetLocation;
+import org.eclipse.pde.core.target.ITargetPlatformService;
+import org.eclipse.pde.core.target.LoadTargetDefinitionJob;
+import org.eclipse.pde.internal.core.PDECore;
+import org.eclipse.pde.internal.core.SearchablePluginsManager;
+import org.eclipse.search.ui.text.Match;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Sets up the test workspace: imports existing plug-in projects, and sets
+ * the target platform, with all of its bundles included in Java searches.
+ */
+@SuppressWarnings("restriction")
+public class TestWorkspace {
+
+	private static final String NO_SUCH_TYPE = "__NoSuchType__"; //$NON-NLS-1$
+
+	private TestWorkspace() {
+	}
+
+	/**
+	 * Returns the given test data folder as a local file, extracting it if
+	 * necessary.
+	 *
+	 * @param path folder path relative to the test fragment
+	 */
+	public static File getTestData(String path) throws IOException {
+		URL url = FileLocator.find(Activator.getDefault().getBundle(), new Path(path), null);
+		if (url == null)
+			throw new IOException(String.format("Test data not found: %s", path)); //$NON-NLS-1$
+
+		return new File(FileLocator.toFileURL(url).getPath());
+	}
+
+	/**
+	 * Imports all projects in the given folder (i.e., its subfolders with a
+	 * {@code .project} file) in place, without building them.
+	 *
+	 * @return imported projects, in folder name order
+	 */
+	public static List<IProject> importProjects(File dir, IProgressMonitor monitor) throws CoreException {
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		setAutoBuilding(false);
+
+		File[] files = dir.listFiles();
+		if (files == null)
+			return Collections.emptyList();
+
+		Arrays.sort(files);
+		final ArrayList<File> projectDirs = new ArrayList<File>();
+		for (File file : files) {
+			if (new File(file, IProjectDescription.DESCRIPTION_FILE_NAME).isFile())
+				projectDirs.add(file);
+		}
+
+		final ArrayList<IProject> projects = new ArrayList<IProject>(projectDirs.size());
+		workspace.run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (File projectDir : projectDirs) {
+					IProjectDescription description = workspace.loadProjectDescription(new Path(new File(projectDir, IProjectDescription.DESCRIPTION_FILE_NAME).getAbsolutePath()));
+					IProject project = workspace.getRoot().getProject(description.getName());
+					project.create(description, null);
+					project.open(null);
+					projects.add(project);
+				}
+			}
+		}, monitor);
+
+		waitForJobs();
+		return projects;
+	}
+
+	/**
+	 * Deletes all projects from the workspace, leaving their contents in place.
+	 */
+	public static void deleteProjects(IProgressMonitor monitor) throws CoreException {
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		workspace.run(new IWorkspaceRunnable() {
+			public void run(IProgressMonitor monitor) throws CoreException {
+				for (IProject project : workspace.getRoot().getProjects()) {
+					project.delete(false, true, null);
+				}
+			}
+		}, monitor);
+
+		waitForJobs();
+	}
+
+	/**
+	 * Sets the target platform to the bundles in the given folder, and adds
+	 * them all to Java searches.
+	 *
+	 * @param dir bundles folder, or {@code null} for the running platform
+	 * @return number of external bundles
+	 */
+	public static int setTarget(File dir, IProgressMonitor monitor) throws CoreException {
+		BundleContext context = Activator.getDefault().getBundle().getBundleContext();
+		ServiceReference<ITargetPlatformService> ref = context.getServiceReference(ITargetPlatformService.class);
+		ITargetPlatformService service = context.getService(ref);
+		try {
+			ITargetDefinition target;
+			if (dir == null) {
+				target = service.newDefaultTarget();
+			} else {
+				target = service.newTarget();
+				target.setTargetLocations(new ITargetLocation[] { service.newDirectoryLocation(dir.getAbsolutePath()) });
+			}
+
+			target.resolve(monitor);
+			LoadTargetDefinitionJob.load(target);
+		} finally {
+			context.ungetService(ref);
+		}
+
+		IPluginModelBase[] models = PluginRegistry.getExternalModels();
+		SearchablePluginsManager spm = PDECore.getDefault().getSearchablePluginsManager();
+		if (spm.getProxyProject() == null)
+			spm.createProxyProject(monitor);
+
+		spm.addToJavaSearch(models);
+		waitForJobs();
+		return models.length;
+	}
+
+	/**
+	 * Waits for background jobs (e.g., classpath updates) and Java indexing to finish.
+	 */
+	public static void waitForJobs() throws CoreException {
+		try {
+			Job.getJobManager().join(ResourcesPlugin.FAMILY_AUTO_BUILD, null);
+			Job.getJobManager().join(ResourcesPlugin.FAMILY_MANUAL_BUILD, null);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		// doesn't return until the index is ready
+		new SearchEngine().searchAllTypeNames(null, SearchPattern.R_EXACT_MATCH, NO_SUCH_TYPE.toCharArray(), SearchPattern.R_EXACT_MATCH, IJavaSearchConstants.CLASS, SearchEngine.createWorkspaceScope(), new TypeNameRequestor() {
+		}, IJavaSearchConstants.WAIT_UNTIL_READY_TO_SEARCH, null);
+	}
+
+	private static void setAutoBuilding(boolean autoBuilding) throws CoreException {
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		IWorkspaceDescription description = workspace.getDescription();
+		if (description.isAutoBuilding() != autoBuilding) {
+			description.setAutoBuilding(autoBuilding);
+			workspace.setDescription(description);
+		}
+	}
+
+	/**
+	 * Returns the first method of the given type with the given name.
+	 *
+	 * @throws AssertionError if there's no such method
+	 */
+	public static IMethod findMethod(IType type, String name) throws CoreException {
+		for (IMethod method : type.getMethods()) {
+			if (name.equals(method.getElementName()))
+				return method;
+		}
+
+		throw new AssertionError(String.format("No method %s in %s", name, type.getFullyQualifiedName())); //$NON-NLS-1$
+	}
+
+	/**
+	 * Named reference search, as run by the Java search page.
+	 */
+	public static class Query {
+
+		public final String name;
+
+		public final QuerySpecification spec;
+
+		public Query(String name, QuerySpecification spec) {
+			this.name = name;
+			this.spec = spec;
+		}
+
+		/**
+		 * Creates a search for references to the given element.
+		 */
+		public static Query references(String name, IJavaElement element, IJavaSearchScope scope) {
+			return new Query(name, new ElementQuerySpecification(element, IJavaSearchConstants.REFERENCES, scope, element.getElementName()));
+		}
+
+		/**
+		 * Creates a case-sensitive search for references to types that match
+		 * the given pattern.
+		 */
+		public static Query typeReferences(String name, String pattern, IJavaSearchScope scope) {
+			return new Query(name, new PatternQuerySpecification(pattern, IJavaSearchConstants.TYPE, true, IJavaSearchConstants.REFERENCES, scope, pattern));
+		}
+	}
+
+	/**
+	 * Collects the matches reported to it, as strings that identify the
+	 * matched element and region.
+	 */
+	public static class CollectingRequestor implements ISearchRequestor {
+
+		private final ArrayList<String> matches = new ArrayList<String>();
+
+		public synchronized void reportMatch(Match match) {
+			matches.add(String.format("%s@%d+%d", match.getElement(), match.getOffset(), match.getLength())); //$NON-NLS-1$
+		}
+
+		/**
+		 * Returns the matches reported so far, sorted.
+		 */
+		public synchronized List<String> getMatches() {
+			ArrayList<String> result = new ArrayList<String>(matches);
+			Collections.sort(result);
+			return result;
+		}
+	}
+}
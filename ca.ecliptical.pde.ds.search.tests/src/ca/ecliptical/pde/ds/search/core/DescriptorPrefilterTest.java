@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link DescriptorPrefilter}.
+ */
+public class DescriptorPrefilterTest {
+
+	private static final String DESCRIPTOR = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //$NON-NLS-1$
+			+ "<scr:component xmlns:scr=\"http://www.osgi.org/xmlns/scr/v1.1.0\" name=\"test\">\n" //$NON-NLS-1$
+			+ "  <implementation class=\"test.internal.FooImpl\"/>\n" //$NON-NLS-1$
+			+ "  <reference name=\"bar\" interface=\"test.IBar\" bind=\"setBar\"/>\n" //$NON-NLS-1$
+			+ "</scr:component>\n"; //$NON-NLS-1$
+
+	@Test
+	public void testNoTokens() {
+		assertNull(DescriptorPrefilter.create(Collections.<String> emptyList(), true));
+		assertNull(DescriptorPrefilter.create(Arrays.asList("FooImpl", ""), true)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testNonAsciiToken() {
+		// encoded differently depending on the descriptor's encoding
+		assertNull(DescriptorPrefilter.create(Arrays.asList("Gr\u00FC\u00DFe"), false)); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testCaseSensitive() throws Exception {
+		assertTrue(accept(DESCRIPTOR, true, "FooImpl")); //$NON-NLS-1$
+		assertTrue(accept(DESCRIPTOR, true, "setBar")); //$NON-NLS-1$
+		assertTrue(accept(DESCRIPTOR, true, "test.IBar")); //$NON-NLS-1$
+		assertFalse(accept(DESCRIPTOR, true, "fooimpl")); //$NON-NLS-1$
+		assertFalse(accept(DESCRIPTOR, true, "BarImpl")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testCaseInsensitive() throws Exception {
+		assertTrue(accept(DESCRIPTOR, false, "fooimpl")); //$NON-NLS-1$
+		assertTrue(accept(DESCRIPTOR, false, "FOOIMPL")); //$NON-NLS-1$
+		assertTrue(accept(DESCRIPTOR, false, "SetBar")); //$NON-NLS-1$
+		assertFalse(accept(DESCRIPTOR, false, "BarImpl")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testMultipleTokens() throws Exception {
+		assertTrue(accept(DESCRIPTOR, true, "Baz", "Qux", "IBar")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertTrue(accept(DESCRIPTOR, true, "FooImpl", "Foo", "Impl")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertFalse(accept(DESCRIPTOR, true, "Baz", "Qux", "Quux")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	@Test
+	public void testOverlappingTokens() throws Exception {
+		// each token's prefix is a suffix of another's partial match
+		assertTrue(accept("aab", true, "ab", "aaa")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertTrue(accept("xaaab", true, "aab")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(accept("abcabd", true, "abd", "bcx")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertFalse(accept("abcab", true, "abd", "bcx")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	@Test
+	public void testCharacterReference() throws Exception {
+		// "FooImpl" could be spelled with character references
+		assertTrue(accept(DESCRIPTOR.replace("FooImpl", "&#70;ooImpl"), true, "FooImpl")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertTrue(accept("<component name=\"&#x41;\"/>", true, "BarImpl")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(accept("<component name=\"&amp;\"/>", true, "BarImpl")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testLocale() throws Exception {
+		Locale locale = Locale.getDefault();
+		try {
+			// lower case of 'I' is a dotless i in Turkish
+			Locale.setDefault(new Locale("tr", "TR")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue(accept(DESCRIPTOR, false, "IBAR")); //$NON-NLS-1$
+			assertTrue(accept(DESCRIPTOR.toUpperCase(Locale.ENGLISH), false, "ibar")); //$NON-NLS-1$
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	@Test
+	public void testRegion() throws Exception {
+		DescriptorPrefilter prefilter = DescriptorPrefilter.create(Arrays.asList("FooImpl"), true); //$NON-NLS-1$
+		assertNotNull(prefilter);
+
+		byte[] bytes = DESCRIPTOR.getBytes("UTF-8"); //$NON-NLS-1$
+		int offset = DESCRIPTOR.indexOf("FooImpl"); //$NON-NLS-1$
+		assertTrue(prefilter.accept(bytes, offset, 7));
+		assertTrue(prefilter.accept(bytes, 0, offset + 7));
+		assertFalse(prefilter.accept(bytes, 0, offset + 6));
+		assertFalse(prefilter.accept(bytes, offset + 1, bytes.length - offset - 1));
+	}
+
+	private static boolean accept(String content, boolean caseSensitive, String... tokens) throws UnsupportedEncodingException {
+		DescriptorPrefilter prefilter = DescriptorPrefilter.create(Arrays.asList(tokens), caseSensitive);
+		assertNotNull(prefilter);
+
+		byte[] bytes = content.getBytes("UTF-8"); //$NON-NLS-1$
+		return prefilter.accept(bytes, 0, bytes.length);
+	}
+}
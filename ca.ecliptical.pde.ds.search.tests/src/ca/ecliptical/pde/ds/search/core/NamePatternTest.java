@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.junit.Test;
+
+/**
+ * Verifies that {@link NamePattern} matches exactly the names that JDT's
+ * {@link SearchPattern#getMatchingRegions(String, String, int)} matches, for
+ * every supported match rule, with and without
+ * {@link SearchPattern#R_CASE_SENSITIVE}.
+ */
+public class NamePatternTest {
+
+	private static final String[] PATTERNS = {
+			// literal
+			"Foo", "foo", "FOO", "FooBar", "fooBar", "Baz", "URL", "H2O", "Foo$Bar", "Foo_Bar", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$
+			// wildcards
+			"*", "?", "Foo*", "*Bar", "*bar", "F?o", "?oo*", "*o?B*", "Fo*Ba?", "foo*bar", "*$*", "*_?ar", "X?*Y", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$ //$NON-NLS-13$
+			// camel case
+			"FB", "FBa", "FoB", "FBB", "fB", "IO", "IOS", "IOE", "HM", "HaMa", "hashmap", "UC", "URLC", "UrlC", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$ //$NON-NLS-13$ //$NON-NLS-14$
+			// camel case with digits, $ and _
+			"X1Y", "X1", "XY", "A1", "H2", "HO", "F$B", "F_B", "Fo$", "FB_", "$P", "$", "_I", "_", "AD3", "AD", "C3", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$ //$NON-NLS-13$ //$NON-NLS-14$ //$NON-NLS-15$ //$NON-NLS-16$ //$NON-NLS-17$
+			// beyond ASCII
+			"\u00C4B", "\u00E4pfel", "\u00C4pfel*" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	};
+
+	private static final String[] NAMES = {
+			"Foo", "foo", "FOO", "Fo", "FooBar", "Foobar", "FooBarBaz", "FBar", "FoBar", "fooBar", "Baz", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$
+			"Foo$Bar", "Foo_Bar", "Foo$bar", "Foo_bar", "F$B", "F_B", "Foo$", "FooBar_", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$
+			"IOException", "IOStream", "InputOutputStream", "HashMap", "Hashmap", "HMap", "URL", "URLConnection", "UrlConnection", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$
+			"H2O", "Hydro2Oxide", "H20", "X1Y", "X12Y", "XaY", "X1aY", "A1", "Ab1", "A12", "AbcD3f", "AbcDef3f", "Abc3", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$ //$NON-NLS-13$
+			"$Proxy0", "$", "_Internal", "_", "", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+			"\u00C4pfelBirne", "\u00E4pfel", "\u00C4PFEL" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	};
+
+	@Test
+	public void testExact() {
+		assertParity(SearchPattern.R_EXACT_MATCH);
+	}
+
+	@Test
+	public void testPrefix() {
+		assertParity(SearchPattern.R_PREFIX_MATCH);
+	}
+
+	@Test
+	public void testPattern() {
+		assertParity(SearchPattern.R_PATTERN_MATCH);
+	}
+
+	@Test
+	public void testCamelCase() {
+		assertParity(SearchPattern.R_CAMELCASE_MATCH);
+	}
+
+	/**
+	 * Compares all patterns with all names, using the given match rule both
+	 * with and without case sensitivity; reports all differences at once.
+	 */
+	private static void assertParity(int matchRule) {
+		List<String> mismatches = new ArrayList<String>();
+		for (int rule : new int[] { matchRule, matchRule | SearchPattern.R_CASE_SENSITIVE }) {
+			for (String pattern : PATTERNS) {
+				NamePattern namePattern = NamePattern.compile(pattern, rule);
+				for (String name : NAMES) {
+					boolean expected = SearchPattern.getMatchingRegions(pattern, name, rule) != null;
+					if (namePattern.matches(name) != expected)
+						mismatches.add(String.format("'%s' %s '%s' (rule %d)", pattern, expected ? "should match" : "should not match", name, rule)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				}
+			}
+		}
+
+		assertEquals(Collections.<String> emptyList(), mismatches);
+	}
+}
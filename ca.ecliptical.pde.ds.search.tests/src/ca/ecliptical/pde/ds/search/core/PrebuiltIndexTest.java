@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests generating, reading, and matching {@link PrebuiltIndex} bundles.
+ */
+public class PrebuiltIndexTest {
+
+	private static final String HEADER = "OSGI-INF/*.xml"; //$NON-NLS-1$
+
+	private static final String MANIFEST = "Manifest-Version: 1.0\nBundle-SymbolicName: test.bundle;singleton:=true\nBundle-Version: 1.0\nService-Component: " + HEADER + "\n"; //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final String DESCRIPTOR = "<scr:component xmlns:scr=\"http://www.osgi.org/xmlns/scr/v1.1.0\" name=\"test\"><implementation class=\"test.Impl\"/></scr:component>"; //$NON-NLS-1$
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("bundles", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(dir.delete());
+		assertTrue(dir.mkdir());
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+
+		dir.delete();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		writeJar("test.bundle_1.0.0.jar", MANIFEST, DESCRIPTOR); //$NON-NLS-1$
+		PrebuiltIndex index = new PrebuiltIndexGenerator().generate(dir);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		index.write(out);
+		PrebuiltIndex read = PrebuiltIndex.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(1, read.getBundles().size());
+
+		PrebuiltIndex.Bundle bundle = read.getBundles().iterator().next();
+		assertEquals("test.bundle", bundle.getSymbolicName()); //$NON-NLS-1$
+		assertEquals("1.0.0", bundle.getVersion()); //$NON-NLS-1$
+		assertEquals(HEADER, bundle.getHeader());
+		assertNotNull(bundle.getDescriptors().get("OSGI-INF/test.xml")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testMatches() throws IOException {
+		File jar = writeJar("test.bundle_1.0.0.jar", MANIFEST, DESCRIPTOR); //$NON-NLS-1$
+		PrebuiltIndex.Bundle bundle = new PrebuiltIndexGenerator().generateBundle(jar);
+		assertTrue(bundle.matches(jar, "test.bundle", "1.0.0", HEADER)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(bundle.matches(jar, "other.bundle", "1.0.0", HEADER)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(bundle.matches(jar, "test.bundle", "1.0.1", HEADER)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(bundle.matches(jar, "test.bundle", "1.0.0", "OSGI-INF/test.xml")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertTrue(matchesContents(bundle, jar));
+	}
+
+	@Test
+	public void testModifiedDescriptor() throws IOException {
+		File jar = writeJar("test.bundle_1.0.0.jar", MANIFEST, DESCRIPTOR); //$NON-NLS-1$
+		PrebuiltIndex.Bundle bundle = new PrebuiltIndexGenerator().generateBundle(jar);
+
+		// same length, different content
+		writeJar(jar.getName(), MANIFEST, DESCRIPTOR.replace("test.Impl", "test.Imp2")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(matchesContents(bundle, jar));
+	}
+
+	@Test
+	public void testNormalizeVersion() {
+		assertEquals("0.0.0", PrebuiltIndex.normalizeVersion(null)); //$NON-NLS-1$
+		assertEquals("1.0.0", PrebuiltIndex.normalizeVersion("1")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("1.2.0", PrebuiltIndex.normalizeVersion(" 1.2 ")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("1.2.3.v2015", PrebuiltIndex.normalizeVersion("1.2.3.v2015")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("1.x", PrebuiltIndex.normalizeVersion("1.x")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static boolean matchesContents(PrebuiltIndex.Bundle bundle, File jar) throws IOException {
+		BundleDescriptorSource source = new BundleDescriptorSource(jar);
+		try {
+			return bundle.matchesContents(source);
+		} finally {
+			source.close();
+		}
+	}
+
+	private File writeJar(String name, String manifest, String descriptor) throws IOException {
+		File file = new File(dir, name);
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+		try {
+			out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF")); //$NON-NLS-1$
+			out.write(manifest.getBytes("UTF-8")); //$NON-NLS-1$
+			out.putNextEntry(new ZipEntry("OSGI-INF/test.xml")); //$NON-NLS-1$
+			out.write(descriptor.getBytes("UTF-8")); //$NON-NLS-1$
+		} finally {
+			out.close();
+		}
+
+		return file;
+	}
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+/**
+ * Tests reading the {@code Service-Component} header with
+ * {@link ServiceComponentHeader#read(java.io.InputStream)}, which must accept
+ * the same manifests as the OSGi framework.
+ */
+public class ServiceComponentHeaderTest {
+
+	private static final String HEADER = "OSGI-INF/a.xml, OSGI-INF/b.xml"; //$NON-NLS-1$
+
+	@Test
+	public void testTerminated() throws IOException {
+		assertEquals(HEADER, read("Manifest-Version: 1.0\nService-Component: " + HEADER + "\nBundle-Version: 1.0.0\n")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testUnterminatedLastLine() throws IOException {
+		assertEquals(HEADER, read("Manifest-Version: 1.0\nService-Component: " + HEADER)); //$NON-NLS-1$
+		assertEquals(HEADER, read("Manifest-Version: 1.0\r\nService-Component: OSGI-INF/a.xml,\r\n  OSGI-INF/b.xml")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testLongLine() throws IOException {
+		StringBuilder header = new StringBuilder();
+		for (int i = 0; header.length() <= 1024; ++i) {
+			if (i > 0)
+				header.append(',');
+
+			header.append("OSGI-INF/component").append(i).append(".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		assertEquals(header.toString(), read("Manifest-Version: 1.0\nService-Component: " + header + "\n")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testContinuation() throws IOException {
+		assertEquals(HEADER, read("Manifest-Version: 1.0\r\nService-Component: OSGI-INF/a.x\r\n ml, OSGI-INF/b.xml\r\nBundle-Version: 1.0.0\r\n")); //$NON-NLS-1$
+		assertEquals(HEADER, read("Manifest-Version: 1.0\rService-Component: OSGI-INF/a.xml,\r  OSGI-INF/b.xml\r")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testName() throws IOException {
+		assertEquals(HEADER, read("service-component:" + HEADER + "\n")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(read("Service-Components: " + HEADER + "\n")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(read("Manifest-Version: 1.0\nX-Service-Component: " + HEADER + "\n")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testMainSectionOnly() throws IOException {
+		assertNull(read("Manifest-Version: 1.0\n\nName: foo\nService-Component: " + HEADER + "\n")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(read("")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testDirectoryBundle() throws IOException {
+		File dir = File.createTempFile("bundle", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(dir.delete());
+		File file = new File(dir, "META-INF/MANIFEST.MF"); //$NON-NLS-1$
+		assertTrue(file.getParentFile().mkdirs());
+		try {
+			OutputStream out = new FileOutputStream(file);
+			try {
+				out.write(("Manifest-Version: 1.0\nService-Component: " + HEADER).getBytes("UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+			} finally {
+				out.close();
+			}
+
+			BundleDescriptorSource source = new BundleDescriptorSource(dir);
+			try {
+				assertEquals(HEADER, source.getServiceComponentHeader());
+			} finally {
+				source.close();
+			}
+		} finally {
+			file.delete();
+			file.getParentFile().delete();
+			dir.delete();
+		}
+	}
+
+	private static String read(String manifest) throws IOException {
+		return ServiceComponentHeader.read(new ByteArrayInputStream(manifest.getBytes("UTF-8"))); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,6 @@
+package ds.test.api;
+
+public interface Clock {
+
+	long now();
+}
@@ -0,0 +1,10 @@
+package ds.test.impl;
+
+public abstract class AbstractComponent {
+
+	protected void activate() {
+	}
+
+	protected void deactivate() {
+	}
+}
@@ -0,0 +1,10 @@
+package ds.test.impl;
+
+import ds.test.api.Clock;
+
+public class ClockImpl extends AbstractComponent implements Clock {
+
+	public long now() {
+		return System.currentTimeMillis();
+	}
+}
@@ -0,0 +1,27 @@
+package ds.test.impl;
+
+import java.util.Map;
+
+import ds.test.api.Clock;
+import ds.test.api.Greeter;
+
+public class GreeterImpl extends AbstractComponent implements Greeter {
+
+	private volatile Clock clock;
+
+	protected void start(Map<String, ?> properties) {
+	}
+
+	protected void setClock(Clock clock) {
+		this.clock = clock;
+	}
+
+	protected void unsetClock(Clock clock) {
+		if (this.clock == clock)
+			this.clock = null;
+	}
+
+	public String greet(String name) {
+		return String.format("Hello %s, it's %tT", name, clock.now());
+	}
+}
@@ -10,17 +10,86 @@
  *******************************************************************************/
 package ca.ecliptical.pde.ds.search;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.ISaveContext;
+import org.eclipse.core.resources.ISaveParticipant;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.jobs.IJobManager;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.pde.internal.core.PDECore;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
+@SuppressWarnings("restriction")
 public class Activator extends AbstractUIPlugin {
 
 	// The plug-in ID
 	public static final String PLUGIN_ID = "ca.ecliptical.pde.ds.search"; //$NON-NLS-1$
 
+	/**
+	 * Preference that controls the maximum number of threads used to search
+	 * bundles in parallel; defaults to the number of available processors.
+	 * A value of 1 searches all bundles on the calling thread.
+	 */
+	public static final String PREF_SEARCH_THREADS = "searchThreads"; //$NON-NLS-1$
+
+	/**
+	 * Preference that controls whether descriptor data is pre-loaded in the
+	 * background after workbench startup; defaults to {@code true}.
+	 */
+	public static final String PREF_WARM_UP = "warmUp"; //$NON-NLS-1$
+
+	/**
+	 * Preference that lists prebuilt descriptor index files (see
+	 * {@link ca.ecliptical.pde.ds.search.core.PrebuiltIndexGenerator}) to
+	 * use for external bundles, separated by the platform's path separator.
+	 */
+	public static final String PREF_PREBUILT_INDEXES = "prebuiltIndexes"; //$NON-NLS-1$
+
+	private static final String WORKSPACE_INDEX_FILE = "workspace.index"; //$NON-NLS-1$
+
+	private static final String EXTERNAL_CACHE_FILE = "external.cache"; //$NON-NLS-1$
+
+	private static final AtomicInteger searchThreadCount = new AtomicInteger();
+
 	// The shared instance
 	private static Activator plugin;
 
+	private WorkspaceDescriptorIndex descriptorIndex;
+
+	private ExternalDescriptorCache externalDescriptorCache;
+
+	private LifecycleMethodCache lifecycleMethodCache;
+
+	private SupertypeChainCache supertypeChainCache;
+
+	private JarEntryIndex jarEntryIndex;
+
+	private ZipFilePool zipFilePool;
+
+	private BundleModelIndex bundleModelIndex;
+
+	private ComponentGraphIndex componentGraphIndex;
+
+	private PrebuiltDescriptorIndex prebuiltDescriptorIndex;
+
+	private ExecutorService searchExecutor;
+
+	private int searchThreads;
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.eclipse.ui.plugin.AbstractUIPlugin#start(org.osgi.framework.BundleContext)
@@ -29,6 +98,35 @@ public class Activator extends AbstractUIPlugin {
 	public void start(BundleContext context) throws Exception {
 		super.start(context);
 		plugin = this;
+
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		descriptorIndex = new WorkspaceDescriptorIndex(workspace.getRoot(), getStateLocation().append(WORKSPACE_INDEX_FILE).toFile());
+		workspace.addResourceChangeListener(descriptorIndex, IResourceChangeEvent.POST_CHANGE);
+
+		externalDescriptorCache = new ExternalDescriptorCache(getStateLocation().append(EXTERNAL_CACHE_FILE).toFile());
+		PDECore.getDefault().getModelManager().addPluginModelListener(externalDescriptorCache);
+
+		workspace.addSaveParticipant(PLUGIN_ID, new SaveParticipant(descriptorIndex, externalDescriptorCache));
+
+		prebuiltDescriptorIndex = new PrebuiltDescriptorIndex(getPrebuiltIndexFiles());
+
+		bundleModelIndex = new BundleModelIndex();
+		PDECore.getDefault().getModelManager().addPluginModelListener(bundleModelIndex);
+
+		lifecycleMethodCache = new LifecycleMethodCache();
+		JavaCore.addElementChangedListener(lifecycleMethodCache, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+
+		supertypeChainCache = new SupertypeChainCache();
+		JavaCore.addElementChangedListener(supertypeChainCache, ElementChangedEvent.POST_CHANGE | ElementChangedEvent.POST_RECONCILE);
+
+		zipFilePool = new ZipFilePool();
+
+		jarEntryIndex = new JarEntryIndex();
+		JavaCore.addElementChangedListener(jarEntryIndex, ElementChangedEvent.POST_CHANGE);
+
+		componentGraphIndex = new ComponentGraphIndex();
+		workspace.addResourceChangeListener(componentGraphIndex, IResourceChangeEvent.POST_CHANGE);
+		PDECore.getDefault().getModelManager().addPluginModelListener(componentGraphIndex);
 	}
 
 	/*
@@ -37,10 +135,90 @@ public class Activator extends AbstractUIPlugin {
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		IJobManager jobManager = Job.getJobManager();
+		jobManager.cancel(WarmUpJob.FAMILY);
+		try {
+			jobManager.join(WarmUpJob.FAMILY, null);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (this) {
+			if (searchExecutor != null) {
+				searchExecutor.shutdown();
+				searchExecutor = null;
+			}
+		}
+
+		ResourcesPlugin.getWorkspace().removeSaveParticipant(PLUGIN_ID);
+
+		if (componentGraphIndex != null) {
+			PDECore.getDefault().getModelManager().removePluginModelListener(componentGraphIndex);
+			ResourcesPlugin.getWorkspace().removeResourceChangeListener(componentGraphIndex);
+			componentGraphIndex = null;
+		}
+
+		if (jarEntryIndex != null) {
+			JavaCore.removeElementChangedListener(jarEntryIndex);
+			jarEntryIndex = null;
+		}
+
+		if (supertypeChainCache != null) {
+			JavaCore.removeElementChangedListener(supertypeChainCache);
+			supertypeChainCache = null;
+		}
+
+		if (lifecycleMethodCache != null) {
+			JavaCore.removeElementChangedListener(lifecycleMethodCache);
+			lifecycleMethodCache = null;
+		}
+
+		if (bundleModelIndex != null) {
+			PDECore.getDefault().getModelManager().removePluginModelListener(bundleModelIndex);
+			bundleModelIndex = null;
+		}
+
+		if (externalDescriptorCache != null) {
+			PDECore.getDefault().getModelManager().removePluginModelListener(externalDescriptorCache);
+			externalDescriptorCache.save();
+			externalDescriptorCache = null;
+		}
+
+		prebuiltDescriptorIndex = null;
+
+		if (descriptorIndex != null) {
+			ResourcesPlugin.getWorkspace().removeResourceChangeListener(descriptorIndex);
+			descriptorIndex.save();
+			descriptorIndex = null;
+		}
+
+		if (zipFilePool != null) {
+			zipFilePool.close();
+			zipFilePool = null;
+		}
+
 		plugin = null;
 		super.stop(context);
 	}
 
+	private int getSearchThreads() {
+		int threads = Platform.getPreferencesService().getInt(PLUGIN_ID, PREF_SEARCH_THREADS, Runtime.getRuntime().availableProcessors(), null);
+		return Math.max(1, threads);
+	}
+
+	private List<File> getPrebuiltIndexFiles() {
+		ArrayList<File> files = new ArrayList<File>();
+		String value = Platform.getPreferencesService().getString(PLUGIN_ID, PREF_PREBUILT_INDEXES, null, null);
+		if (value != null) {
+			for (String path : value.split(File.pathSeparator)) {
+				if (path.trim().length() > 0)
+					files.add(new File(path.trim()));
+			}
+		}
+
+		return files;
+	}
+
 	/**
 	 * Returns the shared instance
 	 *
@@ -49,4 +227,158 @@ public class Activator extends AbstractUIPlugin {
 	public static Activator getDefault() {
 		return plugin;
 	}
+
+	/**
+	 * Returns the worker threads shared by all searches, created when first
+	 * needed; they're replaced if the {@link #PREF_SEARCH_THREADS} preference
+	 * changes in the meantime.
+	 *
+	 * @return the search executor, or {@code null} if bundles are to be searched
+	 * sequentially or the plug-in isn't active
+	 */
+	public synchronized ExecutorService getSearchExecutor() {
+		if (plugin == null)
+			return null;
+
+		int threads = getSearchThreads();
+		if (searchExecutor != null && searchThreads != threads) {
+			// already queued bundle searches still run; searches holding on to it
+			// search their remaining bundles inline (see BundleSearchScheduler)
+			searchExecutor.shutdown();
+			searchExecutor = null;
+		}
+
+		if (searchExecutor == null && threads > 1) {
+			searchExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, String.format("DS Descriptor Search #%d", searchThreadCount.incrementAndGet())); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			searchThreads = threads;
+		}
+
+		return searchExecutor;
+	}
+
+	/**
+	 * Returns the workspace descriptor index.
+	 *
+	 * @return the descriptor index, or {@code null} if the plug-in isn't active
+	 */
+	public WorkspaceDescriptorIndex getDescriptorIndex() {
+		return descriptorIndex;
+	}
+
+	/**
+	 * Returns the external (target platform) descriptor cache.
+	 *
+	 * @return the descriptor cache, or {@code null} if the plug-in isn't active
+	 */
+	public ExternalDescriptorCache getExternalDescriptorCache() {
+		return externalDescriptorCache;
+	}
+
+	/**
+	 * Returns the cache of resolved component lifecycle and event methods.
+	 *
+	 * @return the method cache, or {@code null} if the plug-in isn't active
+	 */
+	public LifecycleMethodCache getLifecycleMethodCache() {
+		return lifecycleMethodCache;
+	}
+
+	/**
+	 * Returns the cache of superclass chains.
+	 *
+	 * @return the supertype cache, or {@code null} if the plug-in isn't active
+	 */
+	public SupertypeChainCache getSupertypeChainCache() {
+		return supertypeChainCache;
+	}
+
+	/**
+	 * Returns the index of non-Java resources in package fragment roots.
+	 *
+	 * @return the entry index, or {@code null} if the plug-in isn't active
+	 */
+	public JarEntryIndex getJarEntryIndex() {
+		return jarEntryIndex;
+	}
+
+	/**
+	 * Returns the pool of open zip files of external bundles.
+	 *
+	 * @return the zip file pool, or {@code null} if the plug-in isn't active
+	 */
+	public ZipFilePool getZipFilePool() {
+		return zipFilePool;
+	}
+
+	/**
+	 * Returns the index of plug-in models by search scope path.
+	 *
+	 * @return the model index, or {@code null} if the plug-in isn't active
+	 */
+	public BundleModelIndex getBundleModelIndex() {
+		return bundleModelIndex;
+	}
+
+	/**
+	 * Returns the index of components and their service dependencies.
+	 *
+	 * @return the component graph index, or {@code null} if the plug-in isn't active
+	 */
+	public ComponentGraphIndex getComponentGraphIndex() {
+		return componentGraphIndex;
+	}
+
+	/**
+	 * Returns the prebuilt descriptor index of external bundles.
+	 *
+	 * @return the prebuilt index, or {@code null} if the plug-in isn't active
+	 */
+	public PrebuiltDescriptorIndex getPrebuiltDescriptorIndex() {
+		return prebuiltDescriptorIndex;
+	}
+
+	/**
+	 * Saves the workspace descriptor index and the external descriptor cache
+	 * along with the workspace, including its periodic snapshots, so that little
+	 * of either is lost if the workbench doesn't shut down cleanly. Both are
+	 * saved again when the plug-in stops.
+	 */
+	private static class SaveParticipant implements ISaveParticipant {
+
+		private final WorkspaceDescriptorIndex descriptorIndex;
+
+		private final ExternalDescriptorCache externalDescriptorCache;
+
+		SaveParticipant(WorkspaceDescriptorIndex descriptorIndex, ExternalDescriptorCache externalDescriptorCache) {
+			this.descriptorIndex = descriptorIndex;
+			this.externalDescriptorCache = externalDescriptorCache;
+		}
+
+		public void prepareToSave(ISaveContext context) throws CoreException {
+			// nothing to do
+		}
+
+		public void saving(ISaveContext context) throws CoreException {
+			if (context.getKind() == ISaveContext.PROJECT_SAVE)
+				return;
+
+			descriptorIndex.save();
+			// written to the pending file, which replaces the mapped one next session
+			externalDescriptorCache.save();
+		}
+
+		public void doneSaving(ISaveContext context) {
+			// nothing to do
+		}
+
+		public void rollback(ISaveContext context) {
+			// nothing to do
+		}
+	}
 }
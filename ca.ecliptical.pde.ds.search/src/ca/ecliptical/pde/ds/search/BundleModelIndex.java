@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.pde.core.plugin.IPluginModelBase;
+import org.eclipse.pde.core.plugin.IPluginModelListener;
+import org.eclipse.pde.core.plugin.PluginModelDelta;
+import org.eclipse.pde.core.plugin.PluginRegistry;
+import org.eclipse.pde.internal.core.ClasspathUtilCore;
+
+/**
+ * Reverse index from search scope paths to plug-in models: workspace models by
+ * project path, and external models by the paths of their classpath entries
+ * (i.e., as they appear in the External Plug-in Search project). This lets searches
+ * go straight from the paths enclosed by their scope to the relevant bundles.
+ * <p>
+ * The index is built on first use and dropped whenever PDE reports any model change.
+ * </p>
+ */
+@SuppressWarnings("restriction")
+public class BundleModelIndex implements IPluginModelListener {
+
+	private static final Debug debug = Debug.getDebug("bundle-model-index"); //$NON-NLS-1$
+
+	private Index index;
+
+	/**
+	 * Returns the workspace model whose project has the given path.
+	 *
+	 * @return workspace model, or {@code null} if none
+	 */
+	public IPluginModelBase getWorkspaceModel(IPath projectPath) {
+		return getIndex().workspace.get(projectPath);
+	}
+
+	/**
+	 * Returns the external models with a classpath entry at the given path.
+	 *
+	 * @return external models (possibly empty)
+	 */
+	public List<IPluginModelBase> getExternalModels(IPath path) {
+		List<IPluginModelBase> models = getIndex().external.get(path);
+		return models == null ? Collections.<IPluginModelBase> emptyList() : models;
+	}
+
+	private synchronized Index getIndex() {
+		if (index == null) {
+			index = new Index();
+			if (debug.isDebugging())
+				debug.trace(String.format("Indexed %d workspace and %d external classpath path(s).", index.workspace.size(), index.external.size())); //$NON-NLS-1$
+		}
+
+		return index;
+	}
+
+	public synchronized void modelsChanged(PluginModelDelta delta) {
+		index = null;
+	}
+
+	private static class Index {
+
+		final HashMap<IPath, IPluginModelBase> workspace = new HashMap<IPath, IPluginModelBase>();
+
+		final HashMap<IPath, List<IPluginModelBase>> external = new HashMap<IPath, List<IPluginModelBase>>();
+
+		Index() {
+			for (IPluginModelBase model : PluginRegistry.getWorkspaceModels()) {
+				IResource resource = model.getUnderlyingResource();
+				if (resource != null)
+					workspace.put(resource.getProject().getFullPath(), model);
+			}
+
+			for (IPluginModelBase model : PluginRegistry.getExternalModels()) {
+				ArrayList<IClasspathEntry> cpEntries = new ArrayList<IClasspathEntry>();
+				ClasspathUtilCore.addLibraries(model, cpEntries);
+				for (IClasspathEntry cpEntry : cpEntries) {
+					List<IPluginModelBase> models = external.get(cpEntry.getPath());
+					if (models == null) {
+						models = new ArrayList<IPluginModelBase>(1);
+						external.put(cpEntry.getPath(), models);
+					}
+
+					if (!models.contains(model))
+						models.add(model);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.jdt.ui.search.ISearchRequestor;
+import org.eclipse.search.ui.text.Match;
+
+/**
+ * Runs per-bundle searches, either inline or on a bounded pool of worker threads
+ * shared by all searches (see {@link Activator#getSearchExecutor()}).
+ * <p>
+ * In parallel mode each bundle search collects its matches privately; they are
+ * handed to the actual requestor on the calling thread, in submission order, so
+ * results are the same as in sequential mode. Each submitted search accounts for
+ * one unit of work on the given progress monitor. Cancellation of the monitor is
+ * propagated to the workers, which observe it through their own monitors.
+ * Bundles submitted after the pool has been shut down (e.g., because the
+ * number of threads changed) are searched inline.
+ * </p>
+ */
+public class BundleSearchScheduler {
+
+	private static final long POLL_INTERVAL = 100L;
+
+	private final ISearchRequestor requestor;
+
+	private final IProgressMonitor monitor;
+
+	private final ExecutorService executor;
+
+	private final LinkedList<Future<List<Match>>> pending = new LinkedList<Future<List<Match>>>();
+
+	private volatile boolean canceled;
+
+	/**
+	 * Creates a new scheduler.
+	 *
+	 * @param executor worker threads to run searches on, or {@code null} to run them inline on the calling thread
+	 * @param requestor requestor to receive all matches
+	 * @param monitor progress monitor to report to (already begun)
+	 */
+	public BundleSearchScheduler(ExecutorService executor, ISearchRequestor requestor, IProgressMonitor monitor) {
+		this.executor = executor;
+		this.requestor = requestor;
+		this.monitor = monitor;
+	}
+
+	public boolean isParallel() {
+		return executor != null;
+	}
+
+	public void submit(final BundleSearch search) throws CoreException {
+		checkCanceled();
+		if (executor == null) {
+			search.run(requestor, new SubProgressMonitor(monitor, 1));
+			return;
+		}
+
+		Callable<List<Match>> task = new Callable<List<Match>>() {
+			public List<Match> call() throws Exception {
+				if (canceled)
+					throw new OperationCanceledException();
+
+				final ArrayList<Match> matches = new ArrayList<Match>();
+				search.run(new ISearchRequestor() {
+					public void reportMatch(Match match) {
+						matches.add(match);
+					}
+				}, new NullProgressMonitor() {
+					@Override
+					public boolean isCanceled() {
+						return canceled;
+					}
+				});
+
+				return matches;
+			}
+		};
+
+		Future<List<Match>> future;
+		try {
+			future = executor.submit(task);
+		} catch (RejectedExecutionException e) {
+			// the shared pool was replaced or shut down since this search began;
+			// report earlier bundles first, to keep matches in submission order
+			drain(true);
+			search.run(requestor, new SubProgressMonitor(monitor, 1));
+			return;
+		}
+
+		pending.add(future);
+
+		// report whatever is already done, without waiting
+		drain(false);
+	}
+
+	/**
+	 * Waits for all submitted searches to complete and reports their matches.
+	 */
+	public void join() throws CoreException {
+		drain(true);
+	}
+
+	/**
+	 * Cancels any outstanding searches; the worker threads themselves are shared,
+	 * and stay around for subsequent searches.
+	 */
+	public void dispose() {
+		if (!pending.isEmpty())
+			cancel();
+	}
+
+	private void drain(boolean wait) throws CoreException {
+		while (!pending.isEmpty()) {
+			Future<List<Match>> future = pending.getFirst();
+			if (!wait && !future.isDone())
+				return;
+
+			List<Match> matches = await(future);
+			pending.removeFirst();
+			for (Match match : matches) {
+				requestor.reportMatch(match);
+			}
+
+			monitor.worked(1);
+		}
+	}
+
+	private List<Match> await(Future<List<Match>> future) throws CoreException {
+		while (true) {
+			checkCanceled();
+			try {
+				return future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// check for cancellation and keep waiting
+			} catch (InterruptedException e) {
+				cancel();
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			} catch (ExecutionException e) {
+				cancel();
+				Throwable cause = e.getCause();
+				if (cause instanceof CoreException)
+					throw (CoreException) cause;
+
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+
+				if (cause instanceof Error)
+					throw (Error) cause;
+
+				throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Error searching bundle.", cause)); //$NON-NLS-1$
+			}
+		}
+	}
+
+	private void checkCanceled() {
+		if (monitor.isCanceled()) {
+			cancel();
+			throw new OperationCanceledException();
+		}
+	}
+
+	private void cancel() {
+		// workers are never interrupted -- Java model operations don't take well to that
+		canceled = true;
+		for (Future<List<Match>> future : pending) {
+			future.cancel(false);
+		}
+
+		pending.clear();
+	}
+
+	/**
+	 * Search of a single bundle.
+	 */
+	public interface BundleSearch {
+
+		/**
+		 * Searches the bundle.
+		 *
+		 * @param requestor requestor to report matches to
+		 * @param monitor progress monitor; not yet begun
+		 * @throws CoreException if the search fails
+		 */
+		void run(ISearchRequestor requestor, IProgressMonitor monitor) throws CoreException;
+	}
+}
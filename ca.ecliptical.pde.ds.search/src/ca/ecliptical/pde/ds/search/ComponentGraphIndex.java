@@ -0,0 +1,397 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.pde.core.plugin.IPluginModelBase;
+import org.eclipse.pde.core.plugin.IPluginModelListener;
+import org.eclipse.pde.core.plugin.ModelEntry;
+import org.eclipse.pde.core.plugin.PluginModelDelta;
+import org.eclipse.pde.core.plugin.PluginRegistry;
+import org.eclipse.pde.internal.core.ibundle.IBundlePluginModelBase;
+import org.eclipse.pde.internal.core.project.PDEProject;
+
+import ca.ecliptical.pde.ds.search.ExternalDescriptorCache.Descriptor;
+import ca.ecliptical.pde.ds.search.ExternalDescriptorCache.Stamp;
+import ca.ecliptical.pde.ds.search.core.BundleDescriptorSource;
+import ca.ecliptical.pde.ds.search.core.ComponentGraph;
+import ca.ecliptical.pde.ds.search.core.DescriptorExtractor;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+import ca.ecliptical.pde.ds.search.core.ManifestHeaders;
+import ca.ecliptical.pde.ds.search.core.PrebuiltIndex;
+import ca.ecliptical.pde.ds.search.core.ServiceComponentHeader;
+
+/**
+ * Keeps a {@link ComponentGraph} of all workspace and external (target platform)
+ * bundles current, so that questions like "which components provide or consume
+ * this service" can be answered without a search. Workspace bundles are
+ * identified by their project's path, external bundles by their install location.
+ * <p>
+ * The graph is built on first use. After that, only the bundles that changed are
+ * read again (the next time the graph is requested): workspace projects whose
+ * manifest or descriptors changed, and external bundles that were added, removed
+ * or modified. External descriptors are taken from, and added to, the
+ * {@link ExternalDescriptorCache}, or else from the {@link PrebuiltDescriptorIndex}.
+ * </p>
+ */
+@SuppressWarnings("restriction")
+public class ComponentGraphIndex implements IResourceChangeListener, IPluginModelListener {
+
+	private static final Debug debug = Debug.getDebug("component-graph"); //$NON-NLS-1$
+
+	private final ComponentGraph graph = new ComponentGraph();
+
+	private final DescriptorExtractor extractor = new DescriptorExtractor(null);
+
+	// serializes updates
+	private final Object updateLock = new Object();
+
+	// paths whose changes affect each loaded workspace bundle
+	private final HashMap<IProject, Watch> workspaceBundles = new HashMap<IProject, Watch>();
+
+	// stamps of loaded external bundles
+	private final HashMap<String, Stamp> externalBundles = new HashMap<String, Stamp>();
+
+	private final LinkedHashSet<IProject> staleProjects = new LinkedHashSet<IProject>();
+
+	private boolean reconcile = true;
+
+	/**
+	 * Returns the component graph, after bringing it up to date.
+	 *
+	 * @param monitor progress monitor
+	 * @return current component graph
+	 * @throws OperationCanceledException if canceled
+	 */
+	public ComponentGraph getGraph(IProgressMonitor monitor) {
+		synchronized (updateLock) {
+			update(monitor);
+		}
+
+		return graph;
+	}
+
+	private void update(IProgressMonitor monitor) {
+		boolean reconcile;
+		LinkedHashSet<IProject> projects;
+		synchronized (this) {
+			reconcile = this.reconcile;
+			this.reconcile = false;
+			projects = new LinkedHashSet<IProject>(staleProjects);
+			staleProjects.clear();
+		}
+
+		ArrayList<String> locations = new ArrayList<String>();
+		try {
+			if (reconcile)
+				reconcile(projects, locations);
+
+			if (projects.isEmpty() && locations.isEmpty())
+				return;
+
+			monitor.beginTask(Messages.ComponentGraphIndex_taskName, projects.size() + locations.size());
+			for (Iterator<IProject> i = projects.iterator(); i.hasNext();) {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+
+				loadWorkspaceBundle(i.next());
+				i.remove();
+				monitor.worked(1);
+			}
+
+			for (Iterator<String> i = locations.iterator(); i.hasNext();) {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+
+				loadExternalBundle(i.next());
+				i.remove();
+				monitor.worked(1);
+			}
+
+			if (debug.isDebugging())
+				debug.trace(String.format("Graph of %d bundle(s) and %d service(s).", graph.getBundles().size(), graph.getServices().size())); //$NON-NLS-1$
+		} finally {
+			monitor.done();
+
+			// leave whatever's left for next time
+			if (!projects.isEmpty() || !locations.isEmpty()) {
+				synchronized (this) {
+					staleProjects.addAll(projects);
+					if (!locations.isEmpty())
+						this.reconcile = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops bundles that no longer exist, and collects those that were added
+	 * (or, for external bundles, modified).
+	 */
+	private void reconcile(Set<IProject> projects, Collection<String> locations) {
+		HashSet<IProject> wsProjects = new HashSet<IProject>();
+		for (IPluginModelBase model : PluginRegistry.getWorkspaceModels()) {
+			IResource resource = model.getUnderlyingResource();
+			if (resource != null && model instanceof IBundlePluginModelBase)
+				wsProjects.add(resource.getProject());
+		}
+
+		HashSet<String> exLocations = new HashSet<String>();
+		for (IPluginModelBase model : PluginRegistry.getExternalModels()) {
+			String location = model.getInstallLocation();
+			if (location != null && model.isEnabled() && model.getBundleDescription() != null)
+				exLocations.add(location);
+		}
+
+		synchronized (this) {
+			for (Iterator<IProject> i = workspaceBundles.keySet().iterator(); i.hasNext();) {
+				IProject project = i.next();
+				if (!wsProjects.contains(project)) {
+					graph.removeBundle(getBundleId(project));
+					i.remove();
+				}
+			}
+
+			for (IProject project : wsProjects) {
+				if (!workspaceBundles.containsKey(project))
+					projects.add(project);
+			}
+
+			for (Iterator<String> i = externalBundles.keySet().iterator(); i.hasNext();) {
+				String location = i.next();
+				if (!exLocations.contains(location)) {
+					graph.removeBundle(location);
+					i.remove();
+				}
+			}
+
+			for (String location : exLocations) {
+				if (!ExternalDescriptorCache.getStamp(new File(location)).equals(externalBundles.get(location)))
+					locations.add(location);
+			}
+		}
+	}
+
+	private void loadWorkspaceBundle(IProject project) {
+		String bundleId = getBundleId(project);
+		IPluginModelBase model = PluginRegistry.findModel(project);
+		if (!project.isAccessible() || !(model instanceof IBundlePluginModelBase) || !model.isEnabled()) {
+			graph.removeBundle(bundleId);
+			synchronized (this) {
+				workspaceBundles.remove(project);
+			}
+
+			return;
+		}
+
+		WorkspaceDescriptorSource source = new WorkspaceDescriptorSource((IBundlePluginModelBase) model, project);
+		Watch watch = new Watch();
+		watch.files.add(PDEProject.getManifest(project).getFullPath());
+		Map<String, DescriptorInfo> descriptors;
+		try {
+			String header = source.getServiceComponentHeader();
+			if (header != null) {
+				for (String element : ServiceComponentHeader.getElements(header)) {
+					if (ServiceComponentHeader.isWildcard(element))
+						watch.folders.add(PDEProject.getBundleRelativeFolder(project, new Path(ServiceComponentHeader.getFolder(element))).getFullPath());
+					else
+						watch.files.add(PDEProject.getBundleRelativeFile(project, new Path(element)).getFullPath());
+				}
+			}
+
+			descriptors = extractor.extract(source);
+		} catch (IOException e) {
+			Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, String.format("Error reading component descriptors of project: %s", project.getName()), e)); //$NON-NLS-1$
+			descriptors = Collections.emptyMap();
+		}
+
+		for (String path : descriptors.keySet()) {
+			watch.files.add(PDEProject.getBundleRelativeFile(project, new Path(path)).getFullPath());
+		}
+
+		graph.setBundle(bundleId, descriptors);
+		synchronized (this) {
+			workspaceBundles.put(project, watch);
+		}
+	}
+
+	private void loadExternalBundle(String location) {
+		File bundleRoot = new File(location);
+		Stamp stamp = ExternalDescriptorCache.getStamp(bundleRoot);
+		ExternalDescriptorCache cache = Activator.getDefault().getExternalDescriptorCache();
+		Map<String, DescriptorInfo> descriptors = getCachedDescriptors(cache, location);
+		if (descriptors == null) {
+			BundleDescriptorSource source = new BundleDescriptorSource(bundleRoot);
+			try {
+				String[] headers = source.getManifestHeaders(ManifestHeaders.BUNDLE_SYMBOLIC_NAME, ManifestHeaders.BUNDLE_VERSION, ServiceComponentHeader.NAME);
+				String header = headers[2];
+				PrebuiltIndex.Bundle prebuilt = header == null ? null : Activator.getDefault().getPrebuiltDescriptorIndex().get(source, ManifestHeaders.getValue(headers[0]), headers[1], header);
+				descriptors = prebuilt == null ? extractor.extract(source) : prebuilt.getDescriptors();
+				cache.put(location, stamp, descriptors);
+				cache.putHeader(location, stamp, header);
+			} catch (IOException e) {
+				if (debug.isDebugging())
+					debug.trace(String.format("Error reading component descriptors of bundle: %s", location), e); //$NON-NLS-1$
+
+				descriptors = Collections.emptyMap();
+			} finally {
+				try {
+					source.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+
+		graph.setBundle(location, descriptors);
+		synchronized (this) {
+			externalBundles.put(location, stamp);
+		}
+	}
+
+	/**
+	 * Returns the cached descriptors of the given external bundle, or {@code null}
+	 * if not cached or not all of them were parsed.
+	 */
+	private Map<String, DescriptorInfo> getCachedDescriptors(ExternalDescriptorCache cache, String location) {
+		ExternalDescriptorCache.Entry entry = cache.get(location);
+		if (entry == null)
+			return null;
+
+		LinkedHashMap<String, DescriptorInfo> descriptors = new LinkedHashMap<String, DescriptorInfo>();
+		for (Descriptor descriptor : entry.getDescriptors()) {
+			if (!descriptor.isParsed())
+				return null;
+
+			descriptors.put(descriptor.getPath().toString(), descriptor.getInfo());
+		}
+
+		return descriptors;
+	}
+
+	private static String getBundleId(IProject project) {
+		return project.getFullPath().toString();
+	}
+
+	/**
+	 * Discards the graph; it will be rebuilt on next request.
+	 */
+	public synchronized void clear() {
+		graph.clear();
+		workspaceBundles.clear();
+		externalBundles.clear();
+		staleProjects.clear();
+		reconcile = true;
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null)
+			return;
+
+		synchronized (this) {
+			if (workspaceBundles.isEmpty())
+				return;
+
+			for (IResourceDelta projectDelta : delta.getAffectedChildren()) {
+				IResource resource = projectDelta.getResource();
+				if (resource.getType() != IResource.PROJECT)
+					continue;
+
+				IProject project = (IProject) resource;
+				Watch watch = workspaceBundles.get(project);
+				if (watch != null && !staleProjects.contains(project) && watch.isAffected(projectDelta)) {
+					staleProjects.add(project);
+					if (debug.isDebugging())
+						debug.trace(String.format("Project changed: %s", project.getName())); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+
+	public void modelsChanged(PluginModelDelta delta) {
+		synchronized (this) {
+			reconcile = true;
+			// the manifest may have been read before the model was updated
+			ModelEntry[] changed = delta.getChangedEntries();
+			if (changed != null) {
+				for (ModelEntry entry : changed) {
+					for (IPluginModelBase model : entry.getWorkspaceModels()) {
+						IResource resource = model.getUnderlyingResource();
+						if (resource != null && workspaceBundles.containsKey(resource.getProject()))
+							staleProjects.add(resource.getProject());
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Workspace paths whose changes affect a bundle's components.
+	 */
+	private static class Watch {
+
+		// manifest and descriptor files
+		final HashSet<IPath> files = new HashSet<IPath>();
+
+		// folders of wildcard descriptor paths
+		final HashSet<IPath> folders = new HashSet<IPath>();
+
+		boolean isAffected(IResourceDelta delta) {
+			IResource resource = delta.getResource();
+			switch (resource.getType()) {
+			case IResource.PROJECT:
+				if (delta.getKind() == IResourceDelta.REMOVED || (delta.getFlags() & IResourceDelta.OPEN) != 0)
+					return true;
+
+				break;
+			case IResource.FILE:
+				IPath path = resource.getFullPath();
+				if (delta.getKind() == IResourceDelta.ADDED || delta.getKind() == IResourceDelta.REMOVED)
+					return files.contains(path) || folders.contains(path.removeLastSegments(1));
+
+				return (delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0 && files.contains(path);
+			default:
+				break;
+			}
+
+			for (IResourceDelta child : delta.getAffectedChildren()) {
+				if (isAffected(child))
+					return true;
+			}
+
+			return false;
+		}
+	}
+}
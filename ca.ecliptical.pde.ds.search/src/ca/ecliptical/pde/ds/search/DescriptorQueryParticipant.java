@@ -10,17 +10,25 @@
  *******************************************************************************/
 package ca.ecliptical.pde.ds.search;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
 
 import org.eclipse.core.filebuffers.FileBuffers;
 import org.eclipse.core.filebuffers.ITextFileBuffer;
@@ -30,7 +38,6 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
-import org.eclipse.core.resources.IResourceVisitor;
 import org.eclipse.core.resources.IStorage;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
@@ -41,7 +48,6 @@ import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.jdt.core.Flags;
-import org.eclipse.jdt.core.IClasspathEntry;
 import org.eclipse.jdt.core.IJarEntryResource;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
@@ -59,20 +65,15 @@ import org.eclipse.jdt.ui.search.IQueryParticipant;
 import org.eclipse.jdt.ui.search.ISearchRequestor;
 import org.eclipse.jdt.ui.search.PatternQuerySpecification;
 import org.eclipse.jdt.ui.search.QuerySpecification;
-import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.osgi.service.resolver.BundleDescription;
-import org.eclipse.pde.core.IBaseModel;
 import org.eclipse.pde.core.plugin.IPluginModelBase;
-import org.eclipse.pde.core.plugin.PluginRegistry;
-import org.eclipse.pde.internal.core.ClasspathUtilCore;
 import org.eclipse.pde.internal.core.PDECore;
 import org.eclipse.pde.internal.core.SearchablePluginsManager;
 import org.eclipse.pde.internal.core.ibundle.IBundleModel;
 import org.eclipse.pde.internal.core.ibundle.IBundlePluginModelBase;
 import org.eclipse.pde.internal.core.project.PDEProject;
 import org.eclipse.pde.internal.core.text.IDocumentAttributeNode;
-import org.eclipse.pde.internal.core.text.IDocumentElementNode;
 import org.eclipse.pde.internal.core.util.ManifestUtils;
 import org.eclipse.pde.internal.ds.core.IDSComponent;
 import org.eclipse.pde.internal.ds.core.IDSConstants;
@@ -81,43 +82,218 @@ import org.eclipse.pde.internal.ds.core.IDSProvide;
 import org.eclipse.pde.internal.ds.core.IDSReference;
 import org.eclipse.pde.internal.ds.core.IDSService;
 import org.eclipse.pde.internal.ds.core.text.DSModel;
-import org.eclipse.pde.internal.ui.util.ModelModification;
-import org.eclipse.pde.internal.ui.util.PDEModelUtility;
 import org.eclipse.search.ui.text.Match;
-import org.osgi.framework.Filter;
-import org.osgi.framework.FrameworkUtil;
-import org.osgi.framework.InvalidSyntaxException;
+
+import ca.ecliptical.pde.ds.search.BundleSearchScheduler.BundleSearch;
+import ca.ecliptical.pde.ds.search.ExternalDescriptorCache.Descriptor;
+import ca.ecliptical.pde.ds.search.ExternalDescriptorCache.Stamp;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Attribute;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Reference;
+import ca.ecliptical.pde.ds.search.core.DescriptorMatcher;
+import ca.ecliptical.pde.ds.search.core.DescriptorPrefilter;
+import ca.ecliptical.pde.ds.search.core.DescriptorScanner;
+import ca.ecliptical.pde.ds.search.core.ElementMatcher;
+import ca.ecliptical.pde.ds.search.core.LifecycleMethodSelector;
+import ca.ecliptical.pde.ds.search.core.NamePattern;
+import ca.ecliptical.pde.ds.search.core.PrebuiltIndex;
+import ca.ecliptical.pde.ds.search.core.ServiceComponentHeader;
+import ca.ecliptical.pde.ds.search.core.TypeResolver;
 
 @SuppressWarnings("restriction")
 public class DescriptorQueryParticipant implements IQueryParticipant {
 
 	private static final Debug debug = Debug.getDebug("ds-query-participant"); //$NON-NLS-1$
 
-	private static final String SERVICE_COMPONENT_HEADER = "Service-Component"; //$NON-NLS-1$
+	private static final PerformanceEvent searchEvent = PerformanceEvent.getEvent("search"); //$NON-NLS-1$
+
+	private static final PerformanceEvent scopeEvent = PerformanceEvent.getEvent("scope"); //$NON-NLS-1$
+
+	private static final PerformanceEvent bundleEvent = PerformanceEvent.getEvent("bundle"); //$NON-NLS-1$
+
+	private static final PerformanceEvent headerEvent = PerformanceEvent.getEvent("header"); //$NON-NLS-1$
+
+	private static final PerformanceEvent readEvent = PerformanceEvent.getEvent("read-descriptor"); //$NON-NLS-1$
 
-	private static final String VOID_SIG = Signature.createTypeSignature("void", true); //$NON-NLS-1$
+	private static final PerformanceEvent parseEvent = PerformanceEvent.getEvent("parse-descriptor"); //$NON-NLS-1$
 
-	private static final String COMPONENT_CONTEXT_SIG = Signature.createTypeSignature("org.osgi.service.component.ComponentContext", true); //$NON-NLS-1$
+	private static final PerformanceEvent findTypeEvent = PerformanceEvent.getEvent("find-type"); //$NON-NLS-1$
 
-	private static final String BUNDLE_CONTEXT_SIG = Signature.createTypeSignature("org.osgi.framework.BundleContext", true); //$NON-NLS-1$
+	private static final PerformanceEvent lifecycleEvent = PerformanceEvent.getEvent("lifecycle-method"); //$NON-NLS-1$
 
-	private static final String MAP_SIG = Signature.createTypeSignature("java.util.Map", true); //$NON-NLS-1$
+	private static final PerformanceEvent reportEvent = PerformanceEvent.getEvent("report-match"); //$NON-NLS-1$
 
-	private static final String INT_SIG = Signature.createTypeSignature("int", true); //$NON-NLS-1$
+	private static final String ATTRIBUTE_REFERENCE_UPDATED = "updated"; //$NON-NLS-1$
 
-	private static final String INTEGER_SIG = Signature.createTypeSignature("java.lang.Integer", true); //$NON-NLS-1$
+	public void search(ISearchRequestor requestor, QuerySpecification query, IProgressMonitor monitor) throws CoreException {
+		long start = searchEvent.start();
+		try {
+			doSearch(Collections.singletonMap(query, requestor), monitor);
+		} finally {
+			searchEvent.end(start, Activator.PLUGIN_ID, query);
+		}
+	}
 
-	private static final String SERVICE_REFERENCE_SIG = Signature.createTypeSignature("org.osgi.framework.ServiceReference", true); //$NON-NLS-1$
+	/**
+	 * Searches for component descriptor references to the elements or patterns
+	 * of several queries at once. Each descriptor is read, parsed and resolved
+	 * only once, and matched against every query whose scope includes its
+	 * bundle; each match is reported to the requestor of the query it belongs to.
+	 *
+	 * @param queries element or pattern queries, mapped to the requestors to receive their matches
+	 * @param monitor progress monitor
+	 */
+	public void search(Map<? extends QuerySpecification, ? extends ISearchRequestor> queries, IProgressMonitor monitor) throws CoreException {
+		long start = searchEvent.start();
+		try {
+			doSearch(queries, monitor);
+		} finally {
+			if (searchEvent.isEnabled())
+				searchEvent.end(start, Activator.PLUGIN_ID, String.format("%d queries", queries.size())); //$NON-NLS-1$
+		}
+	}
 
-	private ISearchRequestor requestor;
+	private void doSearch(Map<? extends QuerySpecification, ? extends ISearchRequestor> queries, IProgressMonitor monitor) throws CoreException {
+		// go straight to the bundles in scope of each query
+		ArrayList<SearchTarget> targets = new ArrayList<SearchTarget>(queries.size());
+		BundleModelIndex modelIndex = Activator.getDefault().getBundleModelIndex();
+		LinkedHashMap<IPluginModelBase, BitSet> wsModels = new LinkedHashMap<IPluginModelBase, BitSet>();
+		LinkedHashMap<IPluginModelBase, BitSet> exModels = new LinkedHashMap<IPluginModelBase, BitSet>();
+		for (Map.Entry<? extends QuerySpecification, ? extends ISearchRequestor> entry : queries.entrySet()) {
+			QuerySpecification query = entry.getKey();
+			SearchTarget target = createTarget(query, entry.getValue());
+			if (target == null)
+				continue;
 
-	private IJavaElement searchElement;
+			int index = targets.size();
+			targets.add(target);
+			long scopeStart = scopeEvent.start();
+			int wsCount = 0;
+			int exCount = 0;
+			for (IPath path : query.getScope().enclosingProjectsAndJars()) {
+				IPluginModelBase model = modelIndex.getWorkspaceModel(path);
+				if (model != null && addTarget(wsModels, model, index))
+					++wsCount;
+
+				for (IPluginModelBase exModel : modelIndex.getExternalModels(path)) {
+					if (addTarget(exModels, exModel, index))
+						++exCount;
+				}
+			}
 
-	private SearchPatternDescriptor searchPattern;
+			if (scopeEvent.isEnabled())
+				scopeEvent.end(scopeStart, Activator.PLUGIN_ID, String.format("%d workspace and %d external bundle(s)", wsCount, exCount)); //$NON-NLS-1$
+		}
 
-	private int searchFor = -1;
+		if (wsModels.isEmpty() && exModels.isEmpty())
+			return;
 
-	public void search(ISearchRequestor requestor, QuerySpecification query, IProgressMonitor monitor) throws CoreException {
+		// bundles in scope of the same queries share a context
+		TypeResolutionCache typeCache = new TypeResolutionCache();
+		HashMap<BitSet, SearchContext> contexts = new HashMap<BitSet, SearchContext>();
+
+		monitor.beginTask(Messages.DescriptorQueryParticipant_taskName, wsModels.size() + exModels.size());
+		BundleSearchScheduler scheduler = new BundleSearchScheduler(Activator.getDefault().getSearchExecutor(), new TargetMatchRequestor(), monitor);
+		try {
+			// workspace models
+			for (Map.Entry<IPluginModelBase, BitSet> entry : wsModels.entrySet()) {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+
+				IPluginModelBase model = entry.getKey();
+				if (!model.isEnabled() || !(model instanceof IBundlePluginModelBase)) {
+					monitor.worked(1);
+					if (debug.isDebugging())
+						debug.trace(String.format("Non-bundle model: %s", model)); //$NON-NLS-1$
+
+					continue;
+				}
+
+				final IProject project = model.getUnderlyingResource().getProject();
+
+				// we can only search in Java bundle projects (for now)
+				if (!project.hasNature(JavaCore.NATURE_ID)) {
+					monitor.worked(1);
+					if (debug.isDebugging())
+						debug.trace(String.format("Non-Java project: %s", project.getName())); //$NON-NLS-1$
+
+					continue;
+				}
+
+				// the header comes from the shared read-only model, so it can be read by the (possibly concurrent) search itself
+				final IBundlePluginModelBase bundleModel = (IBundlePluginModelBase) model;
+				final SearchContext context = getContext(contexts, entry.getValue(), targets, typeCache);
+				scheduler.submit(new BundleSearch() {
+					public void run(ISearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
+						long start = bundleEvent.start();
+						try {
+							searchBundle(context, bundleModel, project, requestor, monitor);
+						} finally {
+							bundleEvent.end(start, project.getName(), project.getFullPath());
+						}
+					}
+				});
+			}
+
+			// external models
+			SearchablePluginsManager spm = PDECore.getDefault().getSearchablePluginsManager();
+			final IJavaProject javaProject = spm.getProxyProject();
+			if (javaProject == null || !javaProject.exists() || !javaProject.isOpen()) {
+				monitor.worked(exModels.size());
+				if (debug.isDebugging())
+					debug.trace("External Plug-in Search project inaccessible!"); //$NON-NLS-1$
+			} else {
+				for (Map.Entry<IPluginModelBase, BitSet> entry : exModels.entrySet()) {
+					if (monitor.isCanceled())
+						throw new OperationCanceledException();
+
+					final IPluginModelBase model = entry.getKey();
+					BundleDescription bd;
+					if (!model.isEnabled() || (bd = model.getBundleDescription()) == null) {
+						monitor.worked(1);
+						if (debug.isDebugging())
+							debug.trace(String.format("Non-bundle model: %s", model)); //$NON-NLS-1$
+
+						continue;
+					}
+
+					if (!spm.isInJavaSearch(bd.getSymbolicName())) {
+						monitor.worked(1);
+						if (debug.isDebugging())
+							debug.trace(String.format("Non-searchable external model: %s", bd.getSymbolicName())); //$NON-NLS-1$
+
+						continue;
+					}
+
+					final SearchContext context = getContext(contexts, entry.getValue(), targets, typeCache);
+					scheduler.submit(new BundleSearch() {
+						public void run(ISearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
+							long start = bundleEvent.start();
+							try {
+								searchBundle(context, model, javaProject, requestor, monitor);
+							} finally {
+								bundleEvent.end(start, model.getBundleDescription().getSymbolicName(), model.getInstallLocation());
+							}
+						}
+					});
+				}
+			}
+
+			scheduler.join();
+		} finally {
+			scheduler.dispose();
+			monitor.done();
+
+			if (debug.isDebugging())
+				debug.trace(String.format("Type resolution cache: %d hit(s), %d miss(es).", typeCache.getHits(), typeCache.getMisses())); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Creates the search target of the given query, or returns {@code null}
+	 * if there's nothing to search for.
+	 */
+	private SearchTarget createTarget(QuerySpecification query, ISearchRequestor requestor) {
 		if (debug.isDebugging())
 			debug.trace(String.format("Query: %s", query)); //$NON-NLS-1$
 
@@ -127,10 +303,13 @@ public class DescriptorQueryParticipant implements IQueryParticipant {
 		case IJavaSearchConstants.ALL_OCCURRENCES:
 			break;
 		default:
-			return;
+			return null;
 		}
 
 		// we only look for types and methods
+		IJavaElement searchElement = null;
+		SearchPatternDescriptor searchPattern = null;
+		int searchFor = -1;
 		if (query instanceof ElementQuerySpecification) {
 			searchElement = ((ElementQuerySpecification) query).getElement();
 			switch (searchElement.getElementType()) {
@@ -138,7 +317,7 @@ public class DescriptorQueryParticipant implements IQueryParticipant {
 			case IJavaElement.METHOD:
 				break;
 			default:
-				return;
+				return null;
 			}
 		} else {
 			String pattern = ((PatternQuerySpecification) query).getPattern();
@@ -159,7 +338,7 @@ public class DescriptorQueryParticipant implements IQueryParticipant {
 			case IJavaSearchConstants.INTERFACE_AND_ANNOTATION:
 				break;
 			default:
-				return;
+				return null;
 			}
 
 			// searchPattern = PatternConstructor.createPattern(pattern, ((PatternQuerySpecification) query).isCaseSensitive());
@@ -170,154 +349,232 @@ public class DescriptorQueryParticipant implements IQueryParticipant {
 			searchPattern = new SearchPatternDescriptor(pattern, matchMode, ignoreMethodParams);
 		}
 
-		HashSet<IPath> scope = new HashSet<IPath>();
-		for (IPath path : query.getScope().enclosingProjectsAndJars()) {
-			scope.add(path);
-		}
-
-		if (scope.isEmpty())
-			return;
-
-		this.requestor = requestor;
+		return new SearchTarget(searchElement, searchPattern, searchFor, requestor);
+	}
 
-		// look through all active bundles
-		IPluginModelBase[] wsModels = PluginRegistry.getWorkspaceModels();
-		IPluginModelBase[] exModels = PluginRegistry.getExternalModels();
-		monitor.beginTask(Messages.DescriptorQueryParticipant_taskName, wsModels.length + exModels.length);
-		try {
-			// workspace models
-			for (IPluginModelBase model : wsModels) {
-				if (monitor.isCanceled())
-					throw new OperationCanceledException();
+	private boolean addTarget(Map<IPluginModelBase, BitSet> models, IPluginModelBase model, int target) {
+		BitSet targets = models.get(model);
+		if (targets == null) {
+			targets = new BitSet();
+			models.put(model, targets);
+		} else if (targets.get(target)) {
+			return false;
+		}
 
-				if (!model.isEnabled() || !(model instanceof IBundlePluginModelBase)) {
-					monitor.worked(1);
-					if (debug.isDebugging())
-						debug.trace(String.format("Non-bundle model: %s", model)); //$NON-NLS-1$
+		targets.set(target);
+		return true;
+	}
 
-					continue;
-				}
+	private SearchContext getContext(Map<BitSet, SearchContext> contexts, BitSet targetSet, List<SearchTarget> targets, TypeResolutionCache typeCache) {
+		SearchContext context = contexts.get(targetSet);
+		if (context == null) {
+			ArrayList<SearchTarget> selected = new ArrayList<SearchTarget>(targetSet.cardinality());
+			for (int i = targetSet.nextSetBit(0); i >= 0; i = targetSet.nextSetBit(i + 1)) {
+				selected.add(targets.get(i));
+			}
 
-				IProject project = model.getUnderlyingResource().getProject();
-				if (!scope.contains(project.getFullPath())) {
-					monitor.worked(1);
-					if (debug.isDebugging())
-						debug.trace(String.format("Project out of scope: %s", project.getName())); //$NON-NLS-1$
+			context = new SearchContext(selected, typeCache);
+			contexts.put(targetSet, context);
+		}
 
-					continue;
-				}
+		return context;
+	}
 
-				// we can only search in Java bundle projects (for now)
-				if (!project.hasNature(JavaCore.NATURE_ID)) {
-					monitor.worked(1);
-					if (debug.isDebugging())
-						debug.trace(String.format("Non-Java project: %s", project.getName())); //$NON-NLS-1$
+	private int getMatchMode(String pattern) {
+		if (pattern.indexOf('*') != -1 || pattern.indexOf('?') != -1)
+			return SearchPattern.R_PATTERN_MATCH;
 
-					continue;
-				}
+		if (SearchPattern.validateMatchRule(pattern, SearchPattern.R_CAMELCASE_MATCH) == SearchPattern.R_CAMELCASE_MATCH)
+			return SearchPattern.R_CAMELCASE_MATCH;
 
-				PDEModelUtility.modifyModel(new ModelModification(project) {
-					@Override
-					protected void modifyModel(IBaseModel model, IProgressMonitor monitor) throws CoreException {
-						if (model instanceof IBundlePluginModelBase)
-							searchBundle((IBundlePluginModelBase) model, monitor);
-					}
-				}, new SubProgressMonitor(monitor, 1));
-			}
+		return SearchPattern.R_EXACT_MATCH;
+	}
 
-			// external models
-			SearchablePluginsManager spm = PDECore.getDefault().getSearchablePluginsManager();
-			IJavaProject javaProject = spm.getProxyProject();
-			if (javaProject == null || !javaProject.exists() || !javaProject.isOpen()) {
-				monitor.worked(exModels.length);
-				if (debug.isDebugging())
-					debug.trace("External Plug-in Search project inaccessible!"); //$NON-NLS-1$
+	/**
+	 * Returns the lower-case simple type or method names that any matching
+	 * descriptor must refer to, or {@code null} if that can't be determined.
+	 */
+	private static Set<String> getSearchTokens(IJavaElement searchElement, SearchPatternDescriptor searchPattern) {
+		if (searchElement != null)
+			return Collections.singleton(DescriptorInfo.toLowerCase(searchElement.getElementName()));
 
-				return;
-			}
+		// only exact patterns name what they match
+		if ((searchPattern.getMatchRule() & ~SearchPattern.R_CASE_SENSITIVE) != SearchPattern.R_EXACT_MATCH)
+			return null;
 
-			for (IPluginModelBase model : exModels) {
-				if (monitor.isCanceled())
-					throw new OperationCanceledException();
+		String name = searchPattern.getPattern();
+		int paren = name.indexOf('(');
+		if (paren != -1)
+			name = name.substring(0, paren);
 
-				BundleDescription bd;
-				if (!model.isEnabled() || (bd = model.getBundleDescription()) == null) {
-					monitor.worked(1);
-					if (debug.isDebugging())
-						debug.trace(String.format("Non-bundle model: %s", model)); //$NON-NLS-1$
+		name = DescriptorInfo.getSimpleName(name);
+		if (name.length() == 0)
+			return null;
 
-					continue;
-				}
+		return Collections.singleton(DescriptorInfo.toLowerCase(name));
+	}
 
-				// check scope
-				ArrayList<IClasspathEntry> cpEntries = new ArrayList<IClasspathEntry>();
-				ClasspathUtilCore.addLibraries(model, cpEntries);
-				ArrayList<IPath> cpEntryPaths = new ArrayList<IPath>(cpEntries.size());
-				for (IClasspathEntry cpEntry : cpEntries) {
-					cpEntryPaths.add(cpEntry.getPath());
+	/**
+	 * Returns the literal text that every matching descriptor must contain, for
+	 * prefiltering descriptor contents, or {@code null} if there's none; see
+	 * {@link #isPrefilterCaseSensitive(SearchPatternDescriptor)}.
+	 */
+	private static String getPrefilterToken(IJavaElement searchElement, SearchPatternDescriptor searchPattern, int searchFor) {
+		String name;
+		boolean caseSensitive;
+		boolean prefix;
+		boolean methods;
+		if (searchElement != null) {
+			name = searchElement.getElementName();
+			caseSensitive = true;
+			prefix = false;
+			methods = searchElement.getElementType() == IJavaElement.METHOD;
+		} else {
+			name = searchPattern.getPattern();
+			int paren = name.indexOf('(');
+			if (paren != -1)
+				name = name.substring(0, paren);
+
+			name = DescriptorInfo.getSimpleName(name);
+			switch (searchPattern.getMatchRule() & ~SearchPattern.R_CASE_SENSITIVE) {
+			case SearchPattern.R_EXACT_MATCH:
+				caseSensitive = (searchPattern.getMatchRule() & SearchPattern.R_CASE_SENSITIVE) != 0;
+				prefix = false;
+				break;
+			case SearchPattern.R_CAMELCASE_MATCH:
+				// the first camel case hump must appear verbatim; JDT falls back to case-insensitive prefix matching
+				int end = 1;
+				while (end < name.length() && Character.isLowerCase(name.charAt(end))) {
+					++end;
 				}
 
-				cpEntryPaths.retainAll(scope);
-				if (cpEntryPaths.isEmpty()) {
-					monitor.worked(1);
-					if (debug.isDebugging())
-						debug.trace(String.format("External bundle out of scope: %s", model.getInstallLocation())); //$NON-NLS-1$
+				name = name.substring(0, Math.min(end, name.length()));
+				caseSensitive = false;
+				prefix = true;
+				break;
+			default:
+				// wildcards could match anything
+				return null;
+			}
 
-					continue;
-				}
+			methods = searchFor == IJavaSearchConstants.METHOD || searchFor == IJavaSearchConstants.UNKNOWN;
+		}
 
-				if (!spm.isInJavaSearch(bd.getSymbolicName())) {
-					monitor.worked(1);
-					if (debug.isDebugging())
-						debug.trace(String.format("Non-searchable external model: %s", bd.getSymbolicName())); //$NON-NLS-1$
+		if (name.length() == 0)
+			return null;
 
-					continue;
-				}
+		// implicit lifecycle methods aren't named in the descriptor
+		if (methods && (matchesName(name, DescriptorInfo.DEFAULT_ACTIVATE, caseSensitive, prefix) || matchesName(name, DescriptorInfo.DEFAULT_DEACTIVATE, caseSensitive, prefix)))
+			return null;
 
-				searchBundle(model, javaProject, new SubProgressMonitor(monitor, 1));
-			}
-		} finally {
-			monitor.done();
-		}
+		return name;
 	}
 
-	private int getMatchMode(String pattern) {
-		if (pattern.indexOf('*') != -1 || pattern.indexOf('?') != -1)
-			return SearchPattern.R_PATTERN_MATCH;
+	/**
+	 * Tests whether the prefilter token of the given pattern must appear exactly,
+	 * rather than ignoring case; element tokens always must.
+	 */
+	private static boolean isPrefilterCaseSensitive(SearchPatternDescriptor searchPattern) {
+		if (searchPattern == null)
+			return true;
 
-		if (SearchPattern.validateMatchRule(pattern, SearchPattern.R_CAMELCASE_MATCH) == SearchPattern.R_CAMELCASE_MATCH)
-			return SearchPattern.R_CAMELCASE_MATCH;
+		int matchRule = searchPattern.getMatchRule();
+		return (matchRule & ~SearchPattern.R_CASE_SENSITIVE) == SearchPattern.R_EXACT_MATCH && (matchRule & SearchPattern.R_CASE_SENSITIVE) != 0;
+	}
 
-		return SearchPattern.R_EXACT_MATCH;
+	private static boolean matchesName(String pattern, String name, boolean caseSensitive, boolean prefix) {
+		if (!caseSensitive) {
+			pattern = DescriptorInfo.toLowerCase(pattern);
+			name = DescriptorInfo.toLowerCase(name);
+		}
+
+		return prefix ? name.startsWith(pattern) : name.equals(pattern);
 	}
 
-	private void searchBundle(IBundlePluginModelBase model, IProgressMonitor monitor) throws CoreException {
-		IBundleModel bundleModel = model.getBundleModel();
-		if (bundleModel == null) {
-			if (debug.isDebugging())
-				debug.trace(String.format("No bundle model found: %s", model)); //$NON-NLS-1$
+	private static DescriptorMatcher<IType, IMethod, JavaModelException> createMatcher(IJavaElement searchElement, SearchPatternDescriptor searchPattern, int searchFor) {
+		boolean types = searchElement != null && searchElement.getElementType() == IJavaElement.TYPE;
+		boolean implementations = types
+				|| searchFor == IJavaSearchConstants.TYPE
+				|| searchFor == IJavaSearchConstants.CLASS
+				|| searchFor == IJavaSearchConstants.CLASS_AND_INTERFACE
+				|| searchFor == IJavaSearchConstants.CLASS_AND_ENUM
+				|| searchFor == IJavaSearchConstants.UNKNOWN;
+		boolean interfaces = implementations
+				|| searchFor == IJavaSearchConstants.INTERFACE
+				|| searchFor == IJavaSearchConstants.INTERFACE_AND_ANNOTATION;
+		boolean methods = (searchElement != null && searchElement.getElementType() == IJavaElement.METHOD)
+				|| searchFor == IJavaSearchConstants.METHOD
+				|| searchFor == IJavaSearchConstants.UNKNOWN;
+		return new DescriptorMatcher<IType, IMethod, JavaModelException>(new QueryElementMatcher(searchElement, searchPattern), implementations, interfaces, methods);
+	}
 
-			return;
+	/**
+	 * Returns the Service-Component header of the given workspace bundle; see
+	 * {@link WorkspaceDescriptorSource#getServiceComponentHeader()}.
+	 */
+	static String getServiceComponentHeader(IBundlePluginModelBase model, IProject project) {
+		String header;
+		try {
+			header = new WorkspaceDescriptorSource(model, project).getServiceComponentHeader();
+		} catch (IOException e) {
+			Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, String.format("Error reading bundle manifest: %s", project.getFullPath()), e)); //$NON-NLS-1$
+			return null;
 		}
 
-		String header = bundleModel.getBundle().getHeader(SERVICE_COMPONENT_HEADER);
 		if (header == null) {
 			if (debug.isDebugging())
-				debug.trace(String.format("No Service-Component header in bundle: %s", model.getUnderlyingResource().getFullPath())); //$NON-NLS-1$
+				debug.trace(String.format("No Service-Component header in bundle: %s", project.getFullPath())); //$NON-NLS-1$
+		}
 
+		return header;
+	}
+
+	private void searchBundle(SearchContext context, IBundlePluginModelBase model, IProject project, ISearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
+		long headerStart = headerEvent.start();
+		String header = getServiceComponentHeader(model, project);
+		headerEvent.end(headerStart, project.getName(), header);
+		if (header == null)
 			return;
+
+		WorkspaceDescriptorIndex index = Activator.getDefault().getDescriptorIndex();
+		IFile[] files = index.getDescriptorFiles(project, header);
+		if (files == null) {
+			Collection<IFile> resolved = resolveDescriptorFiles(project, header);
+			index.putDescriptorFiles(project, header, resolved);
+			files = resolved.toArray(new IFile[resolved.size()]);
 		}
 
-		IProject project = model.getUnderlyingResource().getProject();
-		final HashSet<IFile> files = new HashSet<IFile>();
-		String[] elements = header.split("\\s*,\\s*"); //$NON-NLS-1$
-		for (String element : elements) {
-			if (element.length() == 0)
-				continue;
+		IJavaProject javaProject = JavaCore.create(project);
+
+		// process each descriptor file
+		monitor.beginTask(project.getName(), files.length);
+		try {
+			for (IFile file : files) {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+
+				if (context.indexCandidates != null && !context.indexCandidates.contains(file.getFullPath()) && !isDirty(file) && index.isIndexed(file)) {
+					monitor.worked(1);
+					continue;
+				}
+
+				searchFile(context, file, index, javaProject, requestor, new SubProgressMonitor(monitor, 1));
+			}
+		} finally {
+			monitor.done();
+		}
+	}
 
+	/**
+	 * Resolves the descriptor files listed in the given workspace bundle's
+	 * Service-Component header, including those matched by wildcard paths.
+	 */
+	static Collection<IFile> resolveDescriptorFiles(IProject project, String header) throws CoreException {
+		LinkedHashSet<IFile> files = new LinkedHashSet<IFile>();
+		for (String element : ServiceComponentHeader.getElements(header)) {
 			IPath path = new Path(element);
 			String lastSegment = path.lastSegment();
-			if (lastSegment.indexOf('*') >= 0) {
+			if (ServiceComponentHeader.isWildcard(element)) {
 				// wildcard path; get all entries in directory
 				IPath folderPath = path.removeLastSegments(1);
 				IFolder folder = PDEProject.getBundleRelativeFolder(project, folderPath);
@@ -328,178 +585,405 @@ public class DescriptorQueryParticipant implements IQueryParticipant {
 					continue;
 				}
 
-				final Filter filter;
-				try {
-					filter = FrameworkUtil.createFilter("(filename=" + sanitizeFilterValue(lastSegment) + ")"); //$NON-NLS-1$ //$NON-NLS-2$
-				} catch (InvalidSyntaxException e) {
-					// ignore
-					continue;
+				// like SCR's findEntries(path, pattern, false), wildcards only
+				// match files directly in the folder
+				for (IResource member : folder.members()) {
+					if (member.getType() == IResource.FILE && ServiceComponentHeader.matches(lastSegment, member.getName()))
+						files.add((IFile) member);
 				}
-
-				folder.accept(new IResourceVisitor() {
-					public boolean visit(IResource resource) throws CoreException {
-						if (resource.getType() == IResource.FILE) {
-							if (filter.matches(Collections.singletonMap("filename", resource.getName()))) //$NON-NLS-1$
-								files.add((IFile) resource);
-
-							return false;
-						}
-
-						return true;
-					}
-				});
 			} else {
 				files.add(PDEProject.getBundleRelativeFile(project, new Path(element)));
 			}
 		}
 
-		IJavaProject javaProject = JavaCore.create(project);
-
-		// process each descriptor file
-		monitor.beginTask(project.getName(), files.size());
-		try {
-			for (IFile file : files) {
-				if (monitor.isCanceled())
-					throw new OperationCanceledException();
-
-				searchFile(file, model, javaProject, new SubProgressMonitor(monitor, 1));
-			}
-		} finally {
-			monitor.done();
-		}
+		return files;
 	}
 
-	private String sanitizeFilterValue(String value) {
-		return value.replace("\\", "\\\\").replace("(", "\\(").replace(")", "\\)"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+	private boolean isDirty(IFile file) {
+		ITextFileBuffer buf = FileBuffers.getTextFileBufferManager().getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
+		return buf != null && buf.isDirty();
 	}
 
-	private void searchFile(IFile file, IPluginModelBase model, IJavaProject javaProject, IProgressMonitor monitor) throws CoreException {
+	private void searchFile(SearchContext context, IFile file, WorkspaceDescriptorIndex index, IJavaProject javaProject, ISearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
 		monitor.subTask(file.getName());
+		String bundleName = file.getProject().getName();
 
+		// unsaved changes are never indexed
 		ITextFileBufferManager manager = FileBuffers.getTextFileBufferManager();
+		ITextFileBuffer openBuf = manager.getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
+		boolean dirty = openBuf != null && openBuf.isDirty();
+		if (!dirty && index.isIndexed(file)) {
+			DescriptorInfo info = index.getDescriptor(file);
+			if (info != null)
+				searchDescriptor(context, info, bundleName, javaProject, file, requestor, monitor);
+
+			return;
+		}
+
+		// only descriptors open in an editor need to go through their file buffer
+		if (openBuf == null && searchUnopenedFile(context, file, bundleName, index, javaProject, requestor, monitor))
+			return;
+
+		if (!dirty && !acceptDescriptor(context, file, bundleName)) {
+			if (debug.isDebugging())
+				debug.trace(String.format("Descriptor ruled out by prefilter: %s", file.getFullPath())); //$NON-NLS-1$
+
+			return;
+		}
+
 		manager.connect(file.getFullPath(), LocationKind.IFILE, null);
 		DSModel dsModel = null;
 		try {
 			ITextFileBuffer buf = manager.getTextFileBuffer(file.getFullPath(), LocationKind.IFILE);
 			if (buf != null) {
+				long stamp = file.getModificationStamp();
 				IDocument doc = buf.getDocument();
 				dsModel = new DSModel(doc, false);
 				dsModel.setUnderlyingResource(file);
 				dsModel.setCharset(file.getCharset());
+				long parseStart = parseEvent.start();
 				dsModel.load();
 
-				searchModel(dsModel, javaProject, file, monitor);
+				DescriptorInfo info = createDescriptorInfo(dsModel);
+				parseEvent.end(parseStart, bundleName, file.getFullPath());
+				if (!dirty && !buf.isDirty())
+					index.putDescriptor(file, stamp, info);
+
+				if (info != null)
+					searchDescriptor(context, info, bundleName, javaProject, file, requestor, monitor);
+			}
+		} finally {
+			if (dsModel != null)
+				dsModel.dispose();
+
+			manager.disconnect(file.getFullPath(), LocationKind.IFILE, null);
+		}
+	}
+
+	/**
+	 * Reads and scans a workspace descriptor that isn't open in an editor straight
+	 * from its contents, in its encoding, and indexes the result.
+	 *
+	 * @return {@code false} if the descriptor's encoding isn't supported
+	 */
+	private boolean searchUnopenedFile(SearchContext context, IFile file, String bundleName, WorkspaceDescriptorIndex index, IJavaProject javaProject, ISearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
+		String charsetName = file.getCharset();
+		Charset charset;
+		try {
+			charset = Charset.forName(charsetName);
+		} catch (IllegalArgumentException e) {
+			// illegal or unsupported
+			return false;
+		}
+
+		long stamp = file.getModificationStamp();
+		DescriptorScanner scanner = DescriptorScanner.getDefault();
+		try {
+			if (isAsciiCompatible(charsetName)) {
+				if (!readDescriptor(context, file, bundleName, scanner)) {
+					if (debug.isDebugging())
+						debug.trace(String.format("Descriptor ruled out by prefilter: %s", file.getFullPath())); //$NON-NLS-1$
+
+					return true;
+				}
+			} else {
+				readContents(file, bundleName, scanner);
+			}
+		} catch (IOException e) {
+			Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, String.format("Error loading component descriptor: %s", file.getFullPath()), e)); //$NON-NLS-1$
+			return true;
+		}
+
+		long start = parseEvent.start();
+		DescriptorInfo info = scanner.scan(charset);
+		parseEvent.end(start, bundleName, file.getFullPath());
+		if (info == null && debug.isDebugging())
+			debug.trace(String.format("No component definition found in file: %s", file.getFullPath())); //$NON-NLS-1$
+
+		index.putDescriptor(file, stamp, info);
+		if (info != null)
+			searchDescriptor(context, info, bundleName, javaProject, file, requestor, monitor);
+
+		return true;
+	}
+
+	/**
+	 * Tests the raw contents of the given workspace descriptor against the prefilter;
+	 * files in encodings that aren't ASCII-compatible are always accepted.
+	 */
+	private boolean acceptDescriptor(SearchContext context, IFile file, String bundleName) throws CoreException {
+		if (context.prefilter == null)
+			return true;
+
+		if (!isAsciiCompatible(file.getCharset()))
+			return true;
+
+		try {
+			return readDescriptor(context, file, bundleName, DescriptorScanner.getDefault());
+		} catch (IOException e) {
+			// let the regular path deal with it
+			return true;
+		}
+	}
+
+	/**
+	 * Tests whether the given encoding represents ASCII characters as single
+	 * ASCII bytes, i.e., whether descriptor contents can be prefiltered as bytes.
+	 */
+	private boolean isAsciiCompatible(String charsetName) {
+		// independent of the locale, e.g., "iso" doesn't upper-case to "ISO" in Turkish
+		String charset = charsetName.toUpperCase(Locale.ENGLISH);
+		return charset.equals("UTF-8") || charset.equals("US-ASCII") || charset.startsWith("ISO-8859-"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	private void searchBundle(SearchContext context, final IPluginModelBase model, IJavaProject javaProject, ISearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
+		String location = model.getInstallLocation();
+		File bundleRoot = new File(location);
+		IPackageFragmentRoot packageRoot = javaProject.getPackageFragmentRoot(bundleRoot.getAbsolutePath());
+		String bundleName = model.getBundleDescription().getSymbolicName();
+		ExternalDescriptorCache cache = Activator.getDefault().getExternalDescriptorCache();
+		Stamp stamp = ExternalDescriptorCache.getStamp(bundleRoot);
+		long headerStart = headerEvent.start();
+		String header = getServiceComponentHeader(model, bundleRoot, stamp, cache);
+		headerEvent.end(headerStart, bundleName, header);
+		if (header == null) {
+			if (debug.isDebugging())
+				debug.trace(String.format("No Service-Component header in bundle: %s", location)); //$NON-NLS-1$
+
+			return;
+		}
+
+		ExternalDescriptorCache.Entry entry = cache.get(location);
+		if (entry != null) {
+			if (context.searchTokens != null && !cache.isCandidate(location, context.searchTokens)) {
+				if (debug.isDebugging())
+					debug.trace(String.format("Cached bundle ruled out by index: %s", location)); //$NON-NLS-1$
+
+				return;
+			}
+
+			searchCachedBundle(context, bundleName, cache, entry, bundleRoot, packageRoot, javaProject, requestor, monitor);
+			return;
+		}
+
+		Collection<IStorage> files = resolveDescriptorFiles(bundleRoot, packageRoot, header);
+
+		// process each descriptor file
+		ArrayList<Descriptor> descriptors = new ArrayList<Descriptor>(files.size());
+		boolean complete = true;
+		monitor.beginTask(bundleName, files.size());
+		try {
+			for (IStorage file : files) {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+
+				IPath path = file.getFullPath().makeRelative();
+				Stamp descriptorStamp = ExternalDescriptorCache.getDescriptorStamp(bundleRoot, path);
+				DescriptorScanner scanner = DescriptorScanner.getDefault();
+				try {
+					if (!readDescriptor(context, file, bundleName, scanner)) {
+						descriptors.add(new Descriptor(path, descriptorStamp, false, null));
+						monitor.worked(1);
+						continue;
+					}
+				} catch (IOException e) {
+					Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, String.format("Error loading component descriptor from URL: %s", file), e)); //$NON-NLS-1$
+					complete = false;
+					monitor.worked(1);
+					continue;
+				}
+
+				DescriptorInfo info = scanDescriptor(file, bundleName, scanner);
+				descriptors.add(new Descriptor(path, descriptorStamp, true, info));
+				if (info != null)
+					searchDescriptor(context, info, bundleName, javaProject, file, requestor, new SubProgressMonitor(monitor, 1));
+				else
+					monitor.worked(1);
+			}
+		} finally {
+			monitor.done();
+		}
+
+		if (complete)
+			cache.put(location, stamp, descriptors);
+	}
+
+	/**
+	 * Returns the Service-Component header of the given external bundle,
+	 * from the cache if current. Bundles with a header that are found in the
+	 * prebuilt index have all their descriptor facts cached along with it.
+	 */
+	static String getServiceComponentHeader(IPluginModelBase model, File bundleRoot, Stamp stamp, ExternalDescriptorCache cache) throws CoreException {
+		String location = model.getInstallLocation();
+		ExternalDescriptorCache.Header cached = cache.getHeader(location, stamp);
+		if (cached != null)
+			return cached.getValue();
+
+		String header;
+		IBundleModel bundleModel;
+		if (model instanceof IBundlePluginModelBase && (bundleModel = ((IBundlePluginModelBase) model).getBundleModel()) != null) {
+			header = bundleModel.getBundle().getHeader(ServiceComponentHeader.NAME);
+		} else {
+			// note: there's no getBundleDescription().getBundle() so we have to parse the manifest ourselves
+			Map<String, String> headers = ManifestUtils.loadManifest(bundleRoot);
+			header = headers.get(ServiceComponentHeader.NAME);
+		}
+
+		// bundles without components needn't be looked up at all
+		BundleDescription bd;
+		if (header != null && (bd = model.getBundleDescription()) != null) {
+			PrebuiltIndex.Bundle prebuilt = Activator.getDefault().getPrebuiltDescriptorIndex().get(bundleRoot, bd.getSymbolicName(), bd.getVersion().toString(), header);
+			if (prebuilt != null)
+				cache.put(location, stamp, prebuilt.getDescriptors());
+		}
+
+		cache.putHeader(location, stamp, header);
+		return header;
+	}
+
+	private void searchCachedBundle(SearchContext context, String bundleName, ExternalDescriptorCache cache, ExternalDescriptorCache.Entry entry, File bundleRoot, IPackageFragmentRoot packageRoot, IJavaProject javaProject, ISearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
+		Descriptor[] descriptors = entry.getDescriptors();
+		monitor.beginTask(bundleName, descriptors.length);
+		try {
+			for (int i = 0; i < descriptors.length; ++i) {
+				if (monitor.isCanceled())
+					throw new OperationCanceledException();
+
+				Descriptor descriptor = descriptors[i];
+				if (!descriptor.isParsed()) {
+					searchUnparsedDescriptor(context, bundleName, cache, entry, i, descriptor, bundleRoot, packageRoot, javaProject, requestor, new SubProgressMonitor(monitor, 1));
+					continue;
+				}
+
+				DescriptorInfo info = descriptor.getInfo();
+				if (info == null) {
+					monitor.worked(1);
+					continue;
+				}
+
+				Map<SearchTarget, List<Attribute>> matches = matchDescriptor(context, info, bundleName, javaProject, new SubProgressMonitor(monitor, 1));
+				if (matches.isEmpty())
+					continue;
+
+				// only look up the actual file if there's something to report
+				IStorage file = createDescriptorFile(bundleRoot, packageRoot, descriptor.getPath());
+				if (file == null)
+					continue;
+
+				reportMatches(requestor, bundleName, matches, file);
 			}
 		} finally {
-			if (dsModel != null)
-				dsModel.dispose();
-
-			manager.disconnect(file.getFullPath(), LocationKind.IFILE, null);
+			monitor.done();
 		}
 	}
 
-	private void searchBundle(final IPluginModelBase model, IJavaProject javaProject, IProgressMonitor monitor) throws CoreException {
-		// note: there's no getBundleDescription().getBundle() so we have to parse the manifest ourselves
-		Map<String, String> headers = ManifestUtils.loadManifest(new File(model.getInstallLocation()));
-		String header = headers.get(SERVICE_COMPONENT_HEADER);
-		if (header == null) {
-			if (debug.isDebugging())
-				debug.trace(String.format("No Service-Component header in bundle: %s", model.getUnderlyingResource().getFullPath())); //$NON-NLS-1$
+	private void searchUnparsedDescriptor(SearchContext context, String bundleName, ExternalDescriptorCache cache, ExternalDescriptorCache.Entry entry, int index, Descriptor descriptor, File bundleRoot, IPackageFragmentRoot packageRoot, IJavaProject javaProject, ISearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
+		IStorage file = createDescriptorFile(bundleRoot, packageRoot, descriptor.getPath());
+		if (file == null)
+			return;
 
+		DescriptorScanner scanner = DescriptorScanner.getDefault();
+		try {
+			if (!readDescriptor(context, file, bundleName, scanner))
+				return;
+		} catch (IOException e) {
+			Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, String.format("Error loading component descriptor from URL: %s", file), e)); //$NON-NLS-1$
 			return;
 		}
 
-		File bundleRoot = new File(model.getInstallLocation());
-		IPackageFragmentRoot packageRoot = javaProject.getPackageFragmentRoot(bundleRoot.getAbsolutePath());
-		final HashSet<IStorage> files = new HashSet<IStorage>();
-
-		String[] elements = header.split("\\s*,\\s*"); //$NON-NLS-1$
-		for (String element : elements) {
-			if (element.length() == 0)
-				continue;
+		DescriptorInfo info = scanDescriptor(file, bundleName, scanner);
+		cache.update(entry, index, new Descriptor(descriptor.getPath(), descriptor.getStamp(), true, info));
+		if (info != null)
+			searchDescriptor(context, info, bundleName, javaProject, file, requestor, monitor);
+	}
 
-			final IPath path = new Path(element).makeRelative();
-			String lastSegment = path.lastSegment();
-			if (lastSegment.indexOf('*') >= 0) {
+	private Collection<IStorage> resolveDescriptorFiles(File bundleRoot, IPackageFragmentRoot packageRoot, String header) throws CoreException {
+		LinkedHashSet<IStorage> files = new LinkedHashSet<IStorage>();
+		for (String element : ServiceComponentHeader.getElements(header)) {
+			IPath path = new Path(element).makeRelative();
+			final String lastSegment = path.lastSegment();
+			if (ServiceComponentHeader.isWildcard(element)) {
 				// wildcard path; get all entries in directory
-				final Filter filter;
-				try {
-					filter = FrameworkUtil.createFilter("(filename=" + sanitizeFilterValue(lastSegment) + ")"); //$NON-NLS-1$ //$NON-NLS-2$
-				} catch (InvalidSyntaxException e) {
-					// ignore
-					continue;
-				}
-
 				IPath folderPath = path.removeLastSegments(1);
 
 				if (packageRoot.exists()) {
-					IJarEntryResource folderEntry = findJarEntry(packageRoot, folderPath);
-					if (folderEntry != null) {
-						IJarEntryResource[] fileEntries = findMatchingJarEntries(folderEntry, filter);
-						for (IJarEntryResource fileEntry : fileEntries) {
-							files.add(fileEntry);
-						}
+					IJarEntryResource[] fileEntries = findMatchingJarEntries(packageRoot, folderPath, lastSegment);
+					for (IJarEntryResource fileEntry : fileEntries) {
+						files.add(fileEntry);
+					}
+				} else if (!bundleRoot.isDirectory()) {
+					for (String name : findMatchingArchiveEntries(bundleRoot, folderPath, lastSegment)) {
+						files.add(new ExternalDescriptorFile(bundleRoot, folderPath.append(name)));
 					}
 				} else {
 					File entryDir = folderPath.isEmpty() ? bundleRoot : new File(bundleRoot, folderPath.toString());
-					entryDir.listFiles(new FileFilter() {
+					File[] entryFiles = entryDir.listFiles(new FileFilter() {
 						public boolean accept(File pathname) {
-							if (filter.matches(Collections.singletonMap("filename", pathname.getName()))) { //$NON-NLS-1$
-								try {
-									files.add(new ExternalDescriptorFile(path, pathname.toURI().toURL()));
-								} catch (MalformedURLException e) {
-									if (debug.isDebugging())
-										debug.trace(String.format("Unable to create URL for file: %s", pathname), e); //$NON-NLS-1$
-								}
-							}
-
-							return false;
+							return ServiceComponentHeader.matches(lastSegment, pathname.getName());
 						}
 					});
-				}
-			} else {
-				if (packageRoot.exists()) {
-					IJarEntryResource jarEntry = findJarEntry(packageRoot, path);
-					if (jarEntry != null)
-						files.add(jarEntry);
-				} else {
-					URL url;
-					try {
-						if (bundleRoot.isDirectory())
-							url = new File(bundleRoot, path.toString()).toURI().toURL();
-						else
-							url = new URL("jar:" + bundleRoot.toURI() + "!/" + path); //$NON-NLS-1$ //$NON-NLS-2$
-					} catch (IOException e) {
-						if (debug.isDebugging())
-							debug.trace(String.format("Error creating JAR URL for file '%s' in bundle '%s'.", path, bundleRoot), e); //$NON-NLS-1$
 
-						continue;
+					if (entryFiles != null) {
+						for (File entryFile : entryFiles) {
+							IStorage file = createDescriptorFile(bundleRoot, packageRoot, folderPath.append(entryFile.getName()));
+							if (file != null)
+								files.add(file);
+						}
 					}
-
-					files.add(new ExternalDescriptorFile(path, url));
 				}
+			} else {
+				IStorage file = createDescriptorFile(bundleRoot, packageRoot, path);
+				if (file != null)
+					files.add(file);
 			}
 		}
 
-		// process each descriptor file
-		monitor.beginTask(model.getBundleDescription().getSymbolicName(), files.size());
+		return files;
+	}
+
+	private IStorage createDescriptorFile(File bundleRoot, IPackageFragmentRoot packageRoot, IPath path) throws JavaModelException {
+		if (packageRoot.exists())
+			return findJarEntry(packageRoot, path);
+
+		return new ExternalDescriptorFile(bundleRoot, path);
+	}
+
+	private Collection<String> findMatchingArchiveEntries(File bundleRoot, IPath folderPath, String pattern) {
+		ArrayList<String> results = new ArrayList<String>();
+		String prefix = folderPath.isEmpty() ? "" : folderPath.makeRelative().addTrailingSeparator().toString(); //$NON-NLS-1$
+		ZipFilePool pool = Activator.getDefault().getZipFilePool();
+		ZipFilePool.Handle handle = pool.acquire(bundleRoot);
 		try {
-			for (IStorage file : files) {
-				if (monitor.isCanceled())
-					throw new OperationCanceledException();
+			// straight from the central directory
+			for (Enumeration<? extends ZipEntry> entries = handle.getZipFile().entries(); entries.hasMoreElements();) {
+				ZipEntry entry = entries.nextElement();
+				String name = entry.getName();
+				if (entry.isDirectory() || !name.startsWith(prefix) || name.indexOf('/', prefix.length()) != -1)
+					continue;
 
-				searchFile(file, javaProject, new SubProgressMonitor(monitor, 1));
+				name = name.substring(prefix.length());
+				if (ServiceComponentHeader.matches(pattern, name))
+					results.add(name);
 			}
+		} catch (IOException e) {
+			if (debug.isDebugging())
+				debug.trace(String.format("Error listing entries of folder '%s' in bundle '%s'.", folderPath, bundleRoot), e); //$NON-NLS-1$
 		} finally {
-			monitor.done();
+			pool.release(handle);
 		}
+
+		return results;
 	}
 
-	private IJarEntryResource[] findMatchingJarEntries(IJarEntryResource resource, Filter filter) {
+	private IJarEntryResource[] findMatchingJarEntries(IPackageFragmentRoot packageRoot, IPath folderPath, String pattern) throws JavaModelException {
+		IJarEntryResource[] files = Activator.getDefault().getJarEntryIndex().findFiles(packageRoot, folderPath);
+		if (files == null)
+			return new IJarEntryResource[0];
+
 		ArrayList<IJarEntryResource> results = new ArrayList<IJarEntryResource>();
-		for (IJarEntryResource child : resource.getChildren()) {
-			if (child.isFile() && filter.matches(Collections.singletonMap("filename", child.getName()))) { //$NON-NLS-1$
-				results.add(child);
+		for (IJarEntryResource file : files) {
+			if (ServiceComponentHeader.matches(pattern, file.getName())) {
+				results.add(file);
 			}
 		}
 
@@ -507,77 +991,47 @@ public class DescriptorQueryParticipant implements IQueryParticipant {
 	}
 
 	private IJarEntryResource findJarEntry(IPackageFragmentRoot packageRoot, IPath path) throws JavaModelException {
-		for (Object nonJavaResource : packageRoot.getNonJavaResources()) {
-			if (nonJavaResource instanceof IJarEntryResource) {
-				IJarEntryResource result = findJarEntry((IJarEntryResource) nonJavaResource, path);
-				if (result != null)
-					return result;
-			}
-		}
-
-		return null;
+		return Activator.getDefault().getJarEntryIndex().findEntry(packageRoot, path);
 	}
 
-	private IJarEntryResource findJarEntry(IJarEntryResource resource, IPath path) {
-		if (!resource.getName().equals(path.segment(0)))
-			return null;
-
-		if (path.segmentCount() == 1)
-			return resource;
-
-		if (resource.isFile())
-			return null;
-
-		for (IJarEntryResource child : resource.getChildren()) {
-			IJarEntryResource result = findJarEntry(child, path.removeFirstSegments(1));
-			if (result != null)
-				return result;
-		}
-
-		return null;
+	/**
+	 * Reads the given descriptor's contents into the scanner.
+	 *
+	 * @return {@code false} if the descriptor was ruled out by the prefilter
+	 */
+	private boolean readDescriptor(SearchContext context, IStorage file, String bundleName, DescriptorScanner scanner) throws IOException, CoreException {
+		readContents(file, bundleName, scanner);
+		return context.prefilter == null || context.prefilter.accept(scanner.getBytes(), 0, scanner.getByteCount());
 	}
 
-	private void searchFile(IStorage file, IJavaProject javaProject, IProgressMonitor monitor) throws CoreException {
-		monitor.subTask(file.getName());
-
-		String content = null;
+	private void readContents(IStorage file, String bundleName, DescriptorScanner scanner) throws IOException, CoreException {
+		long start = readEvent.start();
+		InputStream in = file.getContents();
 		try {
-			ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
-			InputStream in = file.getContents();
-			try {
-				byte[] buf = new byte[4096];
-				int c;
-				while ((c = in.read(buf)) != -1) {
-					out.write(buf, 0, c);
-				}
-
-				content = out.toString("UTF-8"); //$NON-NLS-1$
-			} finally {
-				in.close();
-			}
-		} catch (IOException e) {
-			Activator.getDefault().getLog().log(new Status(IStatus.ERROR, Activator.PLUGIN_ID, String.format("Error loading component descriptor from URL: %s", file), e)); //$NON-NLS-1$
+			scanner.read(in);
+		} finally {
+			in.close();
+			readEvent.end(start, bundleName, file.getFullPath());
 		}
+	}
 
-		Document doc = new Document(content);
-		DSModel dsModel = new DSModel(doc, false);
-		try {
-			dsModel.setInstallLocation(file.getFullPath().toString());
-			dsModel.load();
+	private DescriptorInfo scanDescriptor(IStorage file, String bundleName, DescriptorScanner scanner) {
+		long start = parseEvent.start();
+		DescriptorInfo info = scanner.scan();
+		parseEvent.end(start, bundleName, file.getFullPath());
+		if (info == null && debug.isDebugging())
+			debug.trace(String.format("No component definition found in file: %s", file.getFullPath())); //$NON-NLS-1$
 
-			searchModel(dsModel, javaProject, file, monitor);
-		} finally {
-			dsModel.dispose();
-		}
+		return info;
 	}
 
-	private void searchModel(DSModel dsModel, IJavaProject javaProject, Object matchElement, IProgressMonitor monitor) throws CoreException {
+	private DescriptorInfo createDescriptorInfo(DSModel dsModel) {
 		IDSComponent component = dsModel.getDSComponent();
 		if (component == null) {
 			if (debug.isDebugging())
 				debug.trace(String.format("No component definition found in file: %s", dsModel.getUnderlyingResource() == null ? dsModel.getInstallLocation() : dsModel.getUnderlyingResource().getFullPath())); //$NON-NLS-1$	// TODO de-uglify!
 
-			return;
+			return null;
 		}
 
 		IDSImplementation impl = component.getImplementation();
@@ -585,489 +1039,321 @@ public class DescriptorQueryParticipant implements IQueryParticipant {
 			if (debug.isDebugging())
 				debug.trace(String.format("No component implementation found in file: %s", dsModel.getUnderlyingResource() == null ? dsModel.getInstallLocation() : dsModel.getUnderlyingResource().getFullPath())); //$NON-NLS-1$	// TODO de-uglify!
 
-			return;
+			return null;
 		}
 
-		IType implClassType = null;
-		String implClassName = impl.getClassName();
-		if (implClassName != null)
-			implClassType = javaProject.findType(implClassName, monitor);
+		return createDescriptorInfo(component);
+	}
 
-		if ((searchElement != null && searchElement.getElementType() == IJavaElement.TYPE)
-				|| searchFor == IJavaSearchConstants.TYPE
-				|| searchFor == IJavaSearchConstants.CLASS
-				|| searchFor == IJavaSearchConstants.CLASS_AND_INTERFACE
-				|| searchFor == IJavaSearchConstants.CLASS_AND_ENUM
-				|| searchFor == IJavaSearchConstants.UNKNOWN) {
-			// match specific type references
-			if (matches(searchElement, searchPattern, implClassType))
-				reportMatch(requestor, impl.getDocumentAttribute(IDSConstants.ATTRIBUTE_IMPLEMENTATION_CLASS), matchElement);
-		}
+	/**
+	 * Extracts descriptor facts from the given component model element.
+	 */
+	static DescriptorInfo createDescriptorInfo(IDSComponent component) {
+		String prefix = component.getNamespacePrefix();
+		String tagName = prefix == null || prefix.length() == 0 ? component.getXMLTagName() : prefix + ":" + component.getXMLTagName(); //$NON-NLS-1$
+		Attribute componentTag = new Attribute(tagName, component.getOffset() + 1, tagName.length());
+		Attribute name = createAttribute(component.getAttributeName(), component.getDocumentAttribute(IDSConstants.ATTRIBUTE_COMPONENT_NAME));
 
-		if ((searchElement != null && searchElement.getElementType() == IJavaElement.TYPE)
-				|| searchFor == IJavaSearchConstants.TYPE
-				|| searchFor == IJavaSearchConstants.CLASS
-				|| searchFor == IJavaSearchConstants.CLASS_AND_INTERFACE
-				|| searchFor == IJavaSearchConstants.CLASS_AND_ENUM
-				|| searchFor == IJavaSearchConstants.INTERFACE
-				|| searchFor == IJavaSearchConstants.INTERFACE_AND_ANNOTATION
-				|| searchFor == IJavaSearchConstants.UNKNOWN) {
-			IDSService service = component.getService();
-			if (service != null) {
-				IDSProvide[] provides = service.getProvidedServices();
-				if (provides != null) {
-					for (IDSProvide provide : provides) {
-						String ifaceName = provide.getInterface();
-						IType ifaceType = javaProject.findType(ifaceName, monitor);
-						if (matches(searchElement, searchPattern, ifaceType))
-							reportMatch(requestor, provide.getDocumentAttribute(IDSConstants.ATTRIBUTE_PROVIDE_INTERFACE), matchElement);
-					}
+		IDSImplementation impl = component.getImplementation();
+		Attribute implementation = impl == null ? null : createAttribute(impl.getClassName(), impl.getDocumentAttribute(IDSConstants.ATTRIBUTE_IMPLEMENTATION_CLASS));
+
+		Attribute activate = createAttribute(component.getActivateMethod(), component.getDocumentAttribute(IDSConstants.ATTRIBUTE_COMPONENT_ACTIVATE));
+		Attribute deactivate = createAttribute(component.getDeactivateMethod(), component.getDocumentAttribute(IDSConstants.ATTRIBUTE_COMPONENT_DEACTIVATE));
+		Attribute modified = createAttribute(component.getModifiedMethod(), component.getDocumentAttribute(IDSConstants.ATTRIBUTE_COMPONENT_MODIFIED));
+
+		Attribute[] provides = null;
+		IDSService service = component.getService();
+		if (service != null) {
+			IDSProvide[] dsProvides = service.getProvidedServices();
+			if (dsProvides != null) {
+				provides = new Attribute[dsProvides.length];
+				for (int i = 0; i < dsProvides.length; ++i) {
+					provides[i] = createAttribute(dsProvides[i].getInterface(), dsProvides[i].getDocumentAttribute(IDSConstants.ATTRIBUTE_PROVIDE_INTERFACE));
 				}
 			}
+		}
 
-			IDSReference[] references = component.getReferences();
-			if (references != null) {
-				for (IDSReference reference : references) {
-					String ifaceName = reference.getReferenceInterface();
-					IType ifaceType = javaProject.findType(ifaceName, monitor);
-					if (matches(searchElement, searchPattern, ifaceType))
-						reportMatch(requestor, reference.getDocumentAttribute(IDSConstants.ATTRIBUTE_REFERENCE_INTERFACE), matchElement);
-				}
+		Reference[] references = null;
+		IDSReference[] dsReferences = component.getReferences();
+		if (dsReferences != null) {
+			references = new Reference[dsReferences.length];
+			for (int i = 0; i < dsReferences.length; ++i) {
+				IDSReference dsReference = dsReferences[i];
+				references[i] = new Reference(
+						createAttribute(dsReference.getReferenceName(), dsReference.getDocumentAttribute(IDSConstants.ATTRIBUTE_REFERENCE_NAME)),
+						createAttribute(dsReference.getReferenceInterface(), dsReference.getDocumentAttribute(IDSConstants.ATTRIBUTE_REFERENCE_INTERFACE)),
+						createAttribute(dsReference.getReferenceCardinality(), dsReference.getDocumentAttribute(IDSConstants.ATTRIBUTE_REFERENCE_CARDINALITY)),
+						createAttribute(dsReference.getReferencePolicy(), dsReference.getDocumentAttribute(IDSConstants.ATTRIBUTE_REFERENCE_POLICY)),
+						createAttribute(dsReference.getReferenceTarget(), dsReference.getDocumentAttribute(IDSConstants.ATTRIBUTE_REFERENCE_TARGET)),
+						createAttribute(dsReference.getReferenceBind(), dsReference.getDocumentAttribute(IDSConstants.ATTRIBUTE_REFERENCE_BIND)),
+						createAttribute(dsReference.getReferenceUnbind(), dsReference.getDocumentAttribute(IDSConstants.ATTRIBUTE_REFERENCE_UNBIND)),
+						createAttribute(dsReference.getXMLAttributeValue(ATTRIBUTE_REFERENCE_UPDATED), dsReference.getDocumentAttribute(ATTRIBUTE_REFERENCE_UPDATED)));
 			}
 		}
 
-		if ((searchElement != null && searchElement.getElementType() == IJavaElement.METHOD)
-				|| searchFor == IJavaSearchConstants.METHOD
-				|| searchFor == IJavaSearchConstants.UNKNOWN) {
-			// match specific method references
-			String activate = component.getActivateMethod();
-			if (activate == null)
-				activate = "activate"; //$NON-NLS-1$
-
-			IMethod activateMethod = findActivateMethod(implClassType, activate, monitor);
-			if (matches(searchElement, searchPattern, activateMethod)) {
-				if (component.getActivateMethod() == null)
-					reportMatch(requestor, component, matchElement);
-				else
-					reportMatch(requestor, component.getDocumentAttribute(IDSConstants.ATTRIBUTE_COMPONENT_ACTIVATE), matchElement);
-			}
+		return new DescriptorInfo(componentTag, name, implementation, activate, deactivate, modified, provides, references);
+	}
 
-			String modified = component.getModifiedMethod();
-			if (modified != null) {
-				IMethod modifiedMethod = findActivateMethod(implClassType, modified, monitor);
-				if (matches(searchElement, searchPattern, modifiedMethod))
-					reportMatch(requestor, component.getDocumentAttribute(IDSConstants.ATTRIBUTE_COMPONENT_MODIFIED), matchElement);
-			}
+	private static Attribute createAttribute(String value, IDocumentAttributeNode node) {
+		if (value == null || node == null)
+			return null;
 
-			String deactivate = component.getDeactivateMethod();
-			if (deactivate == null)
-				deactivate = "deactivate"; //$NON-NLS-1$
+		return new Attribute(value, node.getValueOffset(), node.getValueLength());
+	}
 
-			IMethod deactivateMethod = findDeactivateMethod(implClassType, deactivate, monitor);
-			if (matches(searchElement, searchPattern, deactivateMethod)) {
-				if (component.getDeactivateMethod() == null)
-					reportMatch(requestor, component, matchElement);
-				else
-					reportMatch(requestor, component.getDocumentAttribute(IDSConstants.ATTRIBUTE_COMPONENT_DEACTIVATE), matchElement);
-			}
+	private void searchDescriptor(SearchContext context, DescriptorInfo info, String bundleName, IJavaProject javaProject, Object matchElement, ISearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
+		reportMatches(requestor, bundleName, matchDescriptor(context, info, bundleName, javaProject, monitor), matchElement);
+	}
 
-			IDSReference[] references = component.getReferences();
-			if (references != null) {
-				for (IDSReference reference : references) {
-					String refIface = reference.getReferenceInterface();
-					if (refIface == null) {
-						if (debug.isDebugging())
-							debug.trace(String.format("No reference interface specified: %s", reference)); //$NON-NLS-1$
+	/**
+	 * Matches the given descriptor against all targets of the search; types and
+	 * methods are resolved only once for all of them.
+	 *
+	 * @return matching attributes of each target that has any
+	 */
+	private Map<SearchTarget, List<Attribute>> matchDescriptor(SearchContext context, DescriptorInfo info, String bundleName, IJavaProject javaProject, IProgressMonitor monitor) throws CoreException {
+		JavaTypeResolver resolver = new JavaTypeResolver(bundleName, javaProject, context.typeCache, monitor);
+		Map<SearchTarget, List<Attribute>> matches = null;
+		for (SearchTarget target : context.targets) {
+			List<Attribute> targetMatches = target.matcher.match(info, resolver);
+			if (targetMatches.isEmpty())
+				continue;
 
-						continue;
-					}
+			if (matches == null)
+				matches = new LinkedHashMap<SearchTarget, List<Attribute>>(context.targets.length);
 
-					String bind = reference.getReferenceBind();
-					if (bind != null) {
-						IMethod bindMethod = findBindMethod(implClassType, bind, refIface, monitor);
-						if (matches(searchElement, searchPattern, bindMethod))
-							reportMatch(requestor, reference.getDocumentAttribute(IDSConstants.ATTRIBUTE_REFERENCE_BIND), matchElement);
-					}
+			matches.put(target, targetMatches);
+		}
 
-					String unbind = reference.getReferenceUnbind();
-					if (unbind != null) {
-						IMethod unbindMethod = findBindMethod(implClassType, unbind, refIface, monitor);
-						if (matches(searchElement, searchPattern, unbindMethod))
-							reportMatch(requestor, reference.getDocumentAttribute(IDSConstants.ATTRIBUTE_REFERENCE_UNBIND), matchElement);
-					}
+		return matches == null ? Collections.<SearchTarget, List<Attribute>> emptyMap() : matches;
+	}
 
-					String updated = reference.getXMLAttributeValue("updated"); //$NON-NLS-1$
-					if (updated != null) {
-						IMethod updatedMethod = findUpdatedMethod(implClassType, updated, monitor);
-						if (matches(searchElement, searchPattern, updatedMethod))
-							reportMatch(requestor, reference.getDocumentAttribute("updated"), matchElement); //$NON-NLS-1$
-					}
-				}
+	private void reportMatches(ISearchRequestor requestor, String bundleName, Map<SearchTarget, List<Attribute>> matches, Object element) {
+		for (Map.Entry<SearchTarget, List<Attribute>> entry : matches.entrySet()) {
+			for (Attribute match : entry.getValue()) {
+				reportMatch(requestor, bundleName, entry.getKey(), match, element);
 			}
 		}
 	}
 
-	private IMethod findActivateMethod(IType implClassType, String name, IProgressMonitor monitor) throws JavaModelException {
-		IMethod candidate = null;
-		int priority = Integer.MAX_VALUE;
-
-		IType type = implClassType;
-		while (type != null) {
-			for (IMethod method : type.getMethods()) {
-				if (!name.equals(method.getElementName()))
-					continue;
-
-				if (!VOID_SIG.equals(method.getReturnType()))
-					continue;
-
-				if (type != implClassType
-						&& (Flags.isPrivate(method.getFlags())
-								|| (Flags.isPackageDefault(method.getFlags())
-										&& !implClassType.getPackageFragment().equals(method.getDeclaringType().getPackageFragment()))))
-					continue;
+	private void reportMatch(ISearchRequestor requestor, String bundleName, SearchTarget target, Attribute attr, Object element) {
+		long start = reportEvent.start();
+		requestor.reportMatch(new TargetMatch(target, element, attr.getOffset(), attr.getLength()));
+		reportEvent.end(start, bundleName, element);
+	}
 
-				String[] paramSigs = resolveParameterTypes(method, Integer.MAX_VALUE);
+	public int estimateTicks(QuerySpecification specification) {
+		return 100;
+	}
 
-				if (paramSigs.length == 1 && COMPONENT_CONTEXT_SIG.equals(paramSigs[0])) {
-					// best match
-					return method;
-				}
+	public IMatchPresentation getUIParticipant() {
+		return null;
+	}
 
-				if (priority > 1 && paramSigs.length == 1 && COMPONENT_CONTEXT_SIG.equals(paramSigs[0])) {
-					candidate = method;
-					priority = 1;
-					continue;
-				}
+	/**
+	 * Element or pattern searched for by a single query, along with the
+	 * requestor to receive its matches.
+	 */
+	private static class SearchTarget {
 
-				if (priority > 2 && paramSigs.length == 1 && MAP_SIG.equals(paramSigs[0])) {
-					candidate = method;
-					priority = 2;
-					continue;
-				}
+		private final ISearchRequestor requestor;
 
-				if (priority > 3 && paramSigs.length >= 2) {
-					boolean valid = true;
-					for (String paramSig : paramSigs) {
-						if (!COMPONENT_CONTEXT_SIG.equals(paramSig)
-								&& !BUNDLE_CONTEXT_SIG.equals(paramSig)
-								&& !MAP_SIG.equals(paramSig)) {
-							valid = false;
-							break;
-						}
-					}
+		// lower-case names every matching descriptor refers to, or null if unknown
+		private final Set<String> searchTokens;
 
-					if (valid) {
-						candidate = method;
-						priority = 3;
-					}
+		// literal text every matching descriptor contains, or null if unknown
+		private final String prefilterToken;
 
-					continue;
-				}
+		private final boolean prefilterCaseSensitive;
 
-				if (priority > 4 && paramSigs.length == 0) {
-					candidate = method;
-					priority = 4;
-					continue;
-				}
-			}
+		private final DescriptorMatcher<IType, IMethod, JavaModelException> matcher;
 
-			type = findSuperclassType(type, implClassType.getJavaProject(), monitor);
+		SearchTarget(IJavaElement searchElement, SearchPatternDescriptor searchPattern, int searchFor, ISearchRequestor requestor) {
+			this.requestor = requestor;
+			searchTokens = getSearchTokens(searchElement, searchPattern);
+			prefilterToken = getPrefilterToken(searchElement, searchPattern, searchFor);
+			prefilterCaseSensitive = isPrefilterCaseSensitive(searchPattern);
+			matcher = createMatcher(searchElement, searchPattern, searchFor);
 		}
-
-		return candidate;
-	}
-
-	private IType findSuperclassType(IType type, IJavaProject project, IProgressMonitor monitor) throws JavaModelException, IllegalArgumentException {
-		String superSig = type.getSuperclassTypeSignature();
-		if (superSig == null)
-			return null;
-
-		String superName = Signature.toString(Signature.getTypeErasure(superSig));
-		if (type.isResolved())
-			return project.findType(superName, monitor);
-
-		String[][] resolvedNames = type.resolveType(superName);
-		if (resolvedNames == null || resolvedNames.length == 0)
-			return null;
-
-		return project.findType(resolvedNames[0][0], resolvedNames[0][1], monitor);
 	}
 
-	private IMethod findDeactivateMethod(IType implClassType, String name, IProgressMonitor monitor) throws JavaModelException {
-		IMethod candidate = null;
-		int priority = Integer.MAX_VALUE;
-
-		IType type = implClassType;
-		while (type != null) {
-			for (IMethod method : type.getMethods()) {
-				if (!name.equals(method.getElementName()))
-					continue;
-
-				if (!VOID_SIG.equals(method.getReturnType()))
-					continue;
+	/**
+	 * State of a single search of one or more targets, shared by all of its
+	 * (possibly concurrent) bundle searches. The participant itself keeps no
+	 * per-search state, so any number of searches may run at once.
+	 */
+	private static class SearchContext {
 
-				if (type != implClassType
-						&& (Flags.isPrivate(method.getFlags())
-								|| (Flags.isPackageDefault(method.getFlags())
-										&& !implClassType.getPackageFragment().equals(method.getDeclaringType().getPackageFragment()))))
-					continue;
+		private final SearchTarget[] targets;
 
-				String[] paramSigs = resolveParameterTypes(method, Integer.MAX_VALUE);
+		// lower-case names every matching descriptor refers to at least one of, or null if unknown
+		private final Set<String> searchTokens;
 
-				if (paramSigs.length == 1 && COMPONENT_CONTEXT_SIG.equals(paramSigs[0])) {
-					// best match
-					return method;
-				}
+		// indexed workspace descriptors that refer to any of the search tokens, or null if unknown
+		private final Set<IPath> indexCandidates;
 
-				if (priority > 1 && paramSigs.length == 1 && COMPONENT_CONTEXT_SIG.equals(paramSigs[0])) {
-					candidate = method;
-					priority = 1;
-					continue;
-				}
+		private final DescriptorPrefilter prefilter;
 
-				if (priority > 2 && paramSigs.length == 1 && MAP_SIG.equals(paramSigs[0])) {
-					candidate = method;
-					priority = 2;
-					continue;
-				}
+		private final TypeResolutionCache typeCache;
 
-				if (priority > 3 && paramSigs.length == 1 && INT_SIG.equals(paramSigs[0])) {
-					candidate = method;
-					priority = 3;
-					continue;
-				}
+		SearchContext(List<SearchTarget> targets, TypeResolutionCache typeCache) {
+			this.targets = targets.toArray(new SearchTarget[targets.size()]);
+			this.typeCache = typeCache;
 
-				if (priority > 4 && paramSigs.length == 1 && INTEGER_SIG.equals(paramSigs[0])) {
-					candidate = method;
-					priority = 4;
-					continue;
+			// descriptors that match any target must pass
+			HashSet<String> tokens = new HashSet<String>();
+			HashSet<String> prefilterTokens = new HashSet<String>();
+			boolean caseSensitive = true;
+			for (SearchTarget target : targets) {
+				if (tokens != null) {
+					if (target.searchTokens == null)
+						tokens = null;
+					else
+						tokens.addAll(target.searchTokens);
 				}
 
-				if (priority > 5 && paramSigs.length >= 2) {
-					boolean valid = true;
-					for (String paramSig : paramSigs) {
-						if (!COMPONENT_CONTEXT_SIG.equals(paramSig)
-								&& !BUNDLE_CONTEXT_SIG.equals(paramSig)
-								&& !MAP_SIG.equals(paramSig)
-								&& !INT_SIG.equals(paramSig)
-								&& !INTEGER_SIG.equals(paramSig)) {
-							valid = false;
-							break;
-						}
-					}
-
-					if (valid) {
-						candidate = method;
-						priority = 5;
+				if (prefilterTokens != null) {
+					if (target.prefilterToken == null) {
+						prefilterTokens = null;
+					} else {
+						prefilterTokens.add(target.prefilterToken);
+						caseSensitive &= target.prefilterCaseSensitive;
 					}
-
-					continue;
-				}
-
-				if (priority > 6 && paramSigs.length == 0) {
-					candidate = method;
-					priority = 6;
-					continue;
 				}
 			}
 
-			type = findSuperclassType(type, implClassType.getJavaProject(), monitor);
+			searchTokens = tokens;
+			indexCandidates = tokens == null ? null : Activator.getDefault().getDescriptorIndex().findCandidates(tokens);
+			prefilter = prefilterTokens == null ? null : DescriptorPrefilter.create(prefilterTokens, caseSensitive);
 		}
-
-		return candidate;
 	}
 
-	private IMethod findBindMethod(IType implClassType, String name, String referenceTypeName, IProgressMonitor monitor) throws JavaModelException {
-		IMethod candidate = null;
-		int priority = Integer.MAX_VALUE;
-
-		String referenceTypeSig = Signature.createTypeSignature(referenceTypeName, true);
-		IType referenceType = null;
-		IType arg0Type = null;
-
-		IType type = implClassType;
-		while (type != null) {
-			for (IMethod method : type.getMethods()) {
-				if (!name.equals(method.getElementName()))
-					continue;
-
-				if (!VOID_SIG.equals(method.getReturnType()))
-					continue;
-
-				if (type != implClassType
-						&& (Flags.isPrivate(method.getFlags())
-								|| (Flags.isPackageDefault(method.getFlags())
-										&& !implClassType.getPackageFragment().equals(method.getDeclaringType().getPackageFragment()))))
-					continue;
-
-				String[] paramSigs = resolveParameterTypes(method, 2);
-
-				if (paramSigs.length == 1 && SERVICE_REFERENCE_SIG.equals(paramSigs[0])) {
-					// best match
-					return method;
-				}
-
-				if (priority > 1 && paramSigs.length == 1 && referenceTypeSig.equals(paramSigs[0])) {
-					candidate = method;
-					priority = 1;
-					continue;
-				}
-
-				if (priority > 2 && paramSigs.length == 1) {
-					if (referenceType == null)
-						referenceType = implClassType.getJavaProject().findType(referenceTypeName, monitor);
-
-					if (arg0Type == null)
-						arg0Type = implClassType.getJavaProject().findType(Signature.toString(paramSigs[0]), monitor);
-
-					if (isAssignableFrom(arg0Type, referenceType, monitor)) {
-						candidate = method;
-						priority = 2;
-					}
-
-					continue;
-				}
-
-				if (priority > 3 && paramSigs.length == 2 && referenceTypeSig.equals(paramSigs[0]) && MAP_SIG.equals(paramSigs[1])) {
-					candidate = method;
-					priority = 3;
-					continue;
-				}
-
-				if (priority > 4 && paramSigs.length == 2 && MAP_SIG.equals(paramSigs[1])) {
-					if (referenceType == null)
-						referenceType = implClassType.getJavaProject().findType(referenceTypeName, monitor);
+	/**
+	 * Match of a single search target.
+	 */
+	private static class TargetMatch extends Match {
 
-					if (arg0Type == null)
-						arg0Type = implClassType.getJavaProject().findType(Signature.toString(paramSigs[0]), monitor);
+		private final SearchTarget target;
 
-					if (isAssignableFrom(arg0Type, referenceType, monitor)) {
-						candidate = method;
-						priority = 4;
-					}
+		TargetMatch(SearchTarget target, Object element, int offset, int length) {
+			super(element, offset, length);
+			this.target = target;
+		}
+	}
 
-					continue;
-				}
-			}
+	/**
+	 * Hands each match to the requestor of the target it belongs to.
+	 */
+	private static class TargetMatchRequestor implements ISearchRequestor {
 
-			type = findSuperclassType(type, implClassType.getJavaProject(), monitor);
+		public void reportMatch(Match match) {
+			// search results needn't hold on to the targets
+			TargetMatch targetMatch = (TargetMatch) match;
+			targetMatch.target.requestor.reportMatch(new Match(match.getElement(), match.getOffset(), match.getLength()));
 		}
-
-		return candidate;
 	}
 
-	private IMethod findUpdatedMethod(IType implClassType, String name, IProgressMonitor monitor) throws JavaModelException {
-		IMethod candidate = null;
-
-		IType type = implClassType;
-		while (type != null) {
-			for (IMethod method : type.getMethods()) {
-				if (!name.equals(method.getElementName()))
-					continue;
+	/**
+	 * Resolves the types and methods referenced by the descriptors of a single
+	 * bundle; all lifecycle method lookups for the same implementation class
+	 * share one walk of its class hierarchy.
+	 */
+	private static class JavaTypeResolver implements TypeResolver<IType, IMethod, JavaModelException> {
 
-				if (!VOID_SIG.equals(method.getReturnType()))
-					continue;
+		private final String bundleName;
 
-				if (type != implClassType
-						&& (Flags.isPrivate(method.getFlags())
-								|| (Flags.isPackageDefault(method.getFlags())
-										&& !implClassType.getPackageFragment().equals(method.getDeclaringType().getPackageFragment()))))
-					continue;
+		private final IJavaProject javaProject;
 
-				String[] paramSigs = resolveParameterTypes(method, 1);
+		private final TypeResolutionCache typeCache;
 
-				if (paramSigs.length != 1)
-					continue;
+		private final IProgressMonitor monitor;
 
-				if (SERVICE_REFERENCE_SIG.equals(paramSigs[0])) {
-					// best match
-					return method;
-				}
+		private final long generation;
 
-				if (candidate == null && MAP_SIG.equals(paramSigs[0])) {
-					candidate = method;
-				}
-			}
+		private LifecycleMethodResolver resolver;
 
-			type = findSuperclassType(type, implClassType.getJavaProject(), monitor);
+		JavaTypeResolver(String bundleName, IJavaProject javaProject, TypeResolutionCache typeCache, IProgressMonitor monitor) {
+			this.bundleName = bundleName;
+			this.javaProject = javaProject;
+			this.typeCache = typeCache;
+			this.monitor = monitor;
+			generation = Activator.getDefault().getLifecycleMethodCache().getGeneration();
 		}
 
-		return candidate;
-	}
-
-	private String[] resolveParameterTypes(IMethod method, int maxParams) throws JavaModelException {
-		String[] oldParamSigs = method.getParameterTypes();
-		String[] paramSigs = new String[oldParamSigs.length];
-		System.arraycopy(oldParamSigs, 0, paramSigs, 0, paramSigs.length);
-		for (int i = 0, n = Math.min(paramSigs.length, maxParams); i < n; ++i) {
-			paramSigs[i] = Signature.getTypeErasure(paramSigs[i]);
-			if (!method.isResolved()) {
-				String[][] resolvedParamTypes = method.getDeclaringType().resolveType(Signature.toString(paramSigs[i]));
-				if (resolvedParamTypes != null && resolvedParamTypes.length > 0) {
-					// TODO should we use all results??
-					paramSigs[i] = Signature.createTypeSignature(resolvedParamTypes[0][0].length() == 0 ? resolvedParamTypes[0][1] : String.format("%s.%s", resolvedParamTypes[0][0], resolvedParamTypes[0][1]), true); //$NON-NLS-1$
-				}
+		public IType findType(String name) throws JavaModelException {
+			long start = findTypeEvent.start();
+			try {
+				return typeCache.findType(javaProject, name, monitor);
+			} finally {
+				findTypeEvent.end(start, bundleName, name);
 			}
 		}
 
-		return paramSigs;
-	}
+		public IMethod findLifecycleMethod(IType implClassType, int kind, String name, String referenceInterface) throws JavaModelException {
+			long start = lifecycleEvent.start();
+			try {
+				return doFindLifecycleMethod(implClassType, kind, name, referenceInterface);
+			} finally {
+				if (lifecycleEvent.isEnabled())
+					lifecycleEvent.end(start, bundleName, implClassType.getFullyQualifiedName() + '#' + name);
+			}
+		}
 
-	private boolean isAssignableFrom(IType type, IType subtype, IProgressMonitor monitor) throws JavaModelException {
-		if (subtype == null)
-			return false;
+		private IMethod doFindLifecycleMethod(IType implClassType, int kind, String name, String referenceInterface) throws JavaModelException {
+			LifecycleMethodCache cache = Activator.getDefault().getLifecycleMethodCache();
+			LifecycleMethodCache.Key key = new LifecycleMethodCache.Key(implClassType, kind, name, referenceInterface);
+			JavaModelCache.Entry<IMethod> entry = cache.get(key);
+			if (entry != null)
+				return entry.getValue();
 
-		IJavaProject project = subtype.getJavaProject();
-		while (type != null) {
-			if (type.equals(subtype))
-				return true;
+			if (resolver == null || !resolver.getImplementationType().equals(implClassType))
+				resolver = new LifecycleMethodResolver(implClassType, Activator.getDefault().getSupertypeChainCache(), typeCache, monitor);
 
-			type = findSuperclassType(type, project, monitor);
+			IMethod method = LifecycleMethodSelector.select(resolver, kind, name, referenceInterface);
+			cache.put(key, method, resolver.getDependencies(), generation);
+			return method;
 		}
-
-		return false;
 	}
 
-	private boolean matches(IJavaElement element, SearchPatternDescriptor pattern, IType type) {
-		if (type == null)
-			return false;
-
-		if (element != null)
-			return element.equals(type);
-
-		return pattern.matches(type);
-	}
+	/**
+	 * Matches resolved elements against either a specific element or a search pattern.
+	 */
+	private static class QueryElementMatcher implements ElementMatcher<IType, IMethod, JavaModelException> {
 
-	private boolean matches(IJavaElement element, SearchPatternDescriptor pattern, IMethod method) throws JavaModelException {
-		if (method == null)
-			return false;
+		private final IJavaElement element;
 
-		if (element != null)
-			return element.equals(method);
+		private final SearchPatternDescriptor pattern;
 
-		return pattern.matches(method);
-	}
+		QueryElementMatcher(IJavaElement element, SearchPatternDescriptor pattern) {
+			this.element = element;
+			this.pattern = pattern;
+		}
 
-	private void reportMatch(ISearchRequestor requestor, IDocumentAttributeNode node, Object element) {
-		requestor.reportMatch(new Match(element, node.getValueOffset(), node.getValueLength()));
-	}
+		public boolean matchesType(IType type) {
+			if (element != null)
+				return element.equals(type);
 
-	private void reportMatch(ISearchRequestor requestor, IDocumentElementNode node, Object element) {
-		String prefix = node.getNamespacePrefix();
-		int nameLen = prefix == null || prefix.length() == 0 ? node.getXMLTagName().length() : prefix.length() + node.getXMLTagName().length() + 1;
-		requestor.reportMatch(new Match(element, node.getOffset() + 1, nameLen));
-	}
+			return pattern.matches(type);
+		}
 
-	public int estimateTicks(QuerySpecification specification) {
-		return 100;
-	}
+		public boolean matchesMethod(IMethod method) throws JavaModelException {
+			if (element != null)
+				return element.equals(method);
 
-	public IMatchPresentation getUIParticipant() {
-		return null;
+			return pattern.matches(method);
+		}
 	}
 
 	private static class SearchPatternDescriptor {
 
+		// qualified method names are assembled per thread, since bundles may be searched concurrently
+		private static final ThreadLocal<StringBuilder> builders = new ThreadLocal<StringBuilder>() {
+			@Override
+			protected StringBuilder initialValue() {
+				return new StringBuilder();
+			}
+		};
+
 		private final String pattern;
 
 		private final int matchRule;
@@ -1076,25 +1362,40 @@ public class DescriptorQueryParticipant implements IQueryParticipant {
 
 		private final boolean ignoreMethodParams;
 
+		private final NamePattern namePattern;
+
 		public SearchPatternDescriptor(String pattern, int matchRule, boolean ignoreMethodParams) {
 			this.pattern = pattern;
 			this.matchRule = matchRule & ~SearchPattern.R_ERASURE_MATCH;
 			this.ignoreMethodParams = ignoreMethodParams;
 			simple = Signature.getQualifier(pattern).length() == 0;
+			// NamePattern's match rules have the same values as SearchPattern's
+			namePattern = NamePattern.compile(pattern, this.matchRule);
+		}
+
+		public String getPattern() {
+			return pattern;
+		}
+
+		public int getMatchRule() {
+			return matchRule;
 		}
 
 		public boolean matches(IType type) {
 			String name = type.getFullyQualifiedName('.');
-			return matches(simple ? Signature.getSimpleName(name) : name);
+			// simple name without a copy
+			return namePattern.matches(name, simple ? name.lastIndexOf('.') + 1 : 0, name.length());
 		}
 
 		public boolean matches(IMethod method) throws JavaModelException {
 			String simpleName = ignoreMethodParams ? method.getElementName() : Signature.toString(method.getSignature(), method.getElementName(), null, true, false, Flags.isVarargs(method.getFlags()));
-			return matches(simple ? simpleName : String.format("%s.%s", method.getDeclaringType().getFullyQualifiedName(), simpleName)); //$NON-NLS-1$
-		}
+			if (simple)
+				return namePattern.matches(simpleName);
 
-		public boolean matches(String name) {
-			return SearchPattern.getMatchingRegions(pattern, name, matchRule) != null;
+			StringBuilder buf = builders.get();
+			buf.setLength(0);
+			buf.append(method.getDeclaringType().getFullyQualifiedName()).append('.').append(simpleName);
+			return namePattern.matches(buf);
 		}
 	}
 }
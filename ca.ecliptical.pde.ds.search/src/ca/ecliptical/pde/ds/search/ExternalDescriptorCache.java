@@ -0,0 +1,645 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.pde.core.plugin.IPluginModelBase;
+import org.eclipse.pde.core.plugin.IPluginModelListener;
+import org.eclipse.pde.core.plugin.ModelEntry;
+import org.eclipse.pde.core.plugin.PluginModelDelta;
+
+import ca.ecliptical.pde.ds.search.core.CompactDescriptorStore;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+
+/**
+ * Cache of component descriptor facts for external (target platform) bundles,
+ * keyed by bundle install location.
+ * <p>
+ * Entries are validated against the size and modification time of the bundle
+ * JAR or, for directory bundles, of the bundle manifest and each descriptor file.
+ * All entries for models that PDE reports as added, removed, or changed
+ * (e.g., when the target platform is reloaded) are dropped.
+ * </p>
+ * <p>
+ * Descriptors that a search could rule out without parsing them are cached
+ * as not parsed; they are parsed (and updated) by the first search that needs
+ * their facts.
+ * </p>
+ * <p>
+ * The {@code Service-Component} header of each bundle (or the fact that it has none)
+ * is cached separately, and validated the same way, so that bundles without
+ * components needn't have their manifest read again.
+ * </p>
+ * <p>
+ * The cache is saved as a {@link CompactDescriptorStore}, which is memory-mapped
+ * when loaded: the facts of bundles that don't change stay off the heap, and are
+ * only decoded when looked up. Changes are kept on the heap until saved,
+ * which happens along with the workspace, including its periodic snapshots.
+ * Since the mapped file is still in use, it's saved to a pending file that
+ * replaces it when next loaded.
+ * The cache is loaded when first needed, rather than when the plug-in is
+ * activated.
+ * </p>
+ */
+public class ExternalDescriptorCache implements IPluginModelListener {
+
+	private static final Debug debug = Debug.getDebug("external-cache"); //$NON-NLS-1$
+
+	private static final int VERSION = 6;
+
+	private static final String MANIFEST_PATH = "META-INF/MANIFEST.MF"; //$NON-NLS-1$
+
+	private static final String PENDING_SUFFIX = ".new"; //$NON-NLS-1$
+
+	// stored bundle data: flags, entry stamp, header stamp
+	private static final int BUNDLE_DATA_LENGTH = 5;
+
+	// stored descriptor data: flags, descriptor stamp
+	private static final int DESCRIPTOR_DATA_LENGTH = 3;
+
+	private static final long HAS_ENTRY = 1L;
+
+	private static final long HAS_HEADER = 2L;
+
+	private static final long PARSED = 1L;
+
+	private static final long HAS_STAMP = 2L;
+
+	private final File cacheFile;
+
+	// the cache file is mapped, and can't be replaced on all platforms until the next session
+	private final File pendingFile;
+
+	// entries and headers as last saved
+	private CompactDescriptorStore store;
+
+	// stored entries and headers that were removed or are no longer current
+	private final HashSet<String> staleEntries = new HashSet<String>();
+
+	private final HashSet<String> staleHeaders = new HashSet<String>();
+
+	// entries and headers added or modified since loaded; these supersede stored ones
+	private final HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+	private final HashMap<String, Header> headers = new HashMap<String, Header>();
+
+	private boolean loaded;
+
+	private boolean dirty;
+
+	public ExternalDescriptorCache(File cacheFile) {
+		this.cacheFile = cacheFile;
+		pendingFile = new File(cacheFile.getPath() + PENDING_SUFFIX);
+	}
+
+	/**
+	 * Returns cached descriptor facts for the bundle at the given location.
+	 *
+	 * @param location bundle install location
+	 * @return cached entry, or {@code null} if not cached or no longer current
+	 */
+	public synchronized Entry get(String location) {
+		ensureLoaded();
+		Entry entry = entries.get(location);
+		if (entry == null) {
+			entry = readEntry(location);
+			if (entry == null)
+				return null;
+		}
+
+		if (!entry.isCurrent(new File(location))) {
+			removeEntry(location);
+			return null;
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Indicates whether the cached descriptors of the given bundle could refer to
+	 * any of the given lower-case simple type or method names. Only stored
+	 * bundles whose descriptors were all parsed can be ruled out.
+	 *
+	 * @param location bundle install location, of an entry obtained from {@link #get(String)}
+	 * @param tokens lower-case simple type or method names
+	 */
+	public synchronized boolean isCandidate(String location, Set<String> tokens) {
+		ensureLoaded();
+		if (store == null || entries.containsKey(location) || staleEntries.contains(location))
+			return true;
+
+		int bundle = store.findBundle(location);
+		if (bundle == -1)
+			return true;
+
+		for (int i = store.getFirstDescriptor(bundle), n = i + store.getDescriptorCount(bundle); i < n; ++i) {
+			if ((store.getDescriptorData(i, 0) & PARSED) == 0)
+				return true;
+		}
+
+		return store.containsAny(bundle, tokens);
+	}
+
+	private Entry readEntry(String location) {
+		if (store == null || staleEntries.contains(location))
+			return null;
+
+		int bundle = store.findBundle(location);
+		if (bundle == -1 || (store.getBundleData(bundle, 0) & HAS_ENTRY) == 0)
+			return null;
+
+		Descriptor[] descriptors = new Descriptor[store.getDescriptorCount(bundle)];
+		for (int i = 0, index = store.getFirstDescriptor(bundle); i < descriptors.length; ++i, ++index) {
+			long flags = store.getDescriptorData(index, 0);
+			Stamp stamp = (flags & HAS_STAMP) == 0 ? null : new Stamp(store.getDescriptorData(index, 1), store.getDescriptorData(index, 2));
+			descriptors[i] = new Descriptor(Path.fromPortableString(store.getDescriptorPath(index)), stamp, (flags & PARSED) != 0, store, index);
+		}
+
+		return new Entry(location, new Stamp(store.getBundleData(bundle, 1), store.getBundleData(bundle, 2)), descriptors, true);
+	}
+
+	private boolean removeEntry(String location) {
+		boolean removed = entries.remove(location) != null;
+		if (store != null && staleEntries.add(location)) {
+			int bundle = store.findBundle(location);
+			removed |= bundle != -1 && (store.getBundleData(bundle, 0) & HAS_ENTRY) != 0;
+		}
+
+		if (removed)
+			dirty = true;
+
+		return removed;
+	}
+
+	/**
+	 * Creates a new cache entry for the bundle at the given location.
+	 * The bundle's stamp should be obtained <em>before</em> its contents are read,
+	 * so that concurrent modifications invalidate the entry.
+	 *
+	 * @param location bundle install location
+	 * @param stamp bundle stamp, as returned by {@link #getStamp(File)}
+	 * @param descriptors bundle descriptors
+	 */
+	public synchronized void put(String location, Stamp stamp, List<Descriptor> descriptors) {
+		ensureLoaded();
+		entries.put(location, new Entry(location, stamp, descriptors.toArray(new Descriptor[descriptors.size()]), false));
+		dirty = true;
+	}
+
+	/**
+	 * Creates a new cache entry for the bundle at the given location from
+	 * the facts of all its descriptors, e.g., as extracted by a
+	 * {@link ca.ecliptical.pde.ds.search.core.DescriptorExtractor}.
+	 *
+	 * @param location bundle install location
+	 * @param stamp bundle stamp, as returned by {@link #getStamp(File)}
+	 * @param descriptors descriptor facts by bundle-relative path
+	 */
+	public void put(String location, Stamp stamp, Map<String, DescriptorInfo> descriptors) {
+		File bundleRoot = new File(location);
+		ArrayList<Descriptor> list = new ArrayList<Descriptor>(descriptors.size());
+		for (Map.Entry<String, DescriptorInfo> entry : descriptors.entrySet()) {
+			IPath path = new Path(entry.getKey()).makeRelative();
+			list.add(new Descriptor(path, getDescriptorStamp(bundleRoot, path), true, entry.getValue()));
+		}
+
+		put(location, stamp, list);
+	}
+
+	/**
+	 * Replaces a descriptor in the given cache entry, typically to record the facts
+	 * of a descriptor that was previously cached without being parsed.
+	 *
+	 * @param entry entry obtained from {@link #get(String)}
+	 * @param index index of descriptor to replace
+	 * @param descriptor replacement descriptor
+	 */
+	public synchronized void update(Entry entry, int index, Descriptor descriptor) {
+		ensureLoaded();
+		entry.descriptors[index] = descriptor;
+		// stored entries are only kept on the heap once modified
+		if (entry.stored && !entries.containsKey(entry.location) && !staleEntries.contains(entry.location))
+			entries.put(entry.location, entry);
+
+		dirty = true;
+	}
+
+	/**
+	 * Returns the cached {@code Service-Component} header of the bundle at the given location.
+	 *
+	 * @param location bundle install location
+	 * @param stamp current bundle stamp, as returned by {@link #getStamp(File)}
+	 * @return cached header, or {@code null} if not cached or no longer current
+	 */
+	public synchronized Header getHeader(String location, Stamp stamp) {
+		ensureLoaded();
+		Header header = headers.get(location);
+		if (header == null) {
+			header = readHeader(location);
+			if (header == null)
+				return null;
+		}
+
+		if (!header.stamp.equals(stamp)) {
+			removeHeader(location);
+			return null;
+		}
+
+		return header;
+	}
+
+	private Header readHeader(String location) {
+		if (store == null || staleHeaders.contains(location))
+			return null;
+
+		int bundle = store.findBundle(location);
+		if (bundle == -1 || (store.getBundleData(bundle, 0) & HAS_HEADER) == 0)
+			return null;
+
+		return new Header(new Stamp(store.getBundleData(bundle, 3), store.getBundleData(bundle, 4)), store.getBundleHeader(bundle));
+	}
+
+	private void removeHeader(String location) {
+		headers.remove(location);
+		if (store != null)
+			staleHeaders.add(location);
+
+		dirty = true;
+	}
+
+	/**
+	 * Caches the {@code Service-Component} header of the bundle at the given location.
+	 *
+	 * @param location bundle install location
+	 * @param stamp bundle stamp, obtained before the manifest was read
+	 * @param value header value, or {@code null} if the bundle has none
+	 */
+	public synchronized void putHeader(String location, Stamp stamp, String value) {
+		ensureLoaded();
+		headers.put(location, new Header(stamp, value));
+		dirty = true;
+	}
+
+	public synchronized void remove(String location) {
+		ensureLoaded();
+		removeEntry(location);
+		removeHeader(location);
+	}
+
+	public synchronized void clear() {
+		// nothing left to load
+		loaded = true;
+		store = null;
+		staleEntries.clear();
+		staleHeaders.clear();
+		entries.clear();
+		headers.clear();
+		dirty = true;
+	}
+
+	/**
+	 * Returns the stamp of the bundle at the given location.
+	 */
+	public static Stamp getStamp(File bundleRoot) {
+		File file = bundleRoot.isDirectory() ? new File(bundleRoot, MANIFEST_PATH) : bundleRoot;
+		return new Stamp(file.length(), file.lastModified());
+	}
+
+	/**
+	 * Returns the stamp of the given descriptor file if it's in a directory bundle.
+	 *
+	 * @return descriptor stamp, or {@code null} if bundle isn't a directory
+	 */
+	public static Stamp getDescriptorStamp(File bundleRoot, IPath path) {
+		if (!bundleRoot.isDirectory())
+			return null;
+
+		File file = new File(bundleRoot, path.toString());
+		return new Stamp(file.length(), file.lastModified());
+	}
+
+	public void modelsChanged(PluginModelDelta delta) {
+		int count = 0;
+		synchronized (this) {
+			ensureLoaded();
+			count += removeEntries(delta.getAddedEntries());
+			count += removeEntries(delta.getRemovedEntries());
+			count += removeEntries(delta.getChangedEntries());
+		}
+
+		if (count > 0 && debug.isDebugging())
+			debug.trace(String.format("Removed %d cached bundle(s).", count)); //$NON-NLS-1$
+	}
+
+	private int removeEntries(ModelEntry[] modelEntries) {
+		int count = 0;
+		if (modelEntries != null) {
+			for (ModelEntry modelEntry : modelEntries) {
+				for (IPluginModelBase model : modelEntry.getExternalModels()) {
+					String location = model.getInstallLocation();
+					if (location == null)
+						continue;
+
+					removeHeader(location);
+					if (removeEntry(location))
+						++count;
+				}
+			}
+		}
+
+		return count;
+	}
+
+	private void ensureLoaded() {
+		if (!loaded) {
+			loaded = true;
+			load();
+		}
+	}
+
+	private void load() {
+		// replace the cache last mapped with the one saved since
+		if (pendingFile.isFile()) {
+			cacheFile.delete();
+			if (!pendingFile.renameTo(cacheFile))
+				pendingFile.delete();
+		}
+
+		if (!cacheFile.isFile())
+			return;
+
+		try {
+			CompactDescriptorStore loaded = CompactDescriptorStore.open(cacheFile);
+			if (loaded.getVersion() != VERSION) {
+				if (debug.isDebugging())
+					debug.trace(String.format("Discarding incompatible cache: %s", cacheFile)); //$NON-NLS-1$
+
+				return;
+			}
+
+			store = loaded;
+		} catch (IOException e) {
+			// e.g., saved in an earlier format
+			if (debug.isDebugging())
+				debug.trace(String.format("Discarding unreadable cache: %s", cacheFile), e); //$NON-NLS-1$
+
+			return;
+		}
+
+		if (debug.isDebugging())
+			debug.trace(String.format("Mapped %d bundle(s) from cache: %s", store.getBundleCount(), cacheFile)); //$NON-NLS-1$
+
+		dirty = false;
+	}
+
+	public synchronized void save() {
+		if (!dirty)
+			return;
+
+		HashSet<String> locations = new HashSet<String>(entries.keySet());
+		locations.addAll(headers.keySet());
+		if (store != null) {
+			for (int i = 0, n = store.getBundleCount(); i < n; ++i) {
+				locations.add(store.getBundleKey(i));
+			}
+		}
+
+		CompactDescriptorStore.Writer writer = new CompactDescriptorStore.Writer(VERSION, BUNDLE_DATA_LENGTH, DESCRIPTOR_DATA_LENGTH);
+		for (String location : locations) {
+			Entry entry = entries.containsKey(location) ? entries.get(location) : readEntry(location);
+			Header header = headers.containsKey(location) ? headers.get(location) : readHeader(location);
+			if (entry == null && header == null)
+				continue;
+
+			long[] data = new long[BUNDLE_DATA_LENGTH];
+			if (entry != null) {
+				data[0] |= HAS_ENTRY;
+				data[1] = entry.stamp.size;
+				data[2] = entry.stamp.lastModified;
+			}
+
+			if (header != null) {
+				data[0] |= HAS_HEADER;
+				data[3] = header.stamp.size;
+				data[4] = header.stamp.lastModified;
+			}
+
+			writer.addBundle(location, header == null ? null : header.value, data);
+			if (entry != null) {
+				for (Descriptor descriptor : entry.descriptors) {
+					long[] descriptorData = new long[DESCRIPTOR_DATA_LENGTH];
+					if (descriptor.parsed)
+						descriptorData[0] |= PARSED;
+
+					if (descriptor.stamp != null) {
+						descriptorData[0] |= HAS_STAMP;
+						descriptorData[1] = descriptor.stamp.size;
+						descriptorData[2] = descriptor.stamp.lastModified;
+					}
+
+					writer.addDescriptor(descriptor.path.toPortableString(), descriptorData, descriptor.getInfo());
+				}
+			}
+		}
+
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(pendingFile));
+			try {
+				writer.write(out);
+			} finally {
+				out.close();
+			}
+
+			dirty = false;
+		} catch (IOException e) {
+			pendingFile.delete();
+			Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, String.format("Error saving descriptor cache: %s", pendingFile), e)); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Cached descriptors of a single bundle.
+	 */
+	public static class Entry {
+
+		private final String location;
+
+		private final Stamp stamp;
+
+		private final Descriptor[] descriptors;
+
+		// read from the store, rather than put
+		private final boolean stored;
+
+		Entry(String location, Stamp stamp, Descriptor[] descriptors, boolean stored) {
+			this.location = location;
+			this.stamp = stamp;
+			this.descriptors = descriptors;
+			this.stored = stored;
+		}
+
+		/**
+		 * Returns the entry's descriptors; these must not be modified directly,
+		 * but only through {@link ExternalDescriptorCache#update(Entry, int, Descriptor)}.
+		 */
+		public Descriptor[] getDescriptors() {
+			return descriptors;
+		}
+
+		boolean isCurrent(File bundleRoot) {
+			if (!stamp.equals(getStamp(bundleRoot)))
+				return false;
+
+			for (Descriptor descriptor : descriptors) {
+				if (descriptor.stamp != null && !descriptor.stamp.equals(getDescriptorStamp(bundleRoot, descriptor.path)))
+					return false;
+			}
+
+			return true;
+		}
+	}
+
+	/**
+	 * Cached {@code Service-Component} header of a single bundle.
+	 */
+	public static class Header {
+
+		private final Stamp stamp;
+
+		private final String value;
+
+		Header(Stamp stamp, String value) {
+			this.stamp = stamp;
+			this.value = value;
+		}
+
+		/**
+		 * Returns the header value.
+		 *
+		 * @return header value, or {@code null} if the bundle has none
+		 */
+		public String getValue() {
+			return value;
+		}
+	}
+
+	/**
+	 * Cached facts of a single descriptor.
+	 */
+	public static class Descriptor {
+
+		private final IPath path;
+
+		private final Stamp stamp;
+
+		private final boolean parsed;
+
+		private final DescriptorInfo info;
+
+		// store to decode facts from, if read from one
+		private final CompactDescriptorStore store;
+
+		private final int index;
+
+		/**
+		 * Creates a new descriptor.
+		 *
+		 * @param path bundle-relative descriptor path
+		 * @param stamp descriptor stamp, if in a directory bundle
+		 * @param parsed whether the descriptor was parsed, or skipped because it couldn't match the search at hand
+		 * @param info descriptor facts, or {@code null} if file contains no component (or wasn't parsed)
+		 */
+		public Descriptor(IPath path, Stamp stamp, boolean parsed, DescriptorInfo info) {
+			this.path = path;
+			this.stamp = stamp;
+			this.parsed = parsed;
+			this.info = info;
+			store = null;
+			index = -1;
+		}
+
+		Descriptor(IPath path, Stamp stamp, boolean parsed, CompactDescriptorStore store, int index) {
+			this.path = path;
+			this.stamp = stamp;
+			this.parsed = parsed;
+			this.info = null;
+			this.store = store;
+			this.index = index;
+		}
+
+		public IPath getPath() {
+			return path;
+		}
+
+		public Stamp getStamp() {
+			return stamp;
+		}
+
+		public boolean isParsed() {
+			return parsed;
+		}
+
+		/**
+		 * Returns the descriptor's facts; facts of stored descriptors are
+		 * decoded on each call.
+		 */
+		public DescriptorInfo getInfo() {
+			return store == null ? info : store.getDescriptorInfo(index);
+		}
+	}
+
+	/**
+	 * File size and modification time.
+	 */
+	public static class Stamp {
+
+		private final long size;
+
+		private final long lastModified;
+
+		public Stamp(long size, long lastModified) {
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+
+			if (!(obj instanceof Stamp))
+				return false;
+
+			Stamp other = (Stamp) obj;
+			return size == other.size && lastModified == other.lastModified;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (size ^ (size >>> 32)) * 31 + (int) (lastModified ^ (lastModified >>> 32));
+		}
+	}
+}
@@ -10,9 +10,17 @@
  *******************************************************************************/
 package ca.ecliptical.pde.ds.search;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.eclipse.core.resources.IStorage;
 import org.eclipse.core.runtime.CoreException;
@@ -21,25 +29,85 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.PlatformObject;
 import org.eclipse.core.runtime.Status;
 
+/**
+ * Descriptor file in an external bundle (JAR or directory) that isn't
+ * accessible through the Java model.
+ * <p>
+ * Entries of jarred bundles are read through {@link ZipFilePool pooled}
+ * zip file handles; files in directory bundles are memory-mapped. Identity
+ * is based on the file's URI, which is computed once.
+ * </p>
+ */
 public class ExternalDescriptorFile extends PlatformObject implements IStorage {
 
+	private final File bundleRoot;
+
 	private final IPath filePath;
 
-	private final URL url;
+	private final boolean archive;
+
+	private final String uri;
 
-	public ExternalDescriptorFile(IPath filePath, URL url) {
+	/**
+	 * Creates a new descriptor file.
+	 *
+	 * @param bundleRoot bundle JAR file or directory
+	 * @param filePath bundle-relative file path
+	 */
+	public ExternalDescriptorFile(File bundleRoot, IPath filePath) {
+		this.bundleRoot = bundleRoot;
 		this.filePath = filePath.makeAbsolute();
-		this.url = url;
+		archive = !bundleRoot.isDirectory();
+		uri = archive ? "jar:" + bundleRoot.toURI() + "!" + this.filePath : new File(bundleRoot, filePath.toString()).toURI().toString(); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
 	public InputStream getContents() throws CoreException {
 		try {
-			return url.openStream();
+			return archive ? readEntry() : readFile();
 		} catch (IOException e) {
 			throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, "Error reading storage contents.", e)); //$NON-NLS-1$
 		}
 	}
 
+	private InputStream readEntry() throws IOException {
+		ZipFilePool pool = Activator.getDefault().getZipFilePool();
+		ZipFilePool.Handle handle = pool.acquire(bundleRoot);
+		try {
+			ZipFile zipFile = handle.getZipFile();
+			ZipEntry entry = zipFile.getEntry(filePath.makeRelative().toString());
+			if (entry == null)
+				throw new FileNotFoundException(uri);
+
+			// read it all, so that the handle can be released right away
+			ByteArrayOutputStream buf = new ByteArrayOutputStream(entry.getSize() > 0 ? (int) entry.getSize() : 8192);
+			InputStream in = zipFile.getInputStream(entry);
+			try {
+				byte[] bytes = new byte[8192];
+				int count;
+				while ((count = in.read(bytes)) != -1) {
+					buf.write(bytes, 0, count);
+				}
+			} finally {
+				in.close();
+			}
+
+			return new ByteArrayInputStream(buf.toByteArray());
+		} finally {
+			pool.release(handle);
+		}
+	}
+
+	private InputStream readFile() throws IOException {
+		FileInputStream in = new FileInputStream(new File(bundleRoot, filePath.toString()));
+		try {
+			// the mapping remains valid after the channel is closed
+			FileChannel channel = in.getChannel();
+			return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			in.close();
+		}
+	}
+
 	public IPath getFullPath() {
 		return filePath;
 	}
@@ -60,16 +128,48 @@ public class ExternalDescriptorFile extends PlatformObject implements IStorage {
 		if (!(obj instanceof ExternalDescriptorFile))
 			return false;
 
-		return url.equals(((ExternalDescriptorFile) obj).url);
+		return uri.equals(((ExternalDescriptorFile) obj).uri);
 	}
 
 	@Override
 	public int hashCode() {
-		return url.hashCode();
+		return uri.hashCode();
 	}
 
 	@Override
 	public String toString() {
-		return url.toString();
+		return uri;
+	}
+
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buf;
+
+		ByteBufferInputStream(ByteBuffer buf) {
+			this.buf = buf;
+		}
+
+		@Override
+		public int read() {
+			return buf.hasRemaining() ? buf.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0)
+				return 0;
+
+			if (!buf.hasRemaining())
+				return -1;
+
+			len = Math.min(len, buf.remaining());
+			buf.get(b, off, len);
+			return len;
+		}
+
+		@Override
+		public int available() {
+			return buf.remaining();
+		}
 	}
 }
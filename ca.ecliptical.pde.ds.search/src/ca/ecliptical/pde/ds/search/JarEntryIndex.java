@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJarEntryResource;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Index of non-Java resources in package fragment roots (e.g., of external
+ * bundles), by root-relative path. Each root's index is built once, on first
+ * lookup, and kept until the Java model reports that the root (or its
+ * project's classpath) changed.
+ */
+public class JarEntryIndex implements IElementChangedListener {
+
+	private static final Debug debug = Debug.getDebug("jar-entry-index"); //$NON-NLS-1$
+
+	private final HashMap<IPackageFragmentRoot, RootIndex> roots = new HashMap<IPackageFragmentRoot, RootIndex>();
+
+	// changes with every delta, so that indexes built concurrently aren't kept
+	private long generation;
+
+	/**
+	 * Returns the non-Java resource at the given path in the given root.
+	 *
+	 * @param packageRoot existing package fragment root
+	 * @param path root-relative path
+	 * @return resource, or {@code null} if not found
+	 */
+	public IJarEntryResource findEntry(IPackageFragmentRoot packageRoot, IPath path) throws JavaModelException {
+		return getRootIndex(packageRoot).entries.get(path.makeRelative());
+	}
+
+	/**
+	 * Returns the files in the given folder of the given root.
+	 *
+	 * @param packageRoot existing package fragment root
+	 * @param folderPath root-relative folder path
+	 * @return folder files, or {@code null} if there's no such folder
+	 */
+	public IJarEntryResource[] findFiles(IPackageFragmentRoot packageRoot, IPath folderPath) throws JavaModelException {
+		return getRootIndex(packageRoot).folders.get(folderPath.makeRelative());
+	}
+
+	private RootIndex getRootIndex(IPackageFragmentRoot packageRoot) throws JavaModelException {
+		RootIndex index;
+		long generation;
+		synchronized (this) {
+			index = roots.get(packageRoot);
+			generation = this.generation;
+		}
+
+		if (index == null) {
+			index = new RootIndex(packageRoot.getNonJavaResources());
+			synchronized (this) {
+				if (generation == this.generation)
+					roots.put(packageRoot, index);
+			}
+
+			if (debug.isDebugging())
+				debug.trace(String.format("Indexed %d entries in %s", index.entries.size(), packageRoot.getPath())); //$NON-NLS-1$
+		}
+
+		return index;
+	}
+
+	public synchronized void clear() {
+		roots.clear();
+	}
+
+	public void elementChanged(ElementChangedEvent event) {
+		synchronized (this) {
+			++generation;
+			if (!roots.isEmpty())
+				processDelta(event.getDelta());
+		}
+	}
+
+	private void processDelta(IJavaElementDelta delta) {
+		IJavaElement element = delta.getElement();
+		int flags = delta.getFlags();
+		switch (element.getElementType()) {
+		case IJavaElement.JAVA_MODEL:
+			break;
+		case IJavaElement.JAVA_PROJECT:
+			if (delta.getKind() != IJavaElementDelta.CHANGED
+					|| (flags & (IJavaElementDelta.F_OPENED
+							| IJavaElementDelta.F_CLOSED
+							| IJavaElementDelta.F_CLASSPATH_CHANGED
+							| IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0) {
+				removeProject((IJavaProject) element);
+				return;
+			}
+
+			break;
+		case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			// any change to the root itself or its content
+			removeRoot((IPackageFragmentRoot) element);
+			return;
+		default:
+			return;
+		}
+
+		for (IJavaElementDelta child : delta.getAffectedChildren()) {
+			processDelta(child);
+		}
+	}
+
+	private void removeRoot(IPackageFragmentRoot packageRoot) {
+		if (roots.remove(packageRoot) != null && debug.isDebugging())
+			debug.trace(String.format("Removed index of %s", packageRoot.getPath())); //$NON-NLS-1$
+	}
+
+	private void removeProject(IJavaProject project) {
+		for (Iterator<IPackageFragmentRoot> i = roots.keySet().iterator(); i.hasNext();) {
+			if (project.equals(i.next().getJavaProject()))
+				i.remove();
+		}
+	}
+
+	private static class RootIndex {
+
+		final HashMap<IPath, IJarEntryResource> entries = new HashMap<IPath, IJarEntryResource>();
+
+		final HashMap<IPath, IJarEntryResource[]> folders = new HashMap<IPath, IJarEntryResource[]>();
+
+		RootIndex(Object[] nonJavaResources) {
+			ArrayList<IJarEntryResource> files = new ArrayList<IJarEntryResource>();
+			for (Object nonJavaResource : nonJavaResources) {
+				if (nonJavaResource instanceof IJarEntryResource) {
+					IJarEntryResource resource = (IJarEntryResource) nonJavaResource;
+					if (resource.isFile())
+						files.add(resource);
+
+					add(Path.EMPTY.append(resource.getName()), resource);
+				}
+			}
+
+			folders.put(Path.EMPTY, files.toArray(new IJarEntryResource[files.size()]));
+		}
+
+		private void add(IPath path, IJarEntryResource resource) {
+			entries.put(path, resource);
+			if (resource.isFile())
+				return;
+
+			IJarEntryResource[] children = resource.getChildren();
+			ArrayList<IJarEntryResource> files = new ArrayList<IJarEntryResource>(children.length);
+			for (IJarEntryResource child : children) {
+				if (child.isFile())
+					files.add(child);
+
+				add(path.append(child.getName()), child);
+			}
+
+			folders.put(path, files.toArray(new IJarEntryResource[files.size()]));
+		}
+	}
+}
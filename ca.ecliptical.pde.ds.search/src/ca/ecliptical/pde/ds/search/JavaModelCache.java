@@ -0,0 +1,302 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IType;
+
+/**
+ * Base class for caches of values computed from the Java model, which live
+ * across searches.
+ * <p>
+ * Each entry records the compilation units and class files of all types
+ * consulted while computing it, and is dropped as soon as any of them changes.
+ * An entry computed from another cached entry can instead name it as its
+ * parent, and is dropped along with it.
+ * Structural changes, such as added or removed compilation units or classpath
+ * changes, clear the entire cache, since they may affect how type names resolve.
+ * </p>
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public abstract class JavaModelCache<K, V> implements IElementChangedListener {
+
+	private final Debug debug;
+
+	private final HashMap<K, Entry<V>> entries = new HashMap<K, Entry<V>>();
+
+	// type root handle -> keys of entries that depend on it
+	private final HashMap<String, Set<K>> dependents = new HashMap<String, Set<K>>();
+
+	// key -> keys of entries computed from its entry
+	private final HashMap<K, Set<K>> children = new HashMap<K, Set<K>>();
+
+	private long generation;
+
+	protected JavaModelCache(Debug debug) {
+		this.debug = debug;
+	}
+
+	/**
+	 * Returns the cached entry for the given key.
+	 *
+	 * @return cached entry, or {@code null} if not cached
+	 */
+	public synchronized Entry<V> get(K key) {
+		return entries.get(key);
+	}
+
+	/**
+	 * Returns the current generation of this cache, which changes with every
+	 * invalidation. Callers should obtain it <em>before</em> computing a value
+	 * and pass it to {@link #put(Object, Object, Collection, long)}.
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Caches the given value, unless the cache was invalidated since the given generation.
+	 *
+	 * @param key cache key
+	 * @param value computed value (may be {@code null})
+	 * @param dependencies all types consulted while computing the value
+	 * @param generation cache generation at the start of computation
+	 */
+	public synchronized void put(K key, V value, Collection<IType> dependencies, long generation) {
+		put(key, value, dependencies, null, generation);
+	}
+
+	/**
+	 * Caches the given value, computed from the cached value of another key,
+	 * unless the cache was invalidated since the given generation.
+	 *
+	 * @param key cache key
+	 * @param value computed value (may be {@code null})
+	 * @param dependencies types consulted while computing the value, other than those of the parent
+	 * @param parent key of the cached entry the value was computed from, or {@code null}
+	 * @param generation cache generation at the start of computation
+	 */
+	public synchronized void put(K key, V value, Collection<IType> dependencies, K parent, long generation) {
+		if (generation != this.generation)
+			return;
+
+		if (parent != null && !entries.containsKey(parent))
+			return;
+
+		HashSet<String> roots = new HashSet<String>(dependencies.size());
+		for (IType type : dependencies) {
+			String root = getTypeRootHandle(type);
+			if (root != null)
+				roots.add(root);
+		}
+
+		remove(key);
+		entries.put(key, new Entry<V>(value, roots, parent));
+		if (parent != null) {
+			Set<K> keys = children.get(parent);
+			if (keys == null) {
+				keys = new HashSet<K>();
+				children.put(parent, keys);
+			}
+
+			keys.add(key);
+		}
+
+		for (String root : roots) {
+			Set<K> keys = dependents.get(root);
+			if (keys == null) {
+				keys = new HashSet<K>();
+				dependents.put(root, keys);
+			}
+
+			keys.add(key);
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		dependents.clear();
+		children.clear();
+		++generation;
+	}
+
+	private int remove(K key) {
+		Entry<V> entry = entries.remove(key);
+		if (entry == null)
+			return 0;
+
+		for (String root : entry.roots) {
+			Set<K> keys = dependents.get(root);
+			if (keys != null) {
+				keys.remove(key);
+				if (keys.isEmpty())
+					dependents.remove(root);
+			}
+		}
+
+		if (entry.parent != null) {
+			Set<K> keys = children.get(entry.parent);
+			if (keys != null) {
+				keys.remove(key);
+				if (keys.isEmpty())
+					children.remove(entry.parent);
+			}
+		}
+
+		int count = 1;
+		Set<K> keys = children.remove(key);
+		if (keys != null) {
+			for (K child : keys) {
+				count += remove(child);
+			}
+		}
+
+		return count;
+	}
+
+	private int invalidate(IJavaElement typeRoot) {
+		++generation;
+		Set<K> keys = dependents.remove(typeRoot.getPrimaryElement().getHandleIdentifier());
+		if (keys == null)
+			return 0;
+
+		int count = 0;
+		for (K key : new HashSet<K>(keys)) {
+			count += remove(key);
+		}
+
+		return count;
+	}
+
+	private static String getTypeRootHandle(IType type) {
+		IJavaElement root = type.getCompilationUnit();
+		if (root == null)
+			root = type.getClassFile();
+
+		return root == null ? null : root.getPrimaryElement().getHandleIdentifier();
+	}
+
+	public void elementChanged(ElementChangedEvent event) {
+		int[] count = new int[1];
+		boolean cleared;
+		synchronized (this) {
+			if (entries.isEmpty()) {
+				// still invalidates any computation in progress
+				++generation;
+				return;
+			}
+
+			cleared = !processDelta(event.getDelta(), count);
+			if (cleared)
+				clear();
+		}
+
+		if (debug.isDebugging()) {
+			if (cleared)
+				debug.trace(String.format("Cleared %s.", getClass().getSimpleName())); //$NON-NLS-1$
+			else if (count[0] > 0)
+				debug.trace(String.format("Removed %d entries from %s.", count[0], getClass().getSimpleName())); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Invalidates entries affected by the given delta.
+	 *
+	 * @return {@code false} if the entire cache must be cleared
+	 */
+	private boolean processDelta(IJavaElementDelta delta, int[] count) {
+		IJavaElement element = delta.getElement();
+		int flags = delta.getFlags();
+		switch (element.getElementType()) {
+		case IJavaElement.JAVA_MODEL:
+			break;
+		case IJavaElement.JAVA_PROJECT:
+			if (delta.getKind() != IJavaElementDelta.CHANGED
+					|| (flags & (IJavaElementDelta.F_OPENED
+							| IJavaElementDelta.F_CLOSED
+							| IJavaElementDelta.F_CLASSPATH_CHANGED
+							| IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED)) != 0)
+				return false;
+
+			break;
+		case IJavaElement.PACKAGE_FRAGMENT_ROOT:
+			if (delta.getKind() != IJavaElementDelta.CHANGED
+					|| (flags & (IJavaElementDelta.F_ADDED_TO_CLASSPATH
+							| IJavaElementDelta.F_REMOVED_FROM_CLASSPATH
+							| IJavaElementDelta.F_REORDER
+							| IJavaElementDelta.F_ARCHIVE_CONTENT_CHANGED)) != 0)
+				return false;
+
+			break;
+		case IJavaElement.PACKAGE_FRAGMENT:
+			if (delta.getKind() != IJavaElementDelta.CHANGED)
+				return false;
+
+			break;
+		case IJavaElement.COMPILATION_UNIT:
+		case IJavaElement.CLASS_FILE:
+			// new types may change how names resolve
+			if (delta.getKind() != IJavaElementDelta.CHANGED)
+				return false;
+
+			count[0] += invalidate(element);
+			return true;
+		default:
+			return true;
+		}
+
+		for (IJavaElementDelta child : delta.getAffectedChildren()) {
+			if (!processDelta(child, count))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Cached value.
+	 *
+	 * @param <V> value type
+	 */
+	public static class Entry<V> {
+
+		private final V value;
+
+		private final Set<String> roots;
+
+		private final Object parent;
+
+		Entry(V value, Set<String> roots, Object parent) {
+			this.value = value;
+			this.roots = roots;
+			this.parent = parent;
+		}
+
+		/**
+		 * Returns the cached value.
+		 *
+		 * @return cached value (may be {@code null})
+		 */
+		public V getValue() {
+			return value;
+		}
+	}
+}
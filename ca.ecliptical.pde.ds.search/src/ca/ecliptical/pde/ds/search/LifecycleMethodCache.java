@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+
+import ca.ecliptical.pde.ds.search.core.LifecycleMethodSelector;
+
+/**
+ * Cache of resolved component lifecycle (activate, modified, deactivate) and
+ * reference event (bind, unbind, updated) methods, which lives across searches.
+ * Each entry depends on all types consulted while resolving the method, such as
+ * the implementation class and its superclasses.
+ */
+public class LifecycleMethodCache extends JavaModelCache<LifecycleMethodCache.Key, IMethod> {
+
+	public LifecycleMethodCache() {
+		super(Debug.getDebug("lifecycle-cache")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Identifies a lifecycle or event method of a component implementation class.
+	 */
+	public static class Key {
+
+		private final String implClass;
+
+		private final int kind;
+
+		private final String name;
+
+		private final String referenceInterface;
+
+		private final int hashCode;
+
+		/**
+		 * Creates a new key.
+		 *
+		 * @param implClassType component implementation class
+		 * @param kind one of {@link LifecycleMethodSelector#ACTIVATE}, {@link LifecycleMethodSelector#DEACTIVATE},
+		 *            {@link LifecycleMethodSelector#BIND}, or {@link LifecycleMethodSelector#UPDATED}
+		 * @param name method name
+		 * @param referenceInterface reference interface name (bind methods only)
+		 */
+		public Key(IType implClassType, int kind, String name, String referenceInterface) {
+			this.implClass = implClassType.getHandleIdentifier();
+			this.kind = kind;
+			this.name = name;
+			this.referenceInterface = referenceInterface;
+			int result = implClass.hashCode();
+			result = result * 31 + kind;
+			result = result * 31 + name.hashCode();
+			result = result * 31 + (referenceInterface == null ? 0 : referenceInterface.hashCode());
+			hashCode = result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+
+			if (!(obj instanceof Key))
+				return false;
+
+			Key other = (Key) obj;
+			return kind == other.kind
+					&& implClass.equals(other.implClass)
+					&& name.equals(other.name)
+					&& (referenceInterface == null ? other.referenceInterface == null : referenceInterface.equals(other.referenceInterface));
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
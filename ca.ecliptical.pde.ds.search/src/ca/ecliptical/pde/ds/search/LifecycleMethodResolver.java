@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.Flags;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.Signature;
+
+import ca.ecliptical.pde.ds.search.core.LifecycleMethodSelector;
+import ca.ecliptical.pde.ds.search.core.MethodResolver;
+
+/**
+ * Provides the methods of a single component implementation class in the Java
+ * model, for {@link LifecycleMethodSelector} to select lifecycle (activate,
+ * modified, deactivate) and reference event (bind, unbind, updated) methods from.
+ * <p>
+ * The class hierarchy is walked only once, on first lookup; all eligible methods
+ * (i.e., those returning void and accessible from the implementation class) are
+ * indexed by name, and their erased and resolved parameter types are computed
+ * once per method as needed.
+ * </p>
+ */
+public class LifecycleMethodResolver implements MethodResolver<IMethod, JavaModelException> {
+
+	private static final String VOID_SIG = Signature.createTypeSignature("void", true); //$NON-NLS-1$
+
+	private final IType implClassType;
+
+	private final IJavaProject project;
+
+	private final SupertypeChainCache supertypes;
+
+	private final TypeResolutionCache typeCache;
+
+	private final IProgressMonitor monitor;
+
+	// all types consulted so far
+	private final LinkedHashSet<IType> dependencies = new LinkedHashSet<IType>();
+
+	// eligible methods by name, subclass methods first
+	private HashMap<String, List<IMethod>> methods;
+
+	private final HashMap<IMethod, String[]> paramTypes = new HashMap<IMethod, String[]>();
+
+	/**
+	 * Creates a new resolver.
+	 *
+	 * @param implClassType component implementation class
+	 * @param supertypes superclass chain cache
+	 * @param typeCache type cache of the current search
+	 * @param monitor progress monitor for type lookups
+	 */
+	public LifecycleMethodResolver(IType implClassType, SupertypeChainCache supertypes, TypeResolutionCache typeCache, IProgressMonitor monitor) {
+		this.implClassType = implClassType;
+		this.project = implClassType.getJavaProject();
+		this.supertypes = supertypes;
+		this.typeCache = typeCache;
+		this.monitor = monitor;
+	}
+
+	public IType getImplementationType() {
+		return implClassType;
+	}
+
+	/**
+	 * Returns all types consulted by lookups so far, i.e., the types whose
+	 * changes could affect their results.
+	 */
+	public Collection<IType> getDependencies() {
+		return Collections.unmodifiableCollection(dependencies);
+	}
+
+	public List<IMethod> getCandidates(String name) throws JavaModelException {
+		if (methods == null) {
+			methods = new HashMap<String, List<IMethod>>();
+			for (IType type : supertypes.getChain(implClassType, typeCache, monitor).getTypes()) {
+				dependencies.add(type);
+				for (IMethod method : type.getMethods()) {
+					if (!VOID_SIG.equals(method.getReturnType()))
+						continue;
+
+					if (!type.equals(implClassType)
+							&& (Flags.isPrivate(method.getFlags())
+									|| (Flags.isPackageDefault(method.getFlags())
+											&& !implClassType.getPackageFragment().equals(method.getDeclaringType().getPackageFragment()))))
+						continue;
+
+					List<IMethod> candidates = methods.get(method.getElementName());
+					if (candidates == null) {
+						candidates = new ArrayList<IMethod>(1);
+						methods.put(method.getElementName(), candidates);
+					}
+
+					candidates.add(method);
+				}
+			}
+		}
+
+		List<IMethod> candidates = methods.get(name);
+		return candidates == null ? Collections.<IMethod> emptyList() : candidates;
+	}
+
+	/**
+	 * Returns the method's erased, and if necessary resolved, parameter type names.
+	 */
+	public String[] getParameterTypes(IMethod method) throws JavaModelException {
+		String[] result = paramTypes.get(method);
+		if (result == null) {
+			String[] sigs = method.getParameterTypes();
+			result = new String[sigs.length];
+			boolean resolved = method.isResolved();
+			for (int i = 0; i < sigs.length; ++i) {
+				result[i] = Signature.toString(Signature.getTypeErasure(sigs[i]));
+				if (!resolved) {
+					String[][] resolvedParamTypes = method.getDeclaringType().resolveType(result[i]);
+					if (resolvedParamTypes != null && resolvedParamTypes.length > 0) {
+						// TODO should we use all results??
+						result[i] = resolvedParamTypes[0][0].length() == 0 ? resolvedParamTypes[0][1] : resolvedParamTypes[0][0] + '.' + resolvedParamTypes[0][1];
+					}
+				}
+			}
+
+			paramTypes.put(method, result);
+		}
+
+		return result;
+	}
+
+	public boolean isSuperclass(String typeName, String superclassName) throws JavaModelException {
+		IType superclass = typeCache.findType(project, superclassName, monitor);
+		if (superclass == null)
+			return false;
+
+		IType type = typeCache.findType(project, typeName, monitor);
+		if (type == null)
+			return false;
+
+		SupertypeChainCache.Chain chain = supertypes.getChain(type, typeCache, monitor);
+		dependencies.addAll(chain.getTypes());
+		return chain.contains(superclass);
+	}
+}
@@ -18,6 +18,10 @@ public class Messages extends NLS {
 
 	public static String DescriptorQueryParticipant_taskName;
 
+	public static String ComponentGraphIndex_taskName;
+
+	public static String WarmUpJob_name;
+
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import org.eclipse.core.runtime.PerformanceStats;
+
+/**
+ * Timed search phase, reported through {@link PerformanceStats} (e.g., to the
+ * Performance view, or as failures when over threshold). An event is enabled
+ * when performance monitoring is enabled for the platform and the event's own
+ * debug option is set to a threshold, in milliseconds.
+ * <p>
+ * Each run is reported with a blame object (e.g., the bundle being searched)
+ * and a context (e.g., the descriptor path), so that runs can be broken down
+ * by either.
+ * </p>
+ */
+public class PerformanceEvent {
+
+	private final String name;
+
+	private final boolean enabled;
+
+	private PerformanceEvent(String name) {
+		this.name = name;
+		enabled = PerformanceStats.isEnabled(name);
+	}
+
+	public static PerformanceEvent getEvent(String name) {
+		return new PerformanceEvent(Activator.PLUGIN_ID + "/perf/" + name); //$NON-NLS-1$
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts a run of this event.
+	 *
+	 * @return start time to {@link #end(long, Object, Object) end} the run with
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * Ends a run of this event; runs may overlap (e.g., in concurrent bundle searches).
+	 *
+	 * @param start start time of the run
+	 * @param blame object responsible for the run
+	 * @param context run context; converted to a string only if enabled
+	 */
+	public void end(long start, Object blame, Object context) {
+		if (!enabled)
+			return;
+
+		long elapsed = (System.nanoTime() - start) / 1000000L;
+		PerformanceStats stats = PerformanceStats.getStats(name, blame);
+		synchronized (stats) {
+			stats.addRun(elapsed, String.valueOf(context));
+		}
+	}
+}
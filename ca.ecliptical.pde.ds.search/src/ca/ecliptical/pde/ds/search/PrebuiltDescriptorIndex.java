@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import ca.ecliptical.pde.ds.search.core.BundleDescriptorSource;
+import ca.ecliptical.pde.ds.search.core.PrebuiltIndex;
+
+/**
+ * Descriptor facts of external bundles from prebuilt indexes (see
+ * {@link PrebuiltIndex}), e.g., generated along with the target platform.
+ * A bundle's prebuilt facts are matched by file name, and only used if the
+ * bundle's identity matches the one it was indexed with (see
+ * {@link PrebuiltIndex.Bundle#matches(File, String, String, String)}); archives
+ * are opened only to compare the CRC-32s in their central directory.
+ * <p>
+ * Indexes are loaded on first use; if more than one contains the same bundle,
+ * the first one wins.
+ * </p>
+ */
+public class PrebuiltDescriptorIndex {
+
+	private static final Debug debug = Debug.getDebug("prebuilt-index"); //$NON-NLS-1$
+
+	private final List<File> indexFiles;
+
+	private HashMap<String, PrebuiltIndex.Bundle> bundles;
+
+	/**
+	 * Creates a new index.
+	 *
+	 * @param indexFiles prebuilt index files, in order of precedence
+	 */
+	public PrebuiltDescriptorIndex(List<File> indexFiles) {
+		this.indexFiles = indexFiles;
+	}
+
+	/**
+	 * Returns the prebuilt facts of the bundle at the given location.
+	 *
+	 * @param bundleRoot bundle install location
+	 * @param symbolicName the bundle's symbolic name
+	 * @param version the bundle's version
+	 * @param header the bundle's {@code Service-Component} header
+	 * @return bundle facts, or {@code null} if not indexed or the bundle doesn't match
+	 */
+	public PrebuiltIndex.Bundle get(File bundleRoot, String symbolicName, String version, String header) {
+		PrebuiltIndex.Bundle bundle = find(bundleRoot, symbolicName, version, header);
+		if (bundle == null)
+			return null;
+
+		if (bundleRoot.isDirectory())
+			return matchesContents(bundle, new BundleDescriptorSource(bundleRoot)) ? bundle : null;
+
+		// shares the archive with searches, rather than opening it again
+		ZipFilePool pool = Activator.getDefault().getZipFilePool();
+		ZipFilePool.Handle handle = pool.acquire(bundleRoot);
+		try {
+			return matchesContents(bundle, new BundleDescriptorSource(bundleRoot, handle.getZipFile())) ? bundle : null;
+		} catch (IOException e) {
+			if (debug.isDebugging())
+				debug.trace(String.format("Error opening bundle: %s", bundleRoot), e); //$NON-NLS-1$
+
+			return null;
+		} finally {
+			pool.release(handle);
+		}
+	}
+
+	/**
+	 * Returns the prebuilt facts of the given bundle, which is read from the
+	 * given, already open source.
+	 *
+	 * @param source bundle to look up
+	 * @param symbolicName the bundle's symbolic name
+	 * @param version the bundle's version
+	 * @param header the bundle's {@code Service-Component} header
+	 * @return bundle facts, or {@code null} if not indexed or the bundle doesn't match
+	 */
+	public PrebuiltIndex.Bundle get(BundleDescriptorSource source, String symbolicName, String version, String header) {
+		PrebuiltIndex.Bundle bundle = find(source.getLocation(), symbolicName, version, header);
+		return bundle != null && matchesContents(bundle, source) ? bundle : null;
+	}
+
+	private PrebuiltIndex.Bundle find(File bundleRoot, String symbolicName, String version, String header) {
+		if (indexFiles.isEmpty())
+			return null;
+
+		PrebuiltIndex.Bundle bundle;
+		synchronized (this) {
+			bundle = getBundles().get(bundleRoot.getName());
+		}
+
+		if (bundle == null)
+			return null;
+
+		if (!bundle.matches(bundleRoot, symbolicName, PrebuiltIndex.normalizeVersion(version), header)) {
+			if (debug.isDebugging())
+				debug.trace(String.format("Bundle doesn't match prebuilt index: %s", bundleRoot)); //$NON-NLS-1$
+
+			return null;
+		}
+
+		return bundle;
+	}
+
+	private static boolean matchesContents(PrebuiltIndex.Bundle bundle, BundleDescriptorSource source) {
+		try {
+			if (bundle.matchesContents(source))
+				return true;
+
+			if (debug.isDebugging())
+				debug.trace(String.format("Bundle contents don't match prebuilt index: %s", source.getLocation())); //$NON-NLS-1$
+		} catch (IOException e) {
+			if (debug.isDebugging())
+				debug.trace(String.format("Error reading bundle: %s", source.getLocation()), e); //$NON-NLS-1$
+		}
+
+		return false;
+	}
+
+	private HashMap<String, PrebuiltIndex.Bundle> getBundles() {
+		if (bundles != null)
+			return bundles;
+
+		bundles = new HashMap<String, PrebuiltIndex.Bundle>();
+		for (File indexFile : indexFiles) {
+			PrebuiltIndex index;
+			try {
+				InputStream in = new BufferedInputStream(new FileInputStream(indexFile));
+				try {
+					index = PrebuiltIndex.read(in);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, String.format("Error loading prebuilt descriptor index: %s", indexFile), e)); //$NON-NLS-1$
+				continue;
+			}
+
+			for (PrebuiltIndex.Bundle bundle : index.getBundles()) {
+				if (!bundles.containsKey(bundle.getName()))
+					bundles.put(bundle.getName(), bundle);
+			}
+
+			if (debug.isDebugging())
+				debug.trace(String.format("Loaded %d bundle(s) from prebuilt index: %s", index.getBundles().size(), indexFile)); //$NON-NLS-1$
+		}
+
+		return bundles;
+	}
+}
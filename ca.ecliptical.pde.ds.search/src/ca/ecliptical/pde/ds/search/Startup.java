@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.ui.IStartup;
+
+/**
+ * Schedules the {@link WarmUpJob} once the workbench has started, unless
+ * disabled by the {@link Activator#PREF_WARM_UP} preference.
+ */
+public class Startup implements IStartup {
+
+	public void earlyStartup() {
+		if (Platform.getPreferencesService().getBoolean(Activator.PLUGIN_ID, Activator.PREF_WARM_UP, true, null))
+			new WarmUpJob().schedule(WarmUpJob.STARTUP_DELAY);
+	}
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+import org.eclipse.jdt.core.Signature;
+
+/**
+ * Cache of superclass chains, keyed by type handle. Chains are computed once
+ * per type and share their cached tails, so that the common superclasses of
+ * many types (e.g., abstract framework base classes) are only resolved once.
+ */
+public class SupertypeChainCache extends JavaModelCache<String, SupertypeChainCache.Chain> {
+
+	public SupertypeChainCache() {
+		super(Debug.getDebug("supertype-cache")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the superclass chain of the given type. Superclasses are resolved
+	 * in the context of the project that contains each subclass.
+	 *
+	 * @param type type whose chain to return
+	 * @param typeCache type cache of the current search
+	 * @param monitor progress monitor for type lookups
+	 * @return superclass chain, starting with the type itself
+	 */
+	public Chain getChain(IType type, TypeResolutionCache typeCache, IProgressMonitor monitor) throws JavaModelException {
+		long generation = getGeneration();
+		ArrayList<IType> types = new ArrayList<IType>();
+		HashSet<IType> visited = new HashSet<IType>();
+		Chain tail = null;
+		while (type != null) {
+			Entry<Chain> entry = get(type.getHandleIdentifier());
+			if (entry != null) {
+				tail = entry.getValue();
+				break;
+			}
+
+			// stop at cycles in broken code
+			if (!visited.add(type))
+				break;
+
+			types.add(type);
+			type = findSuperclassType(type, typeCache, monitor);
+		}
+
+		if (types.isEmpty())
+			return tail;
+
+		// cache each newly resolved suffix of the chain; each depends on its own
+		// type, and on its tail's entry, so it's dropped when any superclass changes
+		HashMap<IType, Integer> depths = tail == null ? new HashMap<IType, Integer>() : new HashMap<IType, Integer>(tail.depths);
+		int tailSize = tail == null ? 0 : tail.size;
+		// complete before any chain is published
+		for (int i = types.size() - 1; i >= 0; --i) {
+			depths.put(types.get(i), Integer.valueOf(tailSize + types.size() - i));
+		}
+
+		Chain chain = tail;
+		for (int i = types.size() - 1; i >= 0; --i) {
+			IType head = types.get(i);
+			chain = new Chain(head, chain, depths);
+			put(head.getHandleIdentifier(), chain, Collections.singleton(head), chain.tail == null ? null : chain.tail.head.getHandleIdentifier(), generation);
+		}
+
+		return chain;
+	}
+
+	private static IType findSuperclassType(IType type, TypeResolutionCache typeCache, IProgressMonitor monitor) throws JavaModelException, IllegalArgumentException {
+		String superSig = type.getSuperclassTypeSignature();
+		if (superSig == null)
+			return null;
+
+		String superName = Signature.toString(Signature.getTypeErasure(superSig));
+		if (type.isResolved())
+			return typeCache.findType(type.getJavaProject(), superName, monitor);
+
+		String[][] resolvedNames = type.resolveType(superName);
+		if (resolvedNames == null || resolvedNames.length == 0)
+			return null;
+
+		return typeCache.findType(type.getJavaProject(), resolvedNames[0][0], resolvedNames[0][1], monitor);
+	}
+
+	/**
+	 * Type and its (resolvable) superclasses; chains are linked lists, whose
+	 * tails are the cached chains of their superclasses.
+	 * <p>
+	 * All chains built at once share a map of their types to their depths
+	 * (i.e., the sizes of their own chains), which also includes the types of
+	 * the tail they were built on; a type is in a chain if it's in the map at
+	 * a depth no greater than the chain's.
+	 * </p>
+	 */
+	public static class Chain {
+
+		private final IType head;
+
+		private final Chain tail;
+
+		private final int size;
+
+		private final Map<IType, Integer> depths;
+
+		Chain(IType head, Chain tail, Map<IType, Integer> depths) {
+			this.head = head;
+			this.tail = tail;
+			this.depths = depths;
+			size = tail == null ? 1 : tail.size + 1;
+		}
+
+		/**
+		 * Returns the type followed by its superclasses, most specific first.
+		 */
+		public List<IType> getTypes() {
+			IType[] types = new IType[size];
+			int i = 0;
+			for (Chain chain = this; chain != null; chain = chain.tail) {
+				types[i++] = chain.head;
+			}
+
+			return Collections.unmodifiableList(Arrays.asList(types));
+		}
+
+		/**
+		 * Tests whether the given type is this chain's type or one of its superclasses.
+		 */
+		public boolean contains(IType type) {
+			Integer depth = depths.get(type);
+			return depth != null && depth.intValue() <= size;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Memoizes {@link IJavaProject#findType(String, IProgressMonitor)} lookups
+ * for the duration of a single search, including types that could not be found.
+ * Safe for use by concurrent bundle searches.
+ */
+public class TypeResolutionCache {
+
+	// marks types that couldn't be found
+	private static final Object NONE = new Object();
+
+	private final ConcurrentMap<IJavaProject, ConcurrentMap<String, Object>> projects = new ConcurrentHashMap<IJavaProject, ConcurrentMap<String, Object>>();
+
+	private final AtomicInteger hits = new AtomicInteger();
+
+	private final AtomicInteger misses = new AtomicInteger();
+
+	/**
+	 * Finds a type by its fully qualified name.
+	 *
+	 * @see IJavaProject#findType(String, IProgressMonitor)
+	 */
+	public IType findType(IJavaProject project, String fullyQualifiedName, IProgressMonitor monitor) throws JavaModelException {
+		ConcurrentMap<String, Object> types = getTypes(project);
+		Object result = types.get(fullyQualifiedName);
+		if (result == null) {
+			misses.incrementAndGet();
+			IType type = project.findType(fullyQualifiedName, monitor);
+			types.put(fullyQualifiedName, type == null ? NONE : type);
+			return type;
+		}
+
+		hits.incrementAndGet();
+		return result == NONE ? null : (IType) result;
+	}
+
+	/**
+	 * Finds a type by its package and type-qualified name.
+	 *
+	 * @see IJavaProject#findType(String, String, IProgressMonitor)
+	 */
+	public IType findType(IJavaProject project, String packageName, String typeQualifiedName, IProgressMonitor monitor) throws JavaModelException {
+		// separator can't be part of either name
+		String key = packageName + '/' + typeQualifiedName;
+		ConcurrentMap<String, Object> types = getTypes(project);
+		Object result = types.get(key);
+		if (result == null) {
+			misses.incrementAndGet();
+			IType type = project.findType(packageName, typeQualifiedName, monitor);
+			types.put(key, type == null ? NONE : type);
+			return type;
+		}
+
+		hits.incrementAndGet();
+		return result == NONE ? null : (IType) result;
+	}
+
+	private ConcurrentMap<String, Object> getTypes(IJavaProject project) {
+		ConcurrentMap<String, Object> types = projects.get(project);
+		if (types == null) {
+			types = new ConcurrentHashMap<String, Object>();
+			ConcurrentMap<String, Object> existing = projects.putIfAbsent(project, types);
+			if (existing != null)
+				types = existing;
+		}
+
+		return types;
+	}
+
+	public int getHits() {
+		return hits.get();
+	}
+
+	public int getMisses() {
+		return misses.get();
+	}
+}
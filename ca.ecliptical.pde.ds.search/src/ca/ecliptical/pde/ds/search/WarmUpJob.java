@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Collection;
+
+import org.eclipse.core.filebuffers.FileBuffers;
+import org.eclipse.core.filebuffers.LocationKind;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobManager;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.osgi.service.resolver.BundleDescription;
+import org.eclipse.pde.core.plugin.IPluginModelBase;
+import org.eclipse.pde.core.plugin.PluginRegistry;
+import org.eclipse.pde.internal.core.PDECore;
+import org.eclipse.pde.internal.core.SearchablePluginsManager;
+import org.eclipse.pde.internal.core.ibundle.IBundlePluginModelBase;
+
+import ca.ecliptical.pde.ds.search.ExternalDescriptorCache.Stamp;
+import ca.ecliptical.pde.ds.search.core.BundleDescriptorSource;
+import ca.ecliptical.pde.ds.search.core.DescriptorExtractor;
+import ca.ecliptical.pde.ds.search.core.DescriptorScanner;
+
+/**
+ * Pre-loads the data that DS-aware searches need, so that the first search
+ * after startup doesn't pay for it: the bundle model index, each bundle's
+ * {@code Service-Component} header, the facts of all workspace and external
+ * descriptors, the Java models of workspace bundle projects and the External
+ * Plug-in Search project, and the jar entry listings of searchable external bundles.
+ * <p>
+ * The job waits for any running build to complete before it starts, and again
+ * before each bundle, pausing briefly between bundles. Anything already
+ * cached (e.g., by a search that got there first) is skipped.
+ * </p>
+ */
+@SuppressWarnings("restriction")
+public class WarmUpJob extends Job {
+
+	/**
+	 * Job family of the warm-up job.
+	 */
+	public static final Object FAMILY = WarmUpJob.class;
+
+	/**
+	 * Delay after workbench startup before the job runs, in milliseconds.
+	 */
+	public static final long STARTUP_DELAY = 5000L;
+
+	private static final Debug debug = Debug.getDebug("warm-up"); //$NON-NLS-1$
+
+	// pause between bundles, in milliseconds
+	private static final long THROTTLE_DELAY = 20L;
+
+	private final DescriptorExtractor extractor = new DescriptorExtractor(null);
+
+	public WarmUpJob() {
+		super(Messages.WarmUpJob_name);
+		setSystem(true);
+		setPriority(DECORATE);
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return family == FAMILY;
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		Activator activator = Activator.getDefault();
+		if (activator == null)
+			return Status.CANCEL_STATUS;
+
+		long start = System.currentTimeMillis();
+		try {
+			waitForBuild(monitor);
+
+			// blocks until the target platform is resolved
+			IPluginModelBase[] wsModels = PluginRegistry.getWorkspaceModels();
+			IPluginModelBase[] exModels = PluginRegistry.getExternalModels();
+
+			monitor.beginTask(getName(), wsModels.length + exModels.length + 1);
+			activator.getBundleModelIndex().getWorkspaceModel(Path.ROOT);
+			monitor.worked(1);
+
+			WorkspaceDescriptorIndex index = activator.getDescriptorIndex();
+			for (IPluginModelBase model : wsModels) {
+				throttle(monitor);
+				try {
+					warmUp(model, index, monitor);
+				} catch (CoreException e) {
+					if (debug.isDebugging())
+						debug.trace(String.format("Error warming up workspace model: %s", model), e); //$NON-NLS-1$
+				}
+
+				monitor.worked(1);
+			}
+
+			SearchablePluginsManager spm = PDECore.getDefault().getSearchablePluginsManager();
+			IJavaProject javaProject;
+			try {
+				javaProject = spm.getProxyProject();
+				if (javaProject != null && javaProject.exists())
+					javaProject.open(monitor);
+				else
+					javaProject = null;
+			} catch (CoreException e) {
+				if (debug.isDebugging())
+					debug.trace("Error opening External Plug-in Search project.", e); //$NON-NLS-1$
+
+				javaProject = null;
+			}
+
+			ExternalDescriptorCache cache = activator.getExternalDescriptorCache();
+			JarEntryIndex jarEntryIndex = activator.getJarEntryIndex();
+			for (IPluginModelBase model : exModels) {
+				throttle(monitor);
+				try {
+					warmUp(model, spm, javaProject, cache, jarEntryIndex);
+				} catch (CoreException e) {
+					if (debug.isDebugging())
+						debug.trace(String.format("Error warming up external model: %s", model.getInstallLocation()), e); //$NON-NLS-1$
+				} catch (IOException e) {
+					if (debug.isDebugging())
+						debug.trace(String.format("Error warming up external model: %s", model.getInstallLocation()), e); //$NON-NLS-1$
+				}
+
+				monitor.worked(1);
+			}
+		} catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} finally {
+			monitor.done();
+			if (debug.isDebugging())
+				debug.trace(String.format("Warm-up finished in %d ms.", System.currentTimeMillis() - start)); //$NON-NLS-1$
+		}
+
+		return Status.OK_STATUS;
+	}
+
+	private void warmUp(IPluginModelBase model, WorkspaceDescriptorIndex index, IProgressMonitor monitor) throws CoreException {
+		if (!model.isEnabled() || !(model instanceof IBundlePluginModelBase))
+			return;
+
+		IProject project = model.getUnderlyingResource().getProject();
+		if (!project.isAccessible() || !project.hasNature(JavaCore.NATURE_ID))
+			return;
+
+		JavaCore.create(project).open(monitor);
+
+		String header = DescriptorQueryParticipant.getServiceComponentHeader((IBundlePluginModelBase) model, project);
+		if (header == null)
+			return;
+
+		IFile[] files = index.getDescriptorFiles(project, header);
+		if (files == null) {
+			Collection<IFile> resolved = DescriptorQueryParticipant.resolveDescriptorFiles(project, header);
+			index.putDescriptorFiles(project, header, resolved);
+			files = resolved.toArray(new IFile[resolved.size()]);
+		}
+
+		for (IFile file : files) {
+			// descriptors open in an editor are left to the search
+			if (!file.exists() || index.isIndexed(file) || FileBuffers.getTextFileBufferManager().getTextFileBuffer(file.getFullPath(), LocationKind.IFILE) != null)
+				continue;
+
+			Charset charset;
+			try {
+				charset = Charset.forName(file.getCharset());
+			} catch (IllegalArgumentException e) {
+				continue;
+			}
+
+			long stamp = file.getModificationStamp();
+			DescriptorScanner scanner = DescriptorScanner.getDefault();
+			try {
+				InputStream in = file.getContents();
+				try {
+					scanner.read(in);
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				if (debug.isDebugging())
+					debug.trace(String.format("Error reading component descriptor: %s", file.getFullPath()), e); //$NON-NLS-1$
+
+				continue;
+			}
+
+			index.putDescriptor(file, stamp, scanner.scan(charset));
+		}
+	}
+
+	private void warmUp(IPluginModelBase model, SearchablePluginsManager spm, IJavaProject javaProject, ExternalDescriptorCache cache, JarEntryIndex jarEntryIndex) throws CoreException, IOException {
+		String location = model.getInstallLocation();
+		BundleDescription bd;
+		if (!model.isEnabled() || (bd = model.getBundleDescription()) == null || location == null)
+			return;
+
+		File bundleRoot = new File(location);
+		Stamp stamp = ExternalDescriptorCache.getStamp(bundleRoot);
+		String header = DescriptorQueryParticipant.getServiceComponentHeader(model, bundleRoot, stamp, cache);
+		if (header == null)
+			return;
+
+		if (cache.get(location) == null) {
+			if (bundleRoot.isDirectory()) {
+				cache.put(location, stamp, extractor.extract(new BundleDescriptorSource(bundleRoot)));
+			} else {
+				// shares the archive with searches, rather than opening it again
+				ZipFilePool pool = Activator.getDefault().getZipFilePool();
+				ZipFilePool.Handle handle = pool.acquire(bundleRoot);
+				try {
+					cache.put(location, stamp, extractor.extract(new BundleDescriptorSource(bundleRoot, handle.getZipFile())));
+				} finally {
+					pool.release(handle);
+				}
+			}
+		}
+
+		// searches resolve descriptors of searchable bundles through their package fragment roots
+		if (javaProject != null && spm.isInJavaSearch(bd.getSymbolicName())) {
+			IPackageFragmentRoot packageRoot = javaProject.getPackageFragmentRoot(bundleRoot.getAbsolutePath());
+			if (packageRoot.exists())
+				jarEntryIndex.findFiles(packageRoot, Path.EMPTY);
+		}
+	}
+
+	/**
+	 * Waits for any running builds to complete.
+	 *
+	 * @throws OperationCanceledException if canceled while waiting
+	 */
+	private void waitForBuild(IProgressMonitor monitor) {
+		IJobManager jobManager = Job.getJobManager();
+		try {
+			jobManager.join(ResourcesPlugin.FAMILY_MANUAL_BUILD, monitor);
+			jobManager.join(ResourcesPlugin.FAMILY_AUTO_BUILD, monitor);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+	}
+
+	private void throttle(IProgressMonitor monitor) {
+		if (monitor.isCanceled())
+			throw new OperationCanceledException();
+
+		waitForBuild(monitor);
+		try {
+			Thread.sleep(THROTTLE_DELAY);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OperationCanceledException();
+		}
+	}
+}
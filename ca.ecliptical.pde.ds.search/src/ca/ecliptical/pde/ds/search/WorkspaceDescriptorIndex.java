@@ -0,0 +1,355 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo;
+
+/**
+ * Workspace-level index of component descriptor facts, keyed by descriptor file.
+ * Also maintains an inverted index of the (lower-case) simple type and method names
+ * each descriptor refers to, so that searches only need to consider descriptors
+ * that could possibly match.
+ * <p>
+ * Descriptor entries are validated against the file's modification stamp and
+ * are dropped as soon as a resource delta indicates they changed. Lists of
+ * descriptor files per project are only kept for the current session, and are
+ * dropped whenever the project's manifest changes or files are added or removed.
+ * </p>
+ * <p>
+ * The index is saved along with the workspace, including its periodic
+ * snapshots, so that little of it is lost if the workbench doesn't shut
+ * down cleanly. It's loaded when first needed, rather than when the plug-in
+ * is activated.
+ * </p>
+ */
+public class WorkspaceDescriptorIndex implements IResourceChangeListener {
+
+	private static final Debug debug = Debug.getDebug("workspace-index"); //$NON-NLS-1$
+
+	private static final int VERSION = 2;
+
+	private static final String MANIFEST_NAME = "MANIFEST.MF"; //$NON-NLS-1$
+
+	private final File indexFile;
+
+	private final IWorkspaceRoot root;
+
+	private final HashMap<IPath, Entry> entries = new HashMap<IPath, Entry>();
+
+	private final HashMap<String, Set<IPath>> postings = new HashMap<String, Set<IPath>>();
+
+	private final HashMap<String, ProjectEntry> projects = new HashMap<String, ProjectEntry>();
+
+	private boolean loaded;
+
+	private boolean dirty;
+
+	public WorkspaceDescriptorIndex(IWorkspaceRoot root, File indexFile) {
+		this.root = root;
+		this.indexFile = indexFile;
+	}
+
+	/**
+	 * Returns the cached descriptor files for the given project, as long as
+	 * they were resolved from the same {@code Service-Component} header and
+	 * the project hasn't changed since.
+	 *
+	 * @return cached descriptor files, or {@code null} if unknown
+	 */
+	public synchronized IFile[] getDescriptorFiles(IProject project, String header) {
+		ProjectEntry entry = projects.get(project.getName());
+		if (entry == null || !entry.header.equals(header))
+			return null;
+
+		return entry.files;
+	}
+
+	public synchronized void putDescriptorFiles(IProject project, String header, Collection<IFile> files) {
+		projects.put(project.getName(), new ProjectEntry(header, files.toArray(new IFile[files.size()])));
+	}
+
+	/**
+	 * Returns the indexed facts for the given descriptor file.
+	 *
+	 * @return descriptor facts, or {@code null} if the file isn't indexed or changed since
+	 */
+	public synchronized DescriptorInfo getDescriptor(IFile file) {
+		ensureLoaded();
+		Entry entry = getCurrentEntry(file);
+		return entry == null ? null : entry.info;
+	}
+
+	/**
+	 * Indicates whether the given descriptor file is indexed and current;
+	 * a file that is indexed and does not appear in {@link #findCandidates(Set)}
+	 * cannot possibly match.
+	 */
+	public synchronized boolean isIndexed(IFile file) {
+		ensureLoaded();
+		return getCurrentEntry(file) != null;
+	}
+
+	private Entry getCurrentEntry(IFile file) {
+		Entry entry = entries.get(file.getFullPath());
+		if (entry == null)
+			return null;
+
+		if (entry.stamp != file.getModificationStamp()) {
+			removeEntry(file.getFullPath());
+			return null;
+		}
+
+		return entry;
+	}
+
+	public synchronized void putDescriptor(IFile file, long stamp, DescriptorInfo info) {
+		ensureLoaded();
+		IPath path = file.getFullPath();
+		removeEntry(path);
+		Entry entry = new Entry(stamp, info);
+		entries.put(path, entry);
+		addPostings(path, entry);
+		dirty = true;
+	}
+
+	/**
+	 * Returns paths of indexed descriptors that refer to any of the given
+	 * lower-case simple type or method names.
+	 */
+	public synchronized Set<IPath> findCandidates(Set<String> tokens) {
+		ensureLoaded();
+		HashSet<IPath> result = new HashSet<IPath>();
+		for (String token : tokens) {
+			Set<IPath> paths = postings.get(token);
+			if (paths != null)
+				result.addAll(paths);
+		}
+
+		return result;
+	}
+
+	private void addPostings(IPath path, Entry entry) {
+		for (String token : entry.tokens) {
+			Set<IPath> paths = postings.get(token);
+			if (paths == null) {
+				paths = new HashSet<IPath>();
+				postings.put(token, paths);
+			}
+
+			paths.add(path);
+		}
+	}
+
+	private void removeEntry(IPath path) {
+		Entry entry = entries.remove(path);
+		if (entry == null)
+			return;
+
+		for (String token : entry.tokens) {
+			Set<IPath> paths = postings.get(token);
+			if (paths != null) {
+				paths.remove(path);
+				if (paths.isEmpty())
+					postings.remove(token);
+			}
+		}
+
+		dirty = true;
+	}
+
+	private void removeProject(IProject project) {
+		projects.remove(project.getName());
+		IPath projectPath = project.getFullPath();
+		for (IPath path : new HashSet<IPath>(entries.keySet())) {
+			if (projectPath.isPrefixOf(path))
+				removeEntry(path);
+		}
+	}
+
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null)
+			return;
+
+		try {
+			synchronized (this) {
+				delta.accept(new IResourceDeltaVisitor() {
+					public boolean visit(IResourceDelta delta) throws CoreException {
+						IResource resource = delta.getResource();
+						switch (resource.getType()) {
+						case IResource.PROJECT:
+							if (delta.getKind() == IResourceDelta.REMOVED || (delta.getFlags() & IResourceDelta.OPEN) != 0) {
+								removeProject((IProject) resource);
+								return false;
+							}
+
+							return true;
+						case IResource.FILE:
+							if (delta.getKind() == IResourceDelta.ADDED || delta.getKind() == IResourceDelta.REMOVED) {
+								// may affect wildcard descriptor paths
+								projects.remove(resource.getProject().getName());
+								removeEntry(resource.getFullPath());
+							} else if ((delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0) {
+								if (MANIFEST_NAME.equals(resource.getName()))
+									projects.remove(resource.getProject().getName());
+
+								removeEntry(resource.getFullPath());
+							}
+
+							return false;
+						default:
+							return true;
+						}
+					}
+				});
+			}
+		} catch (CoreException e) {
+			Activator.getDefault().getLog().log(e.getStatus());
+		}
+	}
+
+	private void ensureLoaded() {
+		if (!loaded) {
+			loaded = true;
+			load();
+		}
+	}
+
+	/**
+	 * Loads previously saved descriptor facts; entries whose files changed
+	 * in the meantime are discarded. Changes reported before then needn't
+	 * be replayed, since entries are validated against modification stamps.
+	 */
+	private void load() {
+		if (!indexFile.isFile())
+			return;
+
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+			try {
+				if (in.readInt() != VERSION) {
+					if (debug.isDebugging())
+						debug.trace(String.format("Discarding incompatible index: %s", indexFile)); //$NON-NLS-1$
+
+					return;
+				}
+
+				for (int i = 0, n = in.readInt(); i < n; ++i) {
+					IPath path = Path.fromPortableString(in.readUTF());
+					long stamp = in.readLong();
+					DescriptorInfo info = in.readBoolean() ? DescriptorInfo.read(in) : null;
+					IFile file = root.getFile(path);
+					if (file.getModificationStamp() == stamp) {
+						Entry entry = new Entry(stamp, info);
+						entries.put(path, entry);
+						addPostings(path, entry);
+					}
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			entries.clear();
+			postings.clear();
+			Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, String.format("Error loading descriptor index: %s", indexFile), e)); //$NON-NLS-1$
+		}
+
+		if (debug.isDebugging())
+			debug.trace(String.format("Loaded %d descriptor(s) from index: %s", entries.size(), indexFile)); //$NON-NLS-1$
+
+		dirty = false;
+	}
+
+	public synchronized void save() {
+		if (!dirty)
+			return;
+
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+			try {
+				out.writeInt(VERSION);
+				out.writeInt(entries.size());
+				for (Map.Entry<IPath, Entry> mapEntry : entries.entrySet()) {
+					out.writeUTF(mapEntry.getKey().toPortableString());
+					Entry entry = mapEntry.getValue();
+					out.writeLong(entry.stamp);
+					out.writeBoolean(entry.info != null);
+					if (entry.info != null)
+						entry.info.write(out);
+				}
+			} finally {
+				out.close();
+			}
+
+			dirty = false;
+		} catch (IOException e) {
+			indexFile.delete();
+			Activator.getDefault().getLog().log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, String.format("Error saving descriptor index: %s", indexFile), e)); //$NON-NLS-1$
+		}
+	}
+
+	private static class Entry {
+
+		final long stamp;
+
+		// null if file contains no component
+		final DescriptorInfo info;
+
+		final Set<String> tokens;
+
+		Entry(long stamp, DescriptorInfo info) {
+			this.stamp = stamp;
+			this.info = info;
+			this.tokens = info == null ? Collections.<String> emptySet() : info.getTokens();
+		}
+	}
+
+	private static class ProjectEntry {
+
+		final String header;
+
+		final IFile[] files;
+
+		ProjectEntry(String header, IFile[] files) {
+			this.header = header;
+			this.files = files;
+		}
+	}
+}
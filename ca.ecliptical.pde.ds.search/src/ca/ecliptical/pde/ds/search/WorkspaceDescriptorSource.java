@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.pde.internal.core.ibundle.IBundleModel;
+import org.eclipse.pde.internal.core.ibundle.IBundlePluginModelBase;
+import org.eclipse.pde.internal.core.project.PDEProject;
+
+import ca.ecliptical.pde.ds.search.core.DescriptorSource;
+import ca.ecliptical.pde.ds.search.core.ServiceComponentHeader;
+
+/**
+ * Descriptor source backed by a workspace bundle project. The header is read
+ * from the bundle's shared (read-only) model, or failing that, straight from
+ * its manifest file; unlike going through model modification, this never
+ * creates editable models or connects file buffers, and is safe to use from
+ * any thread.
+ */
+@SuppressWarnings("restriction")
+public class WorkspaceDescriptorSource implements DescriptorSource {
+
+	private final IBundlePluginModelBase model;
+
+	private final IProject project;
+
+	/**
+	 * Creates a new source.
+	 *
+	 * @param model the project's plug-in model, or {@code null} to always read the manifest file
+	 * @param project bundle project
+	 */
+	public WorkspaceDescriptorSource(IBundlePluginModelBase model, IProject project) {
+		this.model = model;
+		this.project = project;
+	}
+
+	public IProject getProject() {
+		return project;
+	}
+
+	public String getName() {
+		return project.getName();
+	}
+
+	public String getServiceComponentHeader() throws IOException {
+		IBundleModel bundleModel = model == null ? null : model.getBundleModel();
+		if (bundleModel != null)
+			return bundleModel.getBundle().getHeader(ServiceComponentHeader.NAME);
+
+		IFile file = PDEProject.getManifest(project);
+		if (!file.exists())
+			return null;
+
+		InputStream in = getContents(file);
+		try {
+			// hand-edited manifests may lack a final newline, or have long lines
+			return ServiceComponentHeader.read(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	public String[] list(String folderPath) throws IOException {
+		IFolder folder = PDEProject.getBundleRelativeFolder(project, new Path(folderPath));
+		if (!folder.exists())
+			return null;
+
+		IResource[] members;
+		try {
+			members = folder.members();
+		} catch (CoreException e) {
+			throw createException(e);
+		}
+
+		ArrayList<String> names = new ArrayList<String>(members.length);
+		for (IResource member : members) {
+			if (member.getType() == IResource.FILE)
+				names.add(member.getName());
+		}
+
+		return names.toArray(new String[names.size()]);
+	}
+
+	public InputStream open(String path) throws IOException {
+		IFile file = PDEProject.getBundleRelativeFile(project, new Path(path));
+		return file.exists() ? getContents(file) : null;
+	}
+
+	private InputStream getContents(IFile file) throws IOException {
+		try {
+			return file.getContents();
+		} catch (CoreException e) {
+			throw createException(e);
+		}
+	}
+
+	private IOException createException(CoreException e) {
+		IOException ex = new IOException(e.getMessage());
+		ex.initCause(e);
+		return ex;
+	}
+
+	@Override
+	public String toString() {
+		return project.getFullPath().toString();
+	}
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.ZipFile;
+
+/**
+ * Bounded pool of open {@link ZipFile} handles (e.g., of jarred external bundles),
+ * so that reading several descriptors from the same bundle only reads its
+ * central directory once. Handles are closed explicitly when they're evicted
+ * (least recently used first), when their file changes, or when the pool is closed;
+ * handles that are in use are closed when released.
+ */
+public class ZipFilePool {
+
+	private static final Debug debug = Debug.getDebug("zip-file-pool"); //$NON-NLS-1$
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private final int capacity;
+
+	// in access order
+	private final LinkedHashMap<File, Handle> handles = new LinkedHashMap<File, Handle>(16, 0.75f, true);
+
+	private boolean closed;
+
+	public ZipFilePool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public ZipFilePool(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Acquires a handle to the given file; it must be {@link #release(Handle) released}
+	 * when no longer needed.
+	 *
+	 * @param file zip file
+	 * @return acquired handle
+	 */
+	public Handle acquire(File file) {
+		Handle handle;
+		synchronized (this) {
+			handle = closed ? null : handles.get(file);
+			if (handle != null && !handle.isCurrent()) {
+				handles.remove(file);
+				handle.evicted = true;
+				if (handle.refCount == 0)
+					handle.close();
+
+				handle = null;
+			}
+
+			if (handle == null) {
+				handle = new Handle(file);
+				if (closed)
+					handle.evicted = true; // not pooled
+				else
+					handles.put(file, handle);
+			}
+
+			// in use, so not evicted
+			++handle.refCount;
+			evict();
+		}
+
+		return handle;
+	}
+
+	/**
+	 * Releases a previously acquired handle.
+	 */
+	public void release(Handle handle) {
+		synchronized (this) {
+			if (--handle.refCount > 0)
+				return;
+
+			if (!handle.evicted) {
+				// may have been over capacity while in use
+				evict();
+				return;
+			}
+		}
+
+		handle.close();
+	}
+
+	private void evict() {
+		for (Iterator<Handle> i = handles.values().iterator(); handles.size() > capacity && i.hasNext();) {
+			Handle handle = i.next();
+			if (handle.refCount == 0) {
+				i.remove();
+				handle.evicted = true;
+				handle.close();
+			}
+		}
+	}
+
+	/**
+	 * Closes all pooled handles; handles acquired after this are not pooled.
+	 */
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			for (Handle handle : handles.values()) {
+				handle.evicted = true;
+				if (handle.refCount == 0)
+					handle.close();
+			}
+
+			handles.clear();
+		}
+	}
+
+	/**
+	 * Handle to a lazily opened zip file.
+	 */
+	public static class Handle {
+
+		private final File file;
+
+		private final long length;
+
+		private final long lastModified;
+
+		private ZipFile zipFile;
+
+		// guarded by pool
+		int refCount;
+
+		// guarded by pool
+		boolean evicted;
+
+		Handle(File file) {
+			this.file = file;
+			length = file.length();
+			lastModified = file.lastModified();
+		}
+
+		boolean isCurrent() {
+			return length == file.length() && lastModified == file.lastModified();
+		}
+
+		/**
+		 * Returns the open zip file, opening it if necessary.
+		 */
+		public synchronized ZipFile getZipFile() throws IOException {
+			if (zipFile == null) {
+				zipFile = new ZipFile(file);
+				if (debug.isDebugging())
+					debug.trace(String.format("Opened: %s", file)); //$NON-NLS-1$
+			}
+
+			return zipFile;
+		}
+
+		synchronized void close() {
+			if (zipFile == null)
+				return;
+
+			try {
+				zipFile.close();
+			} catch (IOException e) {
+				// ignore
+			}
+
+			zipFile = null;
+			if (debug.isDebugging())
+				debug.trace(String.format("Closed: %s", file)); //$NON-NLS-1$
+		}
+	}
+}
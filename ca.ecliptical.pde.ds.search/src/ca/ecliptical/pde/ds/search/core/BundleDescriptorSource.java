@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Bundle stored in the file system, either as a directory or as an archive.
+ * Archives are opened on first access and stay open until {@link #close() closed},
+ * unless an already open archive is supplied by the caller.
+ */
+public class BundleDescriptorSource implements DescriptorSource {
+
+	private static final String MANIFEST_PATH = "META-INF/MANIFEST.MF"; //$NON-NLS-1$
+
+	private final File location;
+
+	private ZipFile zipFile;
+
+	// whether the archive was supplied, and is closed by the caller
+	private final boolean shared;
+
+	public BundleDescriptorSource(File location) {
+		this.location = location;
+		shared = false;
+	}
+
+	/**
+	 * Creates a source that reads from the given, already open archive of
+	 * the bundle; it's left open when the source is closed.
+	 *
+	 * @param location bundle archive
+	 * @param zipFile open archive
+	 */
+	public BundleDescriptorSource(File location, ZipFile zipFile) {
+		this.location = location;
+		this.zipFile = zipFile;
+		shared = true;
+	}
+
+	public File getLocation() {
+		return location;
+	}
+
+	public String getName() {
+		return location.getName();
+	}
+
+	public String getServiceComponentHeader() throws IOException {
+		return getManifestHeaders(ServiceComponentHeader.NAME)[0];
+	}
+
+	/**
+	 * Reads the given main headers of the bundle's manifest (see
+	 * {@link ManifestHeaders#read(InputStream, String...)}).
+	 *
+	 * @return header values, in the order of the given names; {@code null} where not present
+	 */
+	public String[] getManifestHeaders(String... names) throws IOException {
+		InputStream in = open(MANIFEST_PATH);
+		if (in == null)
+			return new String[names.length];
+
+		try {
+			return ManifestHeaders.read(in, names);
+		} finally {
+			in.close();
+		}
+	}
+
+	public String[] list(String folderPath) throws IOException {
+		if (location.isDirectory()) {
+			File[] files = (folderPath.length() == 0 ? location : new File(location, folderPath)).listFiles();
+			if (files == null)
+				return null;
+
+			ArrayList<String> names = new ArrayList<String>(files.length);
+			for (File file : files) {
+				if (file.isFile())
+					names.add(file.getName());
+			}
+
+			return names.toArray(new String[names.size()]);
+		}
+
+		String prefix = folderPath.length() == 0 ? "" : folderPath + '/'; //$NON-NLS-1$
+		ArrayList<String> names = new ArrayList<String>();
+		boolean found = prefix.length() == 0;
+		for (Enumeration<? extends ZipEntry> entries = getZipFile().entries(); entries.hasMoreElements();) {
+			String name = entries.nextElement().getName();
+			if (!name.startsWith(prefix))
+				continue;
+
+			found = true;
+			if (name.length() > prefix.length() && name.indexOf('/', prefix.length()) == -1)
+				names.add(name.substring(prefix.length()));
+		}
+
+		return found ? names.toArray(new String[names.size()]) : null;
+	}
+
+	public InputStream open(String path) throws IOException {
+		if (location.isDirectory()) {
+			File file = new File(location, path);
+			return file.isFile() ? new FileInputStream(file) : null;
+		}
+
+		ZipFile zip = getZipFile();
+		ZipEntry entry = zip.getEntry(path);
+		return entry == null || entry.isDirectory() ? null : zip.getInputStream(entry);
+	}
+
+	/**
+	 * Returns the CRC-32 of the given file. For archives, this is the value
+	 * recorded in the central directory, and the entry itself isn't read.
+	 *
+	 * @param path bundle-relative file path
+	 * @return CRC-32, or {@code -1} if there's no such file, or the archive doesn't record it
+	 */
+	public long getCrc(String path) throws IOException {
+		if (location.isDirectory()) {
+			File file = new File(location, path);
+			if (!file.isFile())
+				return -1L;
+
+			CheckedInputStream in = new CheckedInputStream(new FileInputStream(file), new CRC32());
+			try {
+				byte[] buf = new byte[8192];
+				while (in.read(buf) != -1) {
+					// just checksum
+				}
+
+				return in.getChecksum().getValue();
+			} finally {
+				in.close();
+			}
+		}
+
+		ZipEntry entry = getZipFile().getEntry(path);
+		return entry == null || entry.isDirectory() ? -1L : entry.getCrc();
+	}
+
+	private ZipFile getZipFile() throws IOException {
+		if (zipFile == null)
+			zipFile = new ZipFile(location);
+
+		return zipFile;
+	}
+
+	/**
+	 * Closes the bundle's archive, if opened by this source.
+	 */
+	public void close() throws IOException {
+		if (zipFile != null && !shared) {
+			zipFile.close();
+			zipFile = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return location.toString();
+	}
+}
@@ -0,0 +1,727 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Attribute;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Reference;
+
+/**
+ * Compact, read-only store of the descriptor facts of many bundles, meant to be
+ * memory-mapped so that the facts stay off the heap: lookups decode only what
+ * they need, and opening a store takes constant time regardless of its size.
+ * <p>
+ * Bundles are identified by a key (e.g., install location) and carry an optional
+ * header value and a fixed number of {@code long} data values for the caller's
+ * use (e.g., stamps); so does each of their descriptors. All strings are kept
+ * once, in a shared string table; bundles, descriptors and descriptor facts
+ * are fixed-size records of string indexes and offsets, and the lower-case
+ * tokens of each descriptor (see {@link DescriptorInfo#getTokens()}) are
+ * indexed by postings lists of descriptor indexes.
+ * </p>
+ * <p>
+ * Stores are written by a {@link Writer}.
+ * </p>
+ */
+public class CompactDescriptorStore {
+
+	private static final int MAGIC = 0x44534353; // DSCS
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int HEADER_SIZE = 12 * 4;
+
+	private static final int BUNDLE_INTS = 4;
+
+	private static final int DESCRIPTOR_INTS = 2;
+
+	private static final int TOKEN_INTS = 3;
+
+	private static final int ATTRIBUTE_INTS = 3;
+
+	private static final int NONE = -1;
+
+	private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+	private final ByteBuffer buf;
+
+	private final int version;
+
+	private final int bundleDataLength;
+
+	private final int descriptorDataLength;
+
+	private final int stringCount;
+
+	private final int bundleCount;
+
+	private final int descriptorCount;
+
+	private final int tokenCount;
+
+	private final int bundlesOffset;
+
+	private final int bundleDataOffset;
+
+	private final int descriptorsOffset;
+
+	private final int descriptorDataOffset;
+
+	private final int tokensOffset;
+
+	private final int postingsOffset;
+
+	private final int poolOffset;
+
+	private final int stringOffsetsOffset;
+
+	private final int stringBytesOffset;
+
+	private CompactDescriptorStore(ByteBuffer buf) throws IOException {
+		this.buf = buf;
+		if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC)
+			throw new IOException("Not a descriptor store."); //$NON-NLS-1$
+
+		if (buf.getInt(4) != FORMAT_VERSION)
+			throw new IOException(String.format("Unsupported descriptor store format: %d", buf.getInt(4))); //$NON-NLS-1$
+
+		version = buf.getInt(8);
+		bundleDataLength = buf.getInt(12);
+		descriptorDataLength = buf.getInt(16);
+		stringCount = buf.getInt(20);
+		bundleCount = buf.getInt(24);
+		descriptorCount = buf.getInt(28);
+		tokenCount = buf.getInt(32);
+		int postingCount = buf.getInt(36);
+		int poolLength = buf.getInt(40);
+		int stringBytesLength = buf.getInt(44);
+
+		long offset = HEADER_SIZE;
+		bundlesOffset = (int) offset;
+		offset += (long) bundleCount * BUNDLE_INTS * 4;
+		bundleDataOffset = (int) offset;
+		offset += (long) bundleCount * bundleDataLength * 8;
+		descriptorsOffset = (int) offset;
+		offset += (long) descriptorCount * DESCRIPTOR_INTS * 4;
+		descriptorDataOffset = (int) offset;
+		offset += (long) descriptorCount * descriptorDataLength * 8;
+		tokensOffset = (int) offset;
+		offset += (long) tokenCount * TOKEN_INTS * 4;
+		postingsOffset = (int) offset;
+		offset += (long) postingCount * 4;
+		poolOffset = (int) offset;
+		offset += (long) poolLength * 4;
+		stringOffsetsOffset = (int) offset;
+		offset += ((long) stringCount + 1) * 4;
+		stringBytesOffset = (int) offset;
+		offset += stringBytesLength;
+		if (offset != buf.capacity())
+			throw new IOException("Truncated or corrupt descriptor store."); //$NON-NLS-1$
+	}
+
+	/**
+	 * Maps the given store file into memory, read-only. The file must not be
+	 * modified while mapped.
+	 */
+	public static CompactDescriptorStore open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = raf.getChannel();
+			// the mapping stays valid after the channel is closed
+			return new CompactDescriptorStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Reads a store from the given buffer, e.g., one written to memory.
+	 */
+	public static CompactDescriptorStore wrap(ByteBuffer buf) throws IOException {
+		return new CompactDescriptorStore(buf);
+	}
+
+	/**
+	 * Returns the version of the caller's data, as given to the {@link Writer}.
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	public int getBundleCount() {
+		return bundleCount;
+	}
+
+	/**
+	 * Returns the index of the bundle with the given key.
+	 *
+	 * @return bundle index, or -1 if not found
+	 */
+	public int findBundle(String key) {
+		byte[] bytes = encode(key);
+		int low = 0;
+		int high = bundleCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareString(getInt(bundlesOffset, mid * BUNDLE_INTS), bytes);
+			if (cmp < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+
+		return -1;
+	}
+
+	public String getBundleKey(int bundle) {
+		return getString(getInt(bundlesOffset, bundle * BUNDLE_INTS));
+	}
+
+	/**
+	 * Returns the given bundle's header value.
+	 *
+	 * @return header value, or {@code null} if none
+	 */
+	public String getBundleHeader(int bundle) {
+		return getString(getInt(bundlesOffset, bundle * BUNDLE_INTS + 1));
+	}
+
+	public long getBundleData(int bundle, int index) {
+		return buf.getLong(bundleDataOffset + (bundle * bundleDataLength + index) * 8);
+	}
+
+	/**
+	 * Returns the index of the given bundle's first descriptor; its descriptors
+	 * are numbered consecutively.
+	 */
+	public int getFirstDescriptor(int bundle) {
+		return getInt(bundlesOffset, bundle * BUNDLE_INTS + 2);
+	}
+
+	public int getDescriptorCount(int bundle) {
+		return getInt(bundlesOffset, bundle * BUNDLE_INTS + 3);
+	}
+
+	public String getDescriptorPath(int descriptor) {
+		return getString(getInt(descriptorsOffset, descriptor * DESCRIPTOR_INTS));
+	}
+
+	public long getDescriptorData(int descriptor, int index) {
+		return buf.getLong(descriptorDataOffset + (descriptor * descriptorDataLength + index) * 8);
+	}
+
+	public boolean hasDescriptorInfo(int descriptor) {
+		return getInt(descriptorsOffset, descriptor * DESCRIPTOR_INTS + 1) != NONE;
+	}
+
+	/**
+	 * Decodes the facts of the given descriptor.
+	 *
+	 * @return descriptor facts, or {@code null} if none
+	 */
+	public DescriptorInfo getDescriptorInfo(int descriptor) {
+		int pos = getInt(descriptorsOffset, descriptor * DESCRIPTOR_INTS + 1);
+		if (pos == NONE)
+			return null;
+
+		Attribute component = getAttribute(pos);
+		Attribute name = getAttribute(pos += ATTRIBUTE_INTS);
+		Attribute implementation = getAttribute(pos += ATTRIBUTE_INTS);
+		Attribute activate = getAttribute(pos += ATTRIBUTE_INTS);
+		Attribute deactivate = getAttribute(pos += ATTRIBUTE_INTS);
+		Attribute modified = getAttribute(pos += ATTRIBUTE_INTS);
+		pos += ATTRIBUTE_INTS;
+		Attribute[] provides = new Attribute[getInt(poolOffset, pos++)];
+		for (int i = 0; i < provides.length; ++i, pos += ATTRIBUTE_INTS) {
+			provides[i] = getAttribute(pos);
+		}
+
+		Reference[] references = new Reference[getInt(poolOffset, pos++)];
+		for (int i = 0; i < references.length; ++i, pos += 8 * ATTRIBUTE_INTS) {
+			references[i] = new Reference(getAttribute(pos), getAttribute(pos + ATTRIBUTE_INTS), getAttribute(pos + 2 * ATTRIBUTE_INTS), getAttribute(pos + 3 * ATTRIBUTE_INTS),
+					getAttribute(pos + 4 * ATTRIBUTE_INTS), getAttribute(pos + 5 * ATTRIBUTE_INTS), getAttribute(pos + 6 * ATTRIBUTE_INTS), getAttribute(pos + 7 * ATTRIBUTE_INTS));
+		}
+
+		return new DescriptorInfo(component, name, implementation, activate, deactivate, modified, provides, references);
+	}
+
+	private Attribute getAttribute(int pos) {
+		int value = getInt(poolOffset, pos);
+		return value == NONE ? null : new Attribute(getString(value), getInt(poolOffset, pos + 1), getInt(poolOffset, pos + 2));
+	}
+
+	/**
+	 * Returns the indexes of all descriptors that refer to the given lower-case token.
+	 *
+	 * @return descriptor indexes, in ascending order (possibly empty)
+	 */
+	public int[] findDescriptors(String token) {
+		int index = findToken(token);
+		if (index == -1)
+			return new int[0];
+
+		int start = getInt(tokensOffset, index * TOKEN_INTS + 1);
+		int[] result = new int[getInt(tokensOffset, index * TOKEN_INTS + 2)];
+		for (int i = 0; i < result.length; ++i) {
+			result[i] = getInt(postingsOffset, start + i);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Indicates whether any descriptor of the given bundle refers to any of
+	 * the given lower-case tokens.
+	 */
+	public boolean containsAny(int bundle, Collection<String> tokens) {
+		int first = getFirstDescriptor(bundle);
+		int end = first + getDescriptorCount(bundle);
+		for (String token : tokens) {
+			int index = findToken(token);
+			if (index == -1)
+				continue;
+
+			// postings are sorted, so look for the first one at or after the bundle's first descriptor
+			int postingsEnd = getInt(tokensOffset, index * TOKEN_INTS + 1) + getInt(tokensOffset, index * TOKEN_INTS + 2);
+			int low = getInt(tokensOffset, index * TOKEN_INTS + 1);
+			int high = postingsEnd;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (getInt(postingsOffset, mid) < first)
+					low = mid + 1;
+				else
+					high = mid;
+			}
+
+			if (low < postingsEnd && getInt(postingsOffset, low) < end)
+				return true;
+		}
+
+		return false;
+	}
+
+	private int findToken(String token) {
+		byte[] bytes = encode(token);
+		int low = 0;
+		int high = tokenCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compareString(getInt(tokensOffset, mid * TOKEN_INTS), bytes);
+			if (cmp < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+
+		return -1;
+	}
+
+	private int getInt(int sectionOffset, int index) {
+		return buf.getInt(sectionOffset + index * 4);
+	}
+
+	private String getString(int index) {
+		if (index == NONE)
+			return null;
+
+		int start = getInt(stringOffsetsOffset, index);
+		byte[] bytes = new byte[getInt(stringOffsetsOffset, index + 1) - start];
+		for (int i = 0; i < bytes.length; ++i) {
+			bytes[i] = buf.get(stringBytesOffset + start + i);
+		}
+
+		try {
+			return new String(bytes, ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private int compareString(int index, byte[] bytes) {
+		int start = stringBytesOffset + getInt(stringOffsetsOffset, index);
+		int length = getInt(stringOffsetsOffset, index + 1) - getInt(stringOffsetsOffset, index);
+		for (int i = 0, n = Math.min(length, bytes.length); i < n; ++i) {
+			int cmp = (buf.get(start + i) & 0xff) - (bytes[i] & 0xff);
+			if (cmp != 0)
+				return cmp;
+		}
+
+		return length - bytes.length;
+	}
+
+	static byte[] encode(String s) {
+		try {
+			return s.getBytes(ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static int compare(byte[] a, byte[] b) {
+		for (int i = 0, n = Math.min(a.length, b.length); i < n; ++i) {
+			int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+			if (cmp != 0)
+				return cmp;
+		}
+
+		return a.length - b.length;
+	}
+
+	/**
+	 * Writes a {@link CompactDescriptorStore}. Bundles (and their descriptors)
+	 * are added in any order; bundle keys must be unique.
+	 */
+	public static class Writer {
+
+		private static final Comparator<byte[]> BYTES_ORDER = new Comparator<byte[]>() {
+			public int compare(byte[] a, byte[] b) {
+				return CompactDescriptorStore.compare(a, b);
+			}
+		};
+
+		private final int version;
+
+		private final int bundleDataLength;
+
+		private final int descriptorDataLength;
+
+		private final ArrayList<BundleRecord> bundles = new ArrayList<BundleRecord>();
+
+		/**
+		 * Creates a new writer.
+		 *
+		 * @param version version of the caller's data, returned by {@link CompactDescriptorStore#getVersion()}
+		 * @param bundleDataLength number of data values per bundle
+		 * @param descriptorDataLength number of data values per descriptor
+		 */
+		public Writer(int version, int bundleDataLength, int descriptorDataLength) {
+			this.version = version;
+			this.bundleDataLength = bundleDataLength;
+			this.descriptorDataLength = descriptorDataLength;
+		}
+
+		/**
+		 * Adds a bundle; subsequently added descriptors belong to it.
+		 *
+		 * @param key unique bundle key
+		 * @param header header value, or {@code null} if none
+		 * @param data bundle data values
+		 */
+		public void addBundle(String key, String header, long[] data) {
+			if (data.length != bundleDataLength)
+				throw new IllegalArgumentException("data"); //$NON-NLS-1$
+
+			bundles.add(new BundleRecord(key, header, data));
+		}
+
+		/**
+		 * Adds a descriptor to the last added bundle.
+		 *
+		 * @param path descriptor path
+		 * @param data descriptor data values
+		 * @param info descriptor facts, or {@code null} if none
+		 */
+		public void addDescriptor(String path, long[] data, DescriptorInfo info) {
+			if (data.length != descriptorDataLength)
+				throw new IllegalArgumentException("data"); //$NON-NLS-1$
+
+			bundles.get(bundles.size() - 1).descriptors.add(new DescriptorRecord(path, data, info));
+		}
+
+		public void write(OutputStream out) throws IOException {
+			StringTable strings = new StringTable();
+			BundleRecord[] sorted = bundles.toArray(new BundleRecord[bundles.size()]);
+			for (BundleRecord bundle : sorted) {
+				bundle.keyBytes = encode(bundle.key);
+			}
+
+			Arrays.sort(sorted, new Comparator<BundleRecord>() {
+				public int compare(BundleRecord a, BundleRecord b) {
+					return CompactDescriptorStore.compare(a.keyBytes, b.keyBytes);
+				}
+			});
+
+			// descriptor facts, and postings of their tokens
+			IntArray pool = new IntArray();
+			TreeMap<byte[], IntArray> postings = new TreeMap<byte[], IntArray>(BYTES_ORDER);
+			int descriptorCount = 0;
+			for (BundleRecord bundle : sorted) {
+				for (DescriptorRecord descriptor : bundle.descriptors) {
+					if (descriptor.info == null) {
+						descriptor.poolOffset = NONE;
+					} else {
+						descriptor.poolOffset = pool.size();
+						writeInfo(descriptor.info, pool, strings);
+						for (String token : descriptor.info.getTokens()) {
+							byte[] bytes = encode(token);
+							IntArray list = postings.get(bytes);
+							if (list == null) {
+								list = new IntArray();
+								postings.put(bytes, list);
+							}
+
+							list.add(descriptorCount);
+						}
+					}
+
+					++descriptorCount;
+				}
+			}
+
+			int[] bundleInts = new int[sorted.length * BUNDLE_INTS];
+			int[] descriptorInts = new int[descriptorCount * DESCRIPTOR_INTS];
+			int descriptor = 0;
+			for (int i = 0; i < sorted.length; ++i) {
+				BundleRecord bundle = sorted[i];
+				bundleInts[i * BUNDLE_INTS] = strings.add(bundle.key);
+				bundleInts[i * BUNDLE_INTS + 1] = bundle.header == null ? NONE : strings.add(bundle.header);
+				bundleInts[i * BUNDLE_INTS + 2] = descriptor;
+				bundleInts[i * BUNDLE_INTS + 3] = bundle.descriptors.size();
+				for (DescriptorRecord record : bundle.descriptors) {
+					descriptorInts[descriptor * DESCRIPTOR_INTS] = strings.add(record.path);
+					descriptorInts[descriptor * DESCRIPTOR_INTS + 1] = record.poolOffset;
+					++descriptor;
+				}
+			}
+
+			int[] tokenInts = new int[postings.size() * TOKEN_INTS];
+			IntArray postingInts = new IntArray();
+			int token = 0;
+			for (Map.Entry<byte[], IntArray> entry : postings.entrySet()) {
+				tokenInts[token * TOKEN_INTS] = strings.add(entry.getKey());
+				tokenInts[token * TOKEN_INTS + 1] = postingInts.size();
+				tokenInts[token * TOKEN_INTS + 2] = entry.getValue().size();
+				postingInts.addAll(entry.getValue());
+				++token;
+			}
+
+			DataOutputStream data = new DataOutputStream(out);
+			data.writeInt(MAGIC);
+			data.writeInt(FORMAT_VERSION);
+			data.writeInt(version);
+			data.writeInt(bundleDataLength);
+			data.writeInt(descriptorDataLength);
+			data.writeInt(strings.size());
+			data.writeInt(sorted.length);
+			data.writeInt(descriptorCount);
+			data.writeInt(postings.size());
+			data.writeInt(postingInts.size());
+			data.writeInt(pool.size());
+			data.writeInt(strings.getByteCount());
+			writeInts(data, bundleInts, bundleInts.length);
+			for (BundleRecord bundle : sorted) {
+				writeLongs(data, bundle.data);
+			}
+
+			writeInts(data, descriptorInts, descriptorInts.length);
+			for (BundleRecord bundle : sorted) {
+				for (DescriptorRecord record : bundle.descriptors) {
+					writeLongs(data, record.data);
+				}
+			}
+
+			writeInts(data, tokenInts, tokenInts.length);
+			writeInts(data, postingInts.values, postingInts.size());
+			writeInts(data, pool.values, pool.size());
+			strings.write(data);
+			data.flush();
+		}
+
+		private static void writeInfo(DescriptorInfo info, IntArray pool, StringTable strings) {
+			writeAttribute(info.getComponent(), pool, strings);
+			writeAttribute(info.getName(), pool, strings);
+			writeAttribute(info.getImplementation(), pool, strings);
+			writeAttribute(info.getActivate(), pool, strings);
+			writeAttribute(info.getDeactivate(), pool, strings);
+			writeAttribute(info.getModified(), pool, strings);
+			pool.add(info.getProvides().length);
+			for (Attribute provide : info.getProvides()) {
+				writeAttribute(provide, pool, strings);
+			}
+
+			pool.add(info.getReferences().length);
+			for (Reference reference : info.getReferences()) {
+				writeAttribute(reference.getName(), pool, strings);
+				writeAttribute(reference.getInterface(), pool, strings);
+				writeAttribute(reference.getCardinality(), pool, strings);
+				writeAttribute(reference.getPolicy(), pool, strings);
+				writeAttribute(reference.getTarget(), pool, strings);
+				writeAttribute(reference.getBind(), pool, strings);
+				writeAttribute(reference.getUnbind(), pool, strings);
+				writeAttribute(reference.getUpdated(), pool, strings);
+			}
+		}
+
+		private static void writeAttribute(Attribute attr, IntArray pool, StringTable strings) {
+			if (attr == null) {
+				pool.add(NONE);
+				pool.add(0);
+				pool.add(0);
+			} else {
+				pool.add(strings.add(attr.getValue()));
+				pool.add(attr.getOffset());
+				pool.add(attr.getLength());
+			}
+		}
+
+		private static void writeInts(DataOutputStream out, int[] values, int length) throws IOException {
+			for (int i = 0; i < length; ++i) {
+				out.writeInt(values[i]);
+			}
+		}
+
+		private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+			for (long value : values) {
+				out.writeLong(value);
+			}
+		}
+	}
+
+	private static class BundleRecord {
+
+		final String key;
+
+		final String header;
+
+		final long[] data;
+
+		final List<DescriptorRecord> descriptors = new ArrayList<DescriptorRecord>();
+
+		byte[] keyBytes;
+
+		BundleRecord(String key, String header, long[] data) {
+			this.key = key;
+			this.header = header;
+			this.data = data;
+		}
+	}
+
+	private static class DescriptorRecord {
+
+		final String path;
+
+		final long[] data;
+
+		final DescriptorInfo info;
+
+		int poolOffset;
+
+		DescriptorRecord(String path, long[] data, DescriptorInfo info) {
+			this.path = path;
+			this.data = data;
+			this.info = info;
+		}
+	}
+
+	/**
+	 * Deduplicated UTF-8 strings, by order of addition.
+	 */
+	private static class StringTable {
+
+		private final HashMap<String, Integer> indexes = new HashMap<String, Integer>();
+
+		private final ArrayList<byte[]> values = new ArrayList<byte[]>();
+
+		private int byteCount;
+
+		int add(String s) {
+			Integer index = indexes.get(s);
+			if (index == null) {
+				index = values.size();
+				indexes.put(s, index);
+				byte[] bytes = encode(s);
+				values.add(bytes);
+				byteCount += bytes.length;
+			}
+
+			return index;
+		}
+
+		int add(byte[] bytes) {
+			try {
+				return add(new String(bytes, ENCODING));
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		int size() {
+			return values.size();
+		}
+
+		int getByteCount() {
+			return byteCount;
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			int offset = 0;
+			for (byte[] value : values) {
+				out.writeInt(offset);
+				offset += value.length;
+			}
+
+			out.writeInt(offset);
+			for (byte[] value : values) {
+				out.write(value);
+			}
+		}
+	}
+
+	/**
+	 * Growable array of primitive ints.
+	 */
+	private static class IntArray {
+
+		int[] values = new int[16];
+
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				int[] newValues = new int[size * 2];
+				System.arraycopy(values, 0, newValues, 0, size);
+				values = newValues;
+			}
+
+			values[size++] = value;
+		}
+
+		void addAll(IntArray other) {
+			for (int i = 0; i < other.size; ++i) {
+				add(other.values[i]);
+			}
+		}
+
+		int size() {
+			return size;
+		}
+	}
+}
@@ -0,0 +1,405 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Attribute;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Reference;
+
+/**
+ * In-memory graph of components and the service interfaces they provide and
+ * consume, built from the {@link DescriptorInfo} of any number of bundles.
+ * Components are linked to the services they provide, and by
+ * {@link Dependency dependencies} (i.e., their references, along with cardinality,
+ * policy and target filter) to the services they consume.
+ * <p>
+ * Bundles are added, replaced and removed individually, so that the graph can be
+ * kept current as descriptors change. Provider and consumer lookups are constant
+ * time; transitive dependencies are found by walking the graph breadth first.
+ * Target filters are recorded but not evaluated (service properties aren't tracked).
+ * </p>
+ * <p>
+ * Graphs are thread-safe; all queries return snapshots.
+ * </p>
+ */
+public class ComponentGraph {
+
+	private final HashMap<String, List<Component>> bundles = new HashMap<String, List<Component>>();
+
+	private final HashMap<String, Service> services = new HashMap<String, Service>();
+
+	/**
+	 * Sets the components of the given bundle, replacing any it had before.
+	 *
+	 * @param bundle bundle identifier (e.g., its location)
+	 * @param descriptors descriptor facts by bundle-relative path; {@code null} values are ignored
+	 */
+	public synchronized void setBundle(String bundle, Map<String, DescriptorInfo> descriptors) {
+		removeBundle(bundle);
+		ArrayList<Component> components = new ArrayList<Component>(descriptors.size());
+		for (Map.Entry<String, DescriptorInfo> entry : descriptors.entrySet()) {
+			DescriptorInfo info = entry.getValue();
+			if (info == null)
+				continue;
+
+			Component component = new Component(bundle, entry.getKey(), info);
+			components.add(component);
+			for (String iface : component.provides) {
+				getService(iface, true).providers.add(component);
+			}
+
+			for (Dependency dependency : component.dependencies) {
+				getService(dependency.interfaceName, true).consumers.add(dependency);
+			}
+		}
+
+		bundles.put(bundle, components);
+	}
+
+	/**
+	 * Removes all components of the given bundle.
+	 */
+	public synchronized void removeBundle(String bundle) {
+		List<Component> components = bundles.remove(bundle);
+		if (components == null)
+			return;
+
+		for (Component component : components) {
+			for (String iface : component.provides) {
+				Service service = getService(iface, false);
+				service.providers.remove(component);
+				removeIfUnused(service);
+			}
+
+			for (Dependency dependency : component.dependencies) {
+				Service service = getService(dependency.interfaceName, false);
+				service.consumers.remove(dependency);
+				removeIfUnused(service);
+			}
+		}
+	}
+
+	public synchronized boolean containsBundle(String bundle) {
+		return bundles.containsKey(bundle);
+	}
+
+	public synchronized Set<String> getBundles() {
+		return new TreeSet<String>(bundles.keySet());
+	}
+
+	public synchronized void clear() {
+		bundles.clear();
+		services.clear();
+	}
+
+	/**
+	 * Returns the components of the given bundle.
+	 *
+	 * @return components, in descriptor order (possibly empty)
+	 */
+	public synchronized List<Component> getComponents(String bundle) {
+		List<Component> components = bundles.get(bundle);
+		return components == null ? Collections.<Component> emptyList() : new ArrayList<Component>(components);
+	}
+
+	/**
+	 * Returns the names of all service interfaces that are provided or consumed.
+	 */
+	public synchronized Set<String> getServices() {
+		return new TreeSet<String>(services.keySet());
+	}
+
+	/**
+	 * Returns the components that provide the given service interface.
+	 */
+	public synchronized List<Component> getProviders(String interfaceName) {
+		Service service = services.get(interfaceName);
+		return service == null ? Collections.<Component> emptyList() : new ArrayList<Component>(service.providers);
+	}
+
+	/**
+	 * Returns the dependencies (i.e., references) of all components that consume
+	 * the given service interface.
+	 */
+	public synchronized List<Dependency> getConsumers(String interfaceName) {
+		Service service = services.get(interfaceName);
+		return service == null ? Collections.<Dependency> emptyList() : new ArrayList<Dependency>(service.consumers);
+	}
+
+	/**
+	 * Returns the components that provide services the given component consumes.
+	 *
+	 * @param component component whose dependencies to find
+	 * @param transitive whether to also include the dependencies of dependencies
+	 * @return dependencies, closest first (never including the component itself)
+	 */
+	public synchronized Set<Component> getDependencies(Component component, boolean transitive) {
+		LinkedHashSet<Component> results = new LinkedHashSet<Component>();
+		LinkedList<Component> queue = new LinkedList<Component>();
+		queue.add(component);
+		while (!queue.isEmpty()) {
+			for (Dependency dependency : queue.removeFirst().dependencies) {
+				Service service = services.get(dependency.interfaceName);
+				// the component may be a stale snapshot of a removed bundle
+				if (service == null)
+					continue;
+
+				for (Component provider : service.providers) {
+					if (provider != component && results.add(provider) && transitive)
+						queue.add(provider);
+				}
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Returns the components that consume services the given component provides.
+	 *
+	 * @param component component whose dependents to find
+	 * @param transitive whether to also include the dependents of dependents
+	 * @return dependents, closest first (never including the component itself)
+	 */
+	public synchronized Set<Component> getDependents(Component component, boolean transitive) {
+		LinkedHashSet<Component> results = new LinkedHashSet<Component>();
+		LinkedList<Component> queue = new LinkedList<Component>();
+		queue.add(component);
+		while (!queue.isEmpty()) {
+			for (String iface : queue.removeFirst().provides) {
+				Service service = services.get(iface);
+				if (service == null)
+					continue;
+
+				for (Dependency dependency : service.consumers) {
+					Component consumer = dependency.component;
+					if (consumer != component && results.add(consumer) && transitive)
+						queue.add(consumer);
+				}
+			}
+		}
+
+		return results;
+	}
+
+	private Service getService(String interfaceName, boolean create) {
+		Service service = services.get(interfaceName);
+		if (service == null && create) {
+			service = new Service();
+			services.put(interfaceName, service);
+		}
+
+		return service;
+	}
+
+	private void removeIfUnused(Service service) {
+		if (service.providers.isEmpty() && service.consumers.isEmpty())
+			services.values().remove(service);
+	}
+
+	private static String getValue(Attribute attr, String defaultValue) {
+		return attr == null ? defaultValue : attr.getValue().trim();
+	}
+
+	// service interface node
+	private static class Service {
+
+		final ArrayList<Component> providers = new ArrayList<Component>(1);
+
+		final ArrayList<Dependency> consumers = new ArrayList<Dependency>(1);
+	}
+
+	/**
+	 * Component node.
+	 */
+	public static class Component {
+
+		private final String bundle;
+
+		private final String path;
+
+		private final DescriptorInfo info;
+
+		private final String name;
+
+		private final String implementationClass;
+
+		final String[] provides;
+
+		final Dependency[] dependencies;
+
+		Component(String bundle, String path, DescriptorInfo info) {
+			this.bundle = bundle;
+			this.path = path;
+			this.info = info;
+			implementationClass = getValue(info.getImplementation(), null);
+			name = getValue(info.getName(), implementationClass);
+
+			// each interface at most once
+			LinkedHashSet<String> ifaces = new LinkedHashSet<String>();
+			for (Attribute provide : info.getProvides()) {
+				if (provide != null)
+					ifaces.add(provide.getValue().trim());
+			}
+
+			provides = ifaces.toArray(new String[ifaces.size()]);
+
+			ArrayList<Dependency> deps = new ArrayList<Dependency>(info.getReferences().length);
+			for (Reference reference : info.getReferences()) {
+				if (reference.getInterface() != null)
+					deps.add(new Dependency(this, reference));
+			}
+
+			dependencies = deps.toArray(new Dependency[deps.size()]);
+		}
+
+		/**
+		 * Returns the identifier of the bundle that declares this component.
+		 */
+		public String getBundle() {
+			return bundle;
+		}
+
+		/**
+		 * Returns the bundle-relative path of this component's descriptor.
+		 */
+		public String getPath() {
+			return path;
+		}
+
+		/**
+		 * Returns the component name (which defaults to the implementation class name).
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public String getImplementationClass() {
+			return implementationClass;
+		}
+
+		public DescriptorInfo getDescriptorInfo() {
+			return info;
+		}
+
+		/**
+		 * Returns the names of the service interfaces this component provides.
+		 */
+		public String[] getProvides() {
+			return provides.clone();
+		}
+
+		public Dependency[] getDependencies() {
+			return dependencies.clone();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s (%s/%s)", name, bundle, path); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Edge from a component to a service interface it consumes.
+	 */
+	public static class Dependency {
+
+		private final Component component;
+
+		private final Reference reference;
+
+		private final String name;
+
+		private final String interfaceName;
+
+		private final String cardinality;
+
+		private final String policy;
+
+		private final String target;
+
+		Dependency(Component component, Reference reference) {
+			this.component = component;
+			this.reference = reference;
+			interfaceName = reference.getInterface().getValue().trim();
+			name = getValue(reference.getName(), interfaceName);
+			cardinality = getValue(reference.getCardinality(), Reference.DEFAULT_CARDINALITY);
+			policy = getValue(reference.getPolicy(), Reference.DEFAULT_POLICY);
+			target = getValue(reference.getTarget(), null);
+		}
+
+		/**
+		 * Returns the consuming component.
+		 */
+		public Component getComponent() {
+			return component;
+		}
+
+		public Reference getReference() {
+			return reference;
+		}
+
+		/**
+		 * Returns the reference name (which defaults to the interface name).
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public String getInterfaceName() {
+			return interfaceName;
+		}
+
+		/**
+		 * Returns the cardinality, e.g., {@code 0..1} or {@code 1..n}.
+		 */
+		public String getCardinality() {
+			return cardinality;
+		}
+
+		public String getPolicy() {
+			return policy;
+		}
+
+		/**
+		 * Returns the target filter, or {@code null} if none.
+		 */
+		public String getTarget() {
+			return target;
+		}
+
+		public boolean isOptional() {
+			return cardinality.startsWith("0"); //$NON-NLS-1$
+		}
+
+		public boolean isMultiple() {
+			return cardinality.endsWith("n"); //$NON-NLS-1$
+		}
+
+		public boolean isDynamic() {
+			return "dynamic".equals(policy); //$NON-NLS-1$
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s -> %s [%s, %s]", component.getName(), interfaceName, cardinality, policy); //$NON-NLS-1$
+		}
+	}
+}
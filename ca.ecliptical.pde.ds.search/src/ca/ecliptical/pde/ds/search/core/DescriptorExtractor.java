@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * Extracts {@link DescriptorInfo} from all component descriptors of a
+ * {@link DescriptorSource}, optionally skipping descriptors ruled out by a
+ * {@link DescriptorPrefilter}.
+ */
+public class DescriptorExtractor {
+
+	private final DescriptorPrefilter prefilter;
+
+	/**
+	 * Creates a new extractor.
+	 *
+	 * @param prefilter prefilter to apply, or {@code null} to extract all descriptors
+	 */
+	public DescriptorExtractor(DescriptorPrefilter prefilter) {
+		this.prefilter = prefilter;
+	}
+
+	/**
+	 * Returns the paths of the given source's descriptors, as listed in its
+	 * {@code Service-Component} header, with any wildcards expanded.
+	 *
+	 * @return descriptor paths, in header order
+	 */
+	public static Collection<String> resolvePaths(DescriptorSource source) throws IOException {
+		return resolvePaths(source, source.getServiceComponentHeader());
+	}
+
+	/**
+	 * Returns the paths of the given source's descriptors, as listed in the
+	 * given (already known) {@code Service-Component} header, with any
+	 * wildcards expanded.
+	 *
+	 * @param header header value, or {@code null}
+	 * @return descriptor paths, in header order
+	 */
+	public static Collection<String> resolvePaths(DescriptorSource source, String header) throws IOException {
+		if (header == null)
+			return new ArrayList<String>(0);
+
+		LinkedHashSet<String> paths = new LinkedHashSet<String>();
+		for (String element : ServiceComponentHeader.getElements(header)) {
+			String folder = ServiceComponentHeader.getFolder(element);
+			String fileName = ServiceComponentHeader.getFileName(element);
+			if (!ServiceComponentHeader.isWildcard(element)) {
+				paths.add(folder.length() == 0 ? fileName : folder + '/' + fileName);
+				continue;
+			}
+
+			String[] names = source.list(folder);
+			if (names == null)
+				continue;
+
+			for (String name : names) {
+				if (ServiceComponentHeader.matches(fileName, name))
+					paths.add(folder.length() == 0 ? name : folder + '/' + name);
+			}
+		}
+
+		return paths;
+	}
+
+	/**
+	 * Extracts the given source's descriptors. Descriptors that don't exist or are
+	 * ruled out by the prefilter are omitted; those without a component
+	 * definition map to {@code null}.
+	 *
+	 * @return descriptor facts by path, in header order
+	 */
+	public Map<String, DescriptorInfo> extract(DescriptorSource source) throws IOException {
+		LinkedHashMap<String, DescriptorInfo> results = new LinkedHashMap<String, DescriptorInfo>();
+		DescriptorScanner scanner = DescriptorScanner.getDefault();
+		for (String path : resolvePaths(source)) {
+			InputStream in = source.open(path);
+			if (in == null)
+				continue;
+
+			try {
+				scanner.read(in);
+			} finally {
+				in.close();
+			}
+
+			if (prefilter == null || prefilter.accept(scanner.getBytes(), 0, scanner.getByteCount()))
+				results.put(path, scanner.scan());
+		}
+
+		return results;
+	}
+}
@@ -0,0 +1,336 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Immutable set of facts extracted from a single component descriptor --
+ * just the attribute values the participant matches on (and those that
+ * describe the component's services), along with their locations in the
+ * descriptor text.
+ */
+public class DescriptorInfo {
+
+	public static final String DEFAULT_ACTIVATE = "activate"; //$NON-NLS-1$
+
+	public static final String DEFAULT_DEACTIVATE = "deactivate"; //$NON-NLS-1$
+
+	private static final Attribute[] NO_ATTRIBUTES = new Attribute[0];
+
+	private static final Reference[] NO_REFERENCES = new Reference[0];
+
+	private final Attribute component;
+
+	private final Attribute name;
+
+	private final Attribute implementation;
+
+	private final Attribute activate;
+
+	private final Attribute deactivate;
+
+	private final Attribute modified;
+
+	private final Attribute[] provides;
+
+	private final Reference[] references;
+
+	public DescriptorInfo(Attribute component, Attribute name, Attribute implementation, Attribute activate, Attribute deactivate, Attribute modified, Attribute[] provides, Reference[] references) {
+		this.component = component;
+		this.name = name;
+		this.implementation = implementation;
+		this.activate = activate;
+		this.deactivate = deactivate;
+		this.modified = modified;
+		this.provides = provides == null ? NO_ATTRIBUTES : provides;
+		this.references = references == null ? NO_REFERENCES : references;
+	}
+
+	/**
+	 * Returns the component element's tag name and its location; used when
+	 * reporting matches against implied (default) lifecycle methods.
+	 */
+	public Attribute getComponent() {
+		return component;
+	}
+
+	/**
+	 * Returns the component name, or {@code null} if not specified (in which
+	 * case it defaults to the implementation class name).
+	 */
+	public Attribute getName() {
+		return name;
+	}
+
+	public Attribute getImplementation() {
+		return implementation;
+	}
+
+	public Attribute getActivate() {
+		return activate;
+	}
+
+	public Attribute getDeactivate() {
+		return deactivate;
+	}
+
+	public Attribute getModified() {
+		return modified;
+	}
+
+	public Attribute[] getProvides() {
+		return provides;
+	}
+
+	public Reference[] getReferences() {
+		return references;
+	}
+
+	/**
+	 * Returns the lower-case simple names of all types and methods this
+	 * descriptor refers to, including the implied default lifecycle methods.
+	 */
+	public Set<String> getTokens() {
+		HashSet<String> tokens = new HashSet<String>();
+		addTypeToken(tokens, implementation);
+		for (Attribute provide : provides) {
+			addTypeToken(tokens, provide);
+		}
+
+		tokens.add(activate == null ? DEFAULT_ACTIVATE : toLowerCase(activate.getValue()));
+		tokens.add(deactivate == null ? DEFAULT_DEACTIVATE : toLowerCase(deactivate.getValue()));
+		addToken(tokens, modified);
+
+		for (Reference reference : references) {
+			addTypeToken(tokens, reference.getInterface());
+			addToken(tokens, reference.getBind());
+			addToken(tokens, reference.getUnbind());
+			addToken(tokens, reference.getUpdated());
+		}
+
+		return Collections.unmodifiableSet(tokens);
+	}
+
+	private static void addTypeToken(Set<String> tokens, Attribute attr) {
+		if (attr != null)
+			tokens.add(toLowerCase(getSimpleName(attr.getValue())));
+	}
+
+	private static void addToken(Set<String> tokens, Attribute attr) {
+		if (attr != null)
+			tokens.add(toLowerCase(attr.getValue()));
+	}
+
+	/**
+	 * Lower-cases the given name independently of the default locale, for use
+	 * as a token; tokens are persisted, and must compare the same wherever
+	 * they were computed.
+	 */
+	public static String toLowerCase(String name) {
+		return name.toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * Returns the simple name of the given (possibly qualified or nested) type name.
+	 */
+	public static String getSimpleName(String name) {
+		int i = Math.max(name.lastIndexOf('.'), name.lastIndexOf('$'));
+		return i == -1 ? name.trim() : name.substring(i + 1).trim();
+	}
+
+	public void write(DataOutput out) throws IOException {
+		Attribute.write(out, component);
+		Attribute.write(out, name);
+		Attribute.write(out, implementation);
+		Attribute.write(out, activate);
+		Attribute.write(out, deactivate);
+		Attribute.write(out, modified);
+		out.writeInt(provides.length);
+		for (Attribute provide : provides) {
+			Attribute.write(out, provide);
+		}
+
+		out.writeInt(references.length);
+		for (Reference reference : references) {
+			Attribute.write(out, reference.getName());
+			Attribute.write(out, reference.getInterface());
+			Attribute.write(out, reference.getCardinality());
+			Attribute.write(out, reference.getPolicy());
+			Attribute.write(out, reference.getTarget());
+			Attribute.write(out, reference.getBind());
+			Attribute.write(out, reference.getUnbind());
+			Attribute.write(out, reference.getUpdated());
+		}
+	}
+
+	public static DescriptorInfo read(DataInput in) throws IOException {
+		Attribute component = Attribute.read(in);
+		Attribute name = Attribute.read(in);
+		Attribute implementation = Attribute.read(in);
+		Attribute activate = Attribute.read(in);
+		Attribute deactivate = Attribute.read(in);
+		Attribute modified = Attribute.read(in);
+		Attribute[] provides = new Attribute[in.readInt()];
+		for (int i = 0; i < provides.length; ++i) {
+			provides[i] = Attribute.read(in);
+		}
+
+		Reference[] references = new Reference[in.readInt()];
+		for (int i = 0; i < references.length; ++i) {
+			references[i] = new Reference(Attribute.read(in), Attribute.read(in), Attribute.read(in), Attribute.read(in), Attribute.read(in), Attribute.read(in), Attribute.read(in), Attribute.read(in));
+		}
+
+		return new DescriptorInfo(component, name, implementation, activate, deactivate, modified, provides, references);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("DescriptorInfo[implementation=%s]", implementation); //$NON-NLS-1$
+	}
+
+	/**
+	 * Attribute (or element name) value along with its location in the descriptor.
+	 */
+	public static class Attribute {
+
+		private final String value;
+
+		private final int offset;
+
+		private final int length;
+
+		public Attribute(String value, int offset, int length) {
+			this.value = value;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		public int getOffset() {
+			return offset;
+		}
+
+		public int getLength() {
+			return length;
+		}
+
+		static void write(DataOutput out, Attribute attr) throws IOException {
+			out.writeBoolean(attr != null);
+			if (attr != null) {
+				out.writeUTF(attr.value);
+				out.writeInt(attr.offset);
+				out.writeInt(attr.length);
+			}
+		}
+
+		static Attribute read(DataInput in) throws IOException {
+			if (!in.readBoolean())
+				return null;
+
+			return new Attribute(in.readUTF(), in.readInt(), in.readInt());
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s@%d+%d", value, offset, length); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Service reference facts.
+	 */
+	public static class Reference {
+
+		public static final String DEFAULT_CARDINALITY = "1..1"; //$NON-NLS-1$
+
+		public static final String DEFAULT_POLICY = "static"; //$NON-NLS-1$
+
+		private final Attribute name;
+
+		private final Attribute iface;
+
+		private final Attribute cardinality;
+
+		private final Attribute policy;
+
+		private final Attribute target;
+
+		private final Attribute bind;
+
+		private final Attribute unbind;
+
+		private final Attribute updated;
+
+		public Reference(Attribute name, Attribute iface, Attribute cardinality, Attribute policy, Attribute target, Attribute bind, Attribute unbind, Attribute updated) {
+			this.name = name;
+			this.iface = iface;
+			this.cardinality = cardinality;
+			this.policy = policy;
+			this.target = target;
+			this.bind = bind;
+			this.unbind = unbind;
+			this.updated = updated;
+		}
+
+		public Attribute getName() {
+			return name;
+		}
+
+		public Attribute getInterface() {
+			return iface;
+		}
+
+		/**
+		 * Returns the cardinality, or {@code null} if not specified
+		 * (i.e., {@value #DEFAULT_CARDINALITY}).
+		 */
+		public Attribute getCardinality() {
+			return cardinality;
+		}
+
+		/**
+		 * Returns the policy, or {@code null} if not specified
+		 * (i.e., {@value #DEFAULT_POLICY}).
+		 */
+		public Attribute getPolicy() {
+			return policy;
+		}
+
+		/**
+		 * Returns the target filter, or {@code null} if not specified.
+		 */
+		public Attribute getTarget() {
+			return target;
+		}
+
+		public Attribute getBind() {
+			return bind;
+		}
+
+		public Attribute getUnbind() {
+			return unbind;
+		}
+
+		public Attribute getUpdated() {
+			return updated;
+		}
+	}
+}
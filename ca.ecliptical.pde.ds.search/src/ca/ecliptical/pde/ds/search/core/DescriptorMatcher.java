@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Attribute;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Reference;
+
+/**
+ * Matches the type and method references of component descriptors against a
+ * query: implementation classes, provided and referenced service interfaces,
+ * and lifecycle and event methods (including the implied default activate
+ * and deactivate methods).
+ *
+ * @param <T> type type
+ * @param <M> method type
+ * @param <X> type of exception thrown by lookups
+ */
+public class DescriptorMatcher<T, M, X extends Exception> {
+
+	private final ElementMatcher<T, M, X> matcher;
+
+	private final boolean implementations;
+
+	private final boolean interfaces;
+
+	private final boolean methods;
+
+	/**
+	 * Creates a new matcher.
+	 *
+	 * @param matcher query to test resolved elements against
+	 * @param implementations whether to match implementation classes
+	 * @param interfaces whether to match provided and referenced interfaces
+	 * @param methods whether to match lifecycle and event methods
+	 */
+	public DescriptorMatcher(ElementMatcher<T, M, X> matcher, boolean implementations, boolean interfaces, boolean methods) {
+		this.matcher = matcher;
+		this.implementations = implementations;
+		this.interfaces = interfaces;
+		this.methods = methods;
+	}
+
+	/**
+	 * Returns the attributes of the given descriptor that refer to matching elements.
+	 *
+	 * @param info descriptor facts
+	 * @param resolver resolver for the descriptor's bundle
+	 * @return matching attributes, in descriptor order by kind
+	 */
+	public List<Attribute> match(DescriptorInfo info, TypeResolver<T, M, X> resolver) throws X {
+		ArrayList<Attribute> matches = new ArrayList<Attribute>();
+		T implClassType = null;
+		Attribute impl = info.getImplementation();
+		if (impl != null)
+			implClassType = resolver.findType(impl.getValue());
+
+		if (implementations) {
+			// match specific type references
+			if (implClassType != null && matcher.matchesType(implClassType))
+				matches.add(impl);
+		}
+
+		if (interfaces) {
+			for (Attribute provide : info.getProvides()) {
+				if (provide == null)
+					continue;
+
+				T ifaceType = resolver.findType(provide.getValue());
+				if (ifaceType != null && matcher.matchesType(ifaceType))
+					matches.add(provide);
+			}
+
+			for (Reference reference : info.getReferences()) {
+				Attribute iface = reference.getInterface();
+				if (iface == null)
+					continue;
+
+				T ifaceType = resolver.findType(iface.getValue());
+				if (ifaceType != null && matcher.matchesType(ifaceType))
+					matches.add(iface);
+			}
+		}
+
+		if (methods && implClassType != null) {
+			// match specific method references
+			Attribute activate = info.getActivate();
+			M activateMethod = resolver.findLifecycleMethod(implClassType, LifecycleMethodSelector.ACTIVATE, activate == null ? DescriptorInfo.DEFAULT_ACTIVATE : activate.getValue(), null);
+			if (activateMethod != null && matcher.matchesMethod(activateMethod))
+				matches.add(activate == null ? info.getComponent() : activate);
+
+			Attribute modified = info.getModified();
+			if (modified != null) {
+				M modifiedMethod = resolver.findLifecycleMethod(implClassType, LifecycleMethodSelector.ACTIVATE, modified.getValue(), null);
+				if (modifiedMethod != null && matcher.matchesMethod(modifiedMethod))
+					matches.add(modified);
+			}
+
+			Attribute deactivate = info.getDeactivate();
+			M deactivateMethod = resolver.findLifecycleMethod(implClassType, LifecycleMethodSelector.DEACTIVATE, deactivate == null ? DescriptorInfo.DEFAULT_DEACTIVATE : deactivate.getValue(), null);
+			if (deactivateMethod != null && matcher.matchesMethod(deactivateMethod))
+				matches.add(deactivate == null ? info.getComponent() : deactivate);
+
+			for (Reference reference : info.getReferences()) {
+				Attribute refIface = reference.getInterface();
+				if (refIface == null)
+					continue;
+
+				Attribute bind = reference.getBind();
+				if (bind != null) {
+					M bindMethod = resolver.findLifecycleMethod(implClassType, LifecycleMethodSelector.BIND, bind.getValue(), refIface.getValue());
+					if (bindMethod != null && matcher.matchesMethod(bindMethod))
+						matches.add(bind);
+				}
+
+				Attribute unbind = reference.getUnbind();
+				if (unbind != null) {
+					M unbindMethod = resolver.findLifecycleMethod(implClassType, LifecycleMethodSelector.BIND, unbind.getValue(), refIface.getValue());
+					if (unbindMethod != null && matcher.matchesMethod(unbindMethod))
+						matches.add(unbind);
+				}
+
+				Attribute updated = reference.getUpdated();
+				if (updated != null) {
+					M updatedMethod = resolver.findLifecycleMethod(implClassType, LifecycleMethodSelector.UPDATED, updated.getValue(), null);
+					if (updatedMethod != null && matcher.matchesMethod(updatedMethod))
+						matches.add(updated);
+				}
+			}
+		}
+
+		return matches;
+	}
+}
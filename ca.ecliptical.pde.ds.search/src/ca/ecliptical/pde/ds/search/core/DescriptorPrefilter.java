@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+
+/**
+ * Quick test of raw descriptor bytes for the presence of any of a set of
+ * literal tokens (e.g., the simple name of the type being searched for);
+ * descriptors that contain none of them cannot possibly match, and need
+ * not be parsed.
+ * <p>
+ * All tokens are searched for simultaneously in a single pass over the
+ * input, using a precomputed Aho-Corasick automaton. Since any character
+ * in an attribute value could be written as a character reference,
+ * input that contains any is always accepted.
+ * </p>
+ */
+public class DescriptorPrefilter {
+
+	private static final String CHAR_REF = "&#"; //$NON-NLS-1$
+
+	private final int[][] transitions;
+
+	private final boolean[] accepting;
+
+	private final boolean caseSensitive;
+
+	private DescriptorPrefilter(int[][] transitions, boolean[] accepting, boolean caseSensitive) {
+		this.transitions = transitions;
+		this.accepting = accepting;
+		this.caseSensitive = caseSensitive;
+	}
+
+	/**
+	 * Creates a prefilter for the given tokens.
+	 *
+	 * @param tokens literal tokens, at least one of which must be present in matching input
+	 * @param caseSensitive whether tokens must match exactly or ignoring (ASCII) case
+	 * @return new prefilter, or {@code null} if the tokens can't be searched for in raw bytes
+	 */
+	public static DescriptorPrefilter create(Collection<String> tokens, boolean caseSensitive) {
+		if (tokens.isEmpty())
+			return null;
+
+		ArrayList<String> patterns = new ArrayList<String>(tokens.size() + 1);
+		for (String token : tokens) {
+			if (token.length() == 0)
+				return null;
+
+			for (int i = 0, n = token.length(); i < n; ++i) {
+				// only ASCII tokens are encoding-neutral
+				if (token.charAt(i) > 0x7f)
+					return null;
+			}
+
+			// independent of the locale, so ASCII stays ASCII
+			patterns.add(caseSensitive ? token : DescriptorInfo.toLowerCase(token));
+		}
+
+		patterns.add(CHAR_REF);
+
+		// build trie
+		ArrayList<int[]> trie = new ArrayList<int[]>();
+		ArrayList<Boolean> terminal = new ArrayList<Boolean>();
+		trie.add(newState());
+		terminal.add(Boolean.FALSE);
+		for (String pattern : patterns) {
+			int state = 0;
+			for (int i = 0, n = pattern.length(); i < n; ++i) {
+				int b = pattern.charAt(i);
+				int next = trie.get(state)[b];
+				if (next == -1) {
+					next = trie.size();
+					trie.add(newState());
+					terminal.add(Boolean.FALSE);
+					trie.get(state)[b] = next;
+				}
+
+				state = next;
+			}
+
+			terminal.set(state, Boolean.TRUE);
+		}
+
+		// compute failure links breadth-first, turning the trie into a DFA
+		int stateCount = trie.size();
+		int[][] transitions = trie.toArray(new int[stateCount][]);
+		boolean[] accepting = new boolean[stateCount];
+		int[] failure = new int[stateCount];
+		for (int i = 0; i < stateCount; ++i) {
+			accepting[i] = terminal.get(i).booleanValue();
+		}
+
+		LinkedList<Integer> queue = new LinkedList<Integer>();
+		for (int b = 0; b < 256; ++b) {
+			int next = transitions[0][b];
+			if (next == -1) {
+				transitions[0][b] = 0;
+			} else {
+				failure[next] = 0;
+				queue.add(Integer.valueOf(next));
+			}
+		}
+
+		while (!queue.isEmpty()) {
+			int state = queue.removeFirst().intValue();
+			accepting[state] |= accepting[failure[state]];
+			for (int b = 0; b < 256; ++b) {
+				int next = transitions[state][b];
+				if (next == -1) {
+					transitions[state][b] = transitions[failure[state]][b];
+				} else {
+					failure[next] = transitions[failure[state]][b];
+					queue.add(Integer.valueOf(next));
+				}
+			}
+		}
+
+		return new DescriptorPrefilter(transitions, accepting, caseSensitive);
+	}
+
+	private static int[] newState() {
+		int[] state = new int[256];
+		for (int i = 0; i < state.length; ++i) {
+			state[i] = -1;
+		}
+
+		return state;
+	}
+
+	/**
+	 * Tests whether the given input may match.
+	 *
+	 * @param bytes input buffer
+	 * @param offset offset of first input byte
+	 * @param length number of input bytes
+	 * @return {@code true} if any of the tokens (or a character reference) is present
+	 */
+	public boolean accept(byte[] bytes, int offset, int length) {
+		int[][] transitions = this.transitions;
+		boolean[] accepting = this.accepting;
+		int state = 0;
+		for (int i = offset, n = offset + length; i < n; ++i) {
+			int b = bytes[i] & 0xff;
+			if (!caseSensitive && b >= 'A' && b <= 'Z')
+				b += 'a' - 'A';
+
+			state = transitions[state][b];
+			if (accepting[state])
+				return true;
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,605 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Attribute;
+import ca.ecliptical.pde.ds.search.core.DescriptorInfo.Reference;
+
+/**
+ * Lightweight, read-only scanner that extracts {@link DescriptorInfo} directly
+ * from component descriptor text, without building a document model.
+ * <p>
+ * Only the attributes of interest are recognized: those of the root
+ * {@code component} element, its first {@code implementation} element, the
+ * {@code provide} elements of its first {@code service} element, and its
+ * {@code reference} elements. Reported offsets are character offsets into the
+ * decoded descriptor text, just like those of the PDE DS model.
+ * </p>
+ * <p>
+ * Scanners keep their byte and character buffers between uses; use
+ * {@link #getDefault()} to obtain the current thread's instance.
+ * </p>
+ */
+public class DescriptorScanner {
+
+	private static final String ELEMENT_COMPONENT = "component"; //$NON-NLS-1$
+
+	private static final String ELEMENT_IMPLEMENTATION = "implementation"; //$NON-NLS-1$
+
+	private static final String ELEMENT_SERVICE = "service"; //$NON-NLS-1$
+
+	private static final String ELEMENT_PROVIDE = "provide"; //$NON-NLS-1$
+
+	private static final String ELEMENT_REFERENCE = "reference"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_NAME = "name"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_ACTIVATE = "activate"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_DEACTIVATE = "deactivate"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_MODIFIED = "modified"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_CLASS = "class"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_INTERFACE = "interface"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_CARDINALITY = "cardinality"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_POLICY = "policy"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_TARGET = "target"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_BIND = "bind"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_UNBIND = "unbind"; //$NON-NLS-1$
+
+	private static final String ATTRIBUTE_UPDATED = "updated"; //$NON-NLS-1$
+
+	private static final int KIND_OTHER = 0;
+
+	private static final int KIND_COMPONENT = 1;
+
+	private static final int KIND_SERVICE = 2;
+
+	private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	// larger buffers aren't retained between uses
+	private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+	private static final ThreadLocal<DescriptorScanner> instances = new ThreadLocal<DescriptorScanner>() {
+		@Override
+		protected DescriptorScanner initialValue() {
+			return new DescriptorScanner();
+		}
+	};
+
+	private final CharsetDecoder decoder = Charset.forName("UTF-8").newDecoder() //$NON-NLS-1$
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	private byte[] bytes = new byte[DEFAULT_BUFFER_SIZE];
+
+	private int byteCount;
+
+	private char[] chars = new char[DEFAULT_BUFFER_SIZE];
+
+	private int[] kinds = new int[8];
+
+	private int[] attrNameStarts = new int[8];
+
+	private int[] attrNameEnds = new int[8];
+
+	private int[] attrValueStarts = new int[8];
+
+	private int[] attrValueEnds = new int[8];
+
+	private int attrCount;
+
+	private final StringBuilder valueBuilder = new StringBuilder();
+
+	/**
+	 * Returns the current thread's scanner.
+	 */
+	public static DescriptorScanner getDefault() {
+		return instances.get();
+	}
+
+	/**
+	 * Reads all remaining bytes of the given stream into this scanner's buffer.
+	 * The stream is not closed.
+	 *
+	 * @param in stream to read
+	 * @return number of bytes read
+	 * @throws IOException if the stream can't be read
+	 */
+	public int read(InputStream in) throws IOException {
+		int n = 0;
+		while (true) {
+			if (n == bytes.length) {
+				byte[] newBytes = new byte[bytes.length * 2];
+				System.arraycopy(bytes, 0, newBytes, 0, n);
+				bytes = newBytes;
+			}
+
+			int c = in.read(bytes, n, bytes.length - n);
+			if (c == -1)
+				break;
+
+			n += c;
+		}
+
+		byteCount = n;
+		return n;
+	}
+
+	/**
+	 * Returns the buffer holding the bytes last read; only the first
+	 * {@link #getByteCount()} bytes are valid.
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	public int getByteCount() {
+		return byteCount;
+	}
+
+	/**
+	 * Reads the given (UTF-8 encoded) descriptor stream and extracts its facts.
+	 * The stream is not closed.
+	 *
+	 * @param in descriptor stream
+	 * @return descriptor facts, or {@code null} if there's no component with an implementation
+	 * @throws IOException if the stream can't be read
+	 */
+	public DescriptorInfo scan(InputStream in) throws IOException {
+		read(in);
+		return scan();
+	}
+
+	/**
+	 * Extracts descriptor facts from the (UTF-8 encoded) bytes last read.
+	 *
+	 * @return descriptor facts, or {@code null} if there's no component with an implementation
+	 */
+	public DescriptorInfo scan() {
+		return scan(decoder);
+	}
+
+	/**
+	 * Extracts descriptor facts from the bytes last read, decoded using the given charset.
+	 *
+	 * @param charset descriptor encoding
+	 * @return descriptor facts, or {@code null} if there's no component with an implementation
+	 */
+	public DescriptorInfo scan(Charset charset) {
+		if (charset.equals(decoder.charset()))
+			return scan(decoder);
+
+		return scan(charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE));
+	}
+
+	private DescriptorInfo scan(CharsetDecoder decoder) {
+		int maxChars = (int) Math.ceil(byteCount * (double) decoder.maxCharsPerByte());
+		if (chars.length < maxChars)
+			chars = new char[maxChars];
+
+		decoder.reset();
+		CharBuffer out = CharBuffer.wrap(chars);
+		decoder.decode(ByteBuffer.wrap(bytes, 0, byteCount), out, true);
+		decoder.flush(out);
+
+		int len = out.position();
+		if (len > 0 && chars[0] == '\uFEFF') {
+			// offsets are relative to the text after the byte order mark, as in editor documents
+			System.arraycopy(chars, 1, chars, 0, --len);
+		}
+
+		try {
+			return scan(chars, len);
+		} finally {
+			trimBuffers();
+		}
+	}
+
+	/**
+	 * Extracts descriptor facts from the given descriptor text.
+	 *
+	 * @param content descriptor text
+	 * @return descriptor facts, or {@code null} if there's no component with an implementation
+	 */
+	public DescriptorInfo scan(String content) {
+		int len = content.length();
+		if (chars.length < len)
+			chars = new char[len];
+
+		content.getChars(0, len, chars, 0);
+		try {
+			return scan(chars, len);
+		} finally {
+			trimBuffers();
+		}
+	}
+
+	private void trimBuffers() {
+		if (bytes.length > MAX_POOLED_BUFFER_SIZE)
+			bytes = new byte[DEFAULT_BUFFER_SIZE];
+
+		if (chars.length > MAX_POOLED_BUFFER_SIZE)
+			chars = new char[DEFAULT_BUFFER_SIZE];
+	}
+
+	private DescriptorInfo scan(char[] buf, int len) {
+		Attribute component = null;
+		Attribute name = null;
+		Attribute implementation = null;
+		Attribute activate = null;
+		Attribute deactivate = null;
+		Attribute modified = null;
+		boolean hasImplementation = false;
+		boolean hasService = false;
+		ArrayList<Attribute> provides = new ArrayList<Attribute>();
+		ArrayList<Reference> references = new ArrayList<Reference>();
+
+		int depth = 0;
+		int pos = 0;
+		scan: while (true) {
+			// skip character data
+			while (pos < len && buf[pos] != '<') {
+				++pos;
+			}
+
+			if (pos + 1 >= len)
+				break;
+
+			char c = buf[pos + 1];
+			if (c == '?') {
+				// processing instruction or XML declaration
+				pos = skipPast(buf, pos + 2, len, "?>"); //$NON-NLS-1$
+				continue;
+			}
+
+			if (c == '!') {
+				if (startsWith(buf, pos, len, "<!--")) //$NON-NLS-1$
+					pos = skipPast(buf, pos + 4, len, "-->"); //$NON-NLS-1$
+				else if (startsWith(buf, pos, len, "<![CDATA[")) //$NON-NLS-1$
+					pos = skipPast(buf, pos + 9, len, "]]>"); //$NON-NLS-1$
+				else
+					pos = skipDeclaration(buf, pos + 2, len);
+
+				continue;
+			}
+
+			if (c == '/') {
+				// end tag
+				pos = skipPast(buf, pos + 2, len, ">"); //$NON-NLS-1$
+				if (--depth <= 0)
+					break;
+
+				continue;
+			}
+
+			// start tag
+			int nameStart = pos + 1;
+			int p = nameStart;
+			while (p < len && !isWhitespace(buf[p]) && buf[p] != '>' && buf[p] != '/') {
+				++p;
+			}
+
+			int nameEnd = p;
+			boolean empty = false;
+			attrCount = 0;
+			while (true) {
+				while (p < len && isWhitespace(buf[p])) {
+					++p;
+				}
+
+				if (p >= len)
+					break scan;
+
+				if (buf[p] == '>') {
+					++p;
+					break;
+				}
+
+				if (buf[p] == '/') {
+					if (p + 1 < len && buf[p + 1] == '>') {
+						empty = true;
+						p += 2;
+						break;
+					}
+
+					++p;
+					continue;
+				}
+
+				int attrNameStart = p;
+				while (p < len && !isWhitespace(buf[p]) && buf[p] != '=' && buf[p] != '>' && buf[p] != '/') {
+					++p;
+				}
+
+				int attrNameEnd = p;
+				while (p < len && isWhitespace(buf[p])) {
+					++p;
+				}
+
+				if (p >= len)
+					break scan;
+
+				if (buf[p] != '=')
+					continue;
+
+				++p;
+				while (p < len && isWhitespace(buf[p])) {
+					++p;
+				}
+
+				if (p >= len)
+					break scan;
+
+				char quote = buf[p];
+				if (quote != '"' && quote != '\'')
+					continue;
+
+				int valueStart = ++p;
+				while (p < len && buf[p] != quote) {
+					++p;
+				}
+
+				if (p >= len)
+					break scan;
+
+				addAttribute(attrNameStart, attrNameEnd, valueStart, p++);
+			}
+
+			pos = p;
+
+			int localStart = nameStart;
+			for (int i = nameStart; i < nameEnd; ++i) {
+				if (buf[i] == ':')
+					localStart = i + 1;
+			}
+
+			int kind = KIND_OTHER;
+			if (depth == 0) {
+				if (!regionEquals(buf, localStart, nameEnd, ELEMENT_COMPONENT))
+					return null;
+
+				component = new Attribute(new String(buf, nameStart, nameEnd - nameStart), nameStart, nameEnd - nameStart);
+				name = getAttribute(buf, ATTRIBUTE_NAME);
+				activate = getAttribute(buf, ATTRIBUTE_ACTIVATE);
+				deactivate = getAttribute(buf, ATTRIBUTE_DEACTIVATE);
+				modified = getAttribute(buf, ATTRIBUTE_MODIFIED);
+				kind = KIND_COMPONENT;
+			} else if (kinds[depth - 1] == KIND_COMPONENT) {
+				if (regionEquals(buf, localStart, nameEnd, ELEMENT_IMPLEMENTATION)) {
+					if (!hasImplementation) {
+						hasImplementation = true;
+						implementation = getAttribute(buf, ATTRIBUTE_CLASS);
+					}
+				} else if (regionEquals(buf, localStart, nameEnd, ELEMENT_SERVICE)) {
+					if (!hasService) {
+						hasService = true;
+						kind = KIND_SERVICE;
+					}
+				} else if (regionEquals(buf, localStart, nameEnd, ELEMENT_REFERENCE)) {
+					references.add(new Reference(
+							getAttribute(buf, ATTRIBUTE_NAME),
+							getAttribute(buf, ATTRIBUTE_INTERFACE),
+							getAttribute(buf, ATTRIBUTE_CARDINALITY),
+							getAttribute(buf, ATTRIBUTE_POLICY),
+							getAttribute(buf, ATTRIBUTE_TARGET),
+							getAttribute(buf, ATTRIBUTE_BIND),
+							getAttribute(buf, ATTRIBUTE_UNBIND),
+							getAttribute(buf, ATTRIBUTE_UPDATED)));
+				}
+			} else if (kinds[depth - 1] == KIND_SERVICE) {
+				if (regionEquals(buf, localStart, nameEnd, ELEMENT_PROVIDE)) {
+					Attribute provide = getAttribute(buf, ATTRIBUTE_INTERFACE);
+					if (provide != null)
+						provides.add(provide);
+				}
+			}
+
+			if (empty) {
+				if (depth == 0)
+					break;
+			} else {
+				if (depth == kinds.length) {
+					int[] newKinds = new int[depth * 2];
+					System.arraycopy(kinds, 0, newKinds, 0, depth);
+					kinds = newKinds;
+				}
+
+				kinds[depth++] = kind;
+			}
+		}
+
+		if (component == null || !hasImplementation)
+			return null;
+
+		return new DescriptorInfo(component, name, implementation, activate, deactivate, modified,
+				provides.toArray(new Attribute[provides.size()]),
+				references.toArray(new Reference[references.size()]));
+	}
+
+	private void addAttribute(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+		if (attrCount == attrNameStarts.length) {
+			int n = attrCount * 2;
+			attrNameStarts = grow(attrNameStarts, n);
+			attrNameEnds = grow(attrNameEnds, n);
+			attrValueStarts = grow(attrValueStarts, n);
+			attrValueEnds = grow(attrValueEnds, n);
+		}
+
+		attrNameStarts[attrCount] = nameStart;
+		attrNameEnds[attrCount] = nameEnd;
+		attrValueStarts[attrCount] = valueStart;
+		attrValueEnds[attrCount] = valueEnd;
+		++attrCount;
+	}
+
+	private static int[] grow(int[] array, int size) {
+		int[] result = new int[size];
+		System.arraycopy(array, 0, result, 0, array.length);
+		return result;
+	}
+
+	private Attribute getAttribute(char[] buf, String name) {
+		for (int i = 0; i < attrCount; ++i) {
+			if (regionEquals(buf, attrNameStarts[i], attrNameEnds[i], name)) {
+				int start = attrValueStarts[i];
+				int end = attrValueEnds[i];
+				return new Attribute(decodeValue(buf, start, end), start, end - start);
+			}
+		}
+
+		return null;
+	}
+
+	private String decodeValue(char[] buf, int start, int end) {
+		boolean plain = true;
+		for (int i = start; i < end; ++i) {
+			char c = buf[i];
+			if (c == '&' || (c != ' ' && isWhitespace(c))) {
+				plain = false;
+				break;
+			}
+		}
+
+		if (plain)
+			return new String(buf, start, end - start).trim();
+
+		StringBuilder sb = valueBuilder;
+		sb.setLength(0);
+		for (int i = start; i < end; ++i) {
+			char c = buf[i];
+			if (c == '&') {
+				int semi = i + 1;
+				while (semi < end && buf[semi] != ';') {
+					++semi;
+				}
+
+				if (semi < end) {
+					String ref = new String(buf, i + 1, semi - i - 1);
+					int resolved = resolveReference(ref);
+					if (resolved != -1) {
+						sb.append((char) resolved);
+						i = semi;
+						continue;
+					}
+				}
+			}
+
+			sb.append(isWhitespace(c) ? ' ' : c);
+		}
+
+		return sb.toString().trim();
+	}
+
+	private static int resolveReference(String ref) {
+		if ("lt".equals(ref)) //$NON-NLS-1$
+			return '<';
+
+		if ("gt".equals(ref)) //$NON-NLS-1$
+			return '>';
+
+		if ("amp".equals(ref)) //$NON-NLS-1$
+			return '&';
+
+		if ("quot".equals(ref)) //$NON-NLS-1$
+			return '"';
+
+		if ("apos".equals(ref)) //$NON-NLS-1$
+			return '\'';
+
+		if (ref.length() > 1 && ref.charAt(0) == '#') {
+			try {
+				int value = ref.charAt(1) == 'x' ? Integer.parseInt(ref.substring(2), 16) : Integer.parseInt(ref.substring(1));
+				if (value >= 0 && value <= Character.MAX_VALUE)
+					return value;
+			} catch (NumberFormatException e) {
+				// not a valid reference
+			}
+		}
+
+		return -1;
+	}
+
+	private static int skipPast(char[] buf, int pos, int len, String terminator) {
+		int n = terminator.length();
+		char first = terminator.charAt(0);
+		for (int i = pos; i <= len - n; ++i) {
+			if (buf[i] == first && startsWith(buf, i, len, terminator))
+				return i + n;
+		}
+
+		return len;
+	}
+
+	private static int skipDeclaration(char[] buf, int pos, int len) {
+		// DOCTYPE may contain an internal subset in square brackets
+		int nesting = 0;
+		for (int i = pos; i < len; ++i) {
+			char c = buf[i];
+			if (c == '[')
+				++nesting;
+			else if (c == ']')
+				--nesting;
+			else if (c == '>' && nesting <= 0)
+				return i + 1;
+		}
+
+		return len;
+	}
+
+	private static boolean startsWith(char[] buf, int pos, int len, String s) {
+		int n = s.length();
+		if (pos + n > len)
+			return false;
+
+		for (int i = 0; i < n; ++i) {
+			if (buf[pos + i] != s.charAt(i))
+				return false;
+		}
+
+		return true;
+	}
+
+	private static boolean regionEquals(char[] buf, int start, int end, String s) {
+		int n = s.length();
+		if (end - start != n)
+			return false;
+
+		for (int i = 0; i < n; ++i) {
+			if (buf[start + i] != s.charAt(i))
+				return false;
+		}
+
+		return true;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+	}
+}
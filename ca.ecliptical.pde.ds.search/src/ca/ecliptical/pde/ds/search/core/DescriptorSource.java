@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Bundle that component descriptors can be read from, independently of
+ * where it's stored (e.g., workspace project, bundle directory, or archive).
+ * Paths are bundle-relative and use {@code /} as the separator.
+ */
+public interface DescriptorSource {
+
+	/**
+	 * Returns a name that identifies the bundle in diagnostics.
+	 */
+	String getName();
+
+	/**
+	 * Returns the bundle's {@code Service-Component} manifest header.
+	 *
+	 * @return header value, or {@code null} if there's none
+	 */
+	String getServiceComponentHeader() throws IOException;
+
+	/**
+	 * Returns the names of the files in the given folder.
+	 *
+	 * @param folderPath folder path; empty for the bundle root
+	 * @return file names, or {@code null} if there's no such folder
+	 */
+	String[] list(String folderPath) throws IOException;
+
+	/**
+	 * Opens the given file for reading.
+	 *
+	 * @param path file path
+	 * @return input stream, or {@code null} if there's no such file
+	 */
+	InputStream open(String path) throws IOException;
+}
@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+/**
+ * Tests resolved types and methods against a query, e.g., a specific element
+ * or a name pattern.
+ *
+ * @param <T> type type
+ * @param <M> method type
+ * @param <X> type of exception thrown by tests
+ */
+public interface ElementMatcher<T, M, X extends Exception> {
+
+	boolean matchesType(T type) throws X;
+
+	boolean matchesMethod(M method) throws X;
+}
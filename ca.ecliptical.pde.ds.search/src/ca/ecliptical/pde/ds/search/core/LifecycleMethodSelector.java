@@ -0,0 +1,263 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+/**
+ * Selects component lifecycle (activate, modified, deactivate) and reference
+ * event (bind, unbind, updated) methods, following the method selection rules
+ * of the Declarative Services specification.
+ */
+public class LifecycleMethodSelector {
+
+	public static final int ACTIVATE = 1;
+
+	public static final int DEACTIVATE = 2;
+
+	public static final int BIND = 3;
+
+	public static final int UPDATED = 4;
+
+	private static final String COMPONENT_CONTEXT = "org.osgi.service.component.ComponentContext"; //$NON-NLS-1$
+
+	private static final String BUNDLE_CONTEXT = "org.osgi.framework.BundleContext"; //$NON-NLS-1$
+
+	private static final String MAP = "java.util.Map"; //$NON-NLS-1$
+
+	private static final String INT = "int"; //$NON-NLS-1$
+
+	private static final String INTEGER = "java.lang.Integer"; //$NON-NLS-1$
+
+	private static final String SERVICE_REFERENCE = "org.osgi.framework.ServiceReference"; //$NON-NLS-1$
+
+	private LifecycleMethodSelector() {
+		// not instantiable
+	}
+
+	/**
+	 * Selects the method of the given kind.
+	 *
+	 * @param resolver implementation class methods
+	 * @param kind one of {@link #ACTIVATE}, {@link #DEACTIVATE}, {@link #BIND}, or {@link #UPDATED}
+	 * @param name method name
+	 * @param referenceInterface reference interface name (bind methods only)
+	 * @return selected method, or {@code null} if none
+	 */
+	public static <M, X extends Exception> M select(MethodResolver<M, X> resolver, int kind, String name, String referenceInterface) throws X {
+		switch (kind) {
+		case ACTIVATE:
+			return selectActivateMethod(resolver, name);
+		case DEACTIVATE:
+			return selectDeactivateMethod(resolver, name);
+		case BIND:
+			return selectBindMethod(resolver, name, referenceInterface);
+		case UPDATED:
+			return selectUpdatedMethod(resolver, name);
+		default:
+			throw new IllegalArgumentException();
+		}
+	}
+
+	public static <M, X extends Exception> M selectActivateMethod(MethodResolver<M, X> resolver, String name) throws X {
+		M candidate = null;
+		int priority = Integer.MAX_VALUE;
+
+		for (M method : resolver.getCandidates(name)) {
+			String[] params = resolver.getParameterTypes(method);
+
+			if (params.length == 1 && COMPONENT_CONTEXT.equals(params[0])) {
+				// best match
+				return method;
+			}
+
+			if (priority > 1 && params.length == 1 && COMPONENT_CONTEXT.equals(params[0])) {
+				candidate = method;
+				priority = 1;
+				continue;
+			}
+
+			if (priority > 2 && params.length == 1 && MAP.equals(params[0])) {
+				candidate = method;
+				priority = 2;
+				continue;
+			}
+
+			if (priority > 3 && params.length >= 2) {
+				boolean valid = true;
+				for (String param : params) {
+					if (!COMPONENT_CONTEXT.equals(param)
+							&& !BUNDLE_CONTEXT.equals(param)
+							&& !MAP.equals(param)) {
+						valid = false;
+						break;
+					}
+				}
+
+				if (valid) {
+					candidate = method;
+					priority = 3;
+				}
+
+				continue;
+			}
+
+			if (priority > 4 && params.length == 0) {
+				candidate = method;
+				priority = 4;
+				continue;
+			}
+		}
+
+		return candidate;
+	}
+
+	public static <M, X extends Exception> M selectDeactivateMethod(MethodResolver<M, X> resolver, String name) throws X {
+		M candidate = null;
+		int priority = Integer.MAX_VALUE;
+
+		for (M method : resolver.getCandidates(name)) {
+			String[] params = resolver.getParameterTypes(method);
+
+			if (params.length == 1 && COMPONENT_CONTEXT.equals(params[0])) {
+				// best match
+				return method;
+			}
+
+			if (priority > 1 && params.length == 1 && COMPONENT_CONTEXT.equals(params[0])) {
+				candidate = method;
+				priority = 1;
+				continue;
+			}
+
+			if (priority > 2 && params.length == 1 && MAP.equals(params[0])) {
+				candidate = method;
+				priority = 2;
+				continue;
+			}
+
+			if (priority > 3 && params.length == 1 && INT.equals(params[0])) {
+				candidate = method;
+				priority = 3;
+				continue;
+			}
+
+			if (priority > 4 && params.length == 1 && INTEGER.equals(params[0])) {
+				candidate = method;
+				priority = 4;
+				continue;
+			}
+
+			if (priority > 5 && params.length >= 2) {
+				boolean valid = true;
+				for (String param : params) {
+					if (!COMPONENT_CONTEXT.equals(param)
+							&& !BUNDLE_CONTEXT.equals(param)
+							&& !MAP.equals(param)
+							&& !INT.equals(param)
+							&& !INTEGER.equals(param)) {
+						valid = false;
+						break;
+					}
+				}
+
+				if (valid) {
+					candidate = method;
+					priority = 5;
+				}
+
+				continue;
+			}
+
+			if (priority > 6 && params.length == 0) {
+				candidate = method;
+				priority = 6;
+				continue;
+			}
+		}
+
+		return candidate;
+	}
+
+	public static <M, X extends Exception> M selectBindMethod(MethodResolver<M, X> resolver, String name, String referenceInterface) throws X {
+		M candidate = null;
+		int priority = Integer.MAX_VALUE;
+
+		String arg0Type = null;
+
+		for (M method : resolver.getCandidates(name)) {
+			String[] params = resolver.getParameterTypes(method);
+
+			if (params.length == 1 && SERVICE_REFERENCE.equals(params[0])) {
+				// best match
+				return method;
+			}
+
+			if (priority > 1 && params.length == 1 && referenceInterface.equals(params[0])) {
+				candidate = method;
+				priority = 1;
+				continue;
+			}
+
+			if (priority > 2 && params.length == 1) {
+				if (arg0Type == null)
+					arg0Type = params[0];
+
+				if (resolver.isSuperclass(arg0Type, referenceInterface)) {
+					candidate = method;
+					priority = 2;
+				}
+
+				continue;
+			}
+
+			if (priority > 3 && params.length == 2 && referenceInterface.equals(params[0]) && MAP.equals(params[1])) {
+				candidate = method;
+				priority = 3;
+				continue;
+			}
+
+			if (priority > 4 && params.length == 2 && MAP.equals(params[1])) {
+				if (arg0Type == null)
+					arg0Type = params[0];
+
+				if (resolver.isSuperclass(arg0Type, referenceInterface)) {
+					candidate = method;
+					priority = 4;
+				}
+
+				continue;
+			}
+		}
+
+		return candidate;
+	}
+
+	public static <M, X extends Exception> M selectUpdatedMethod(MethodResolver<M, X> resolver, String name) throws X {
+		M candidate = null;
+
+		for (M method : resolver.getCandidates(name)) {
+			String[] params = resolver.getParameterTypes(method);
+
+			if (params.length != 1)
+				continue;
+
+			if (SERVICE_REFERENCE.equals(params[0])) {
+				// best match
+				return method;
+			}
+
+			if (candidate == null && MAP.equals(params[0])) {
+				candidate = method;
+			}
+		}
+
+		return candidate;
+	}
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/**
+ * Reads headers from the main section of bundle manifests. Like the OSGi
+ * framework (and unlike {@link java.util.jar.Manifest}), this accepts lines
+ * of any length, and a last line without a line terminator; header names are
+ * case-insensitive, and lines that aren't headers are ignored.
+ */
+public class ManifestHeaders {
+
+	public static final String BUNDLE_SYMBOLIC_NAME = "Bundle-SymbolicName"; //$NON-NLS-1$
+
+	public static final String BUNDLE_VERSION = "Bundle-Version"; //$NON-NLS-1$
+
+	private ManifestHeaders() {
+		// not instantiable
+	}
+
+	/**
+	 * Reads the given headers from the given manifest. The stream is not closed.
+	 *
+	 * @param in manifest stream
+	 * @param names header names
+	 * @return header values, in the order of the given names; {@code null} where not present
+	 * @throws IOException if the stream can't be read
+	 */
+	public static String[] read(InputStream in, String... names) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8")); //$NON-NLS-1$
+		String[] values = new String[names.length];
+		StringBuilder value = null;
+		int index = -1;
+		boolean started = false;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.length() == 0) {
+				// the main section ends at the first blank line after any headers
+				if (started)
+					break;
+
+				continue;
+			}
+
+			started = true;
+			if (line.charAt(0) == ' ') {
+				if (value != null)
+					value.append(line, 1, line.length());
+
+				continue;
+			}
+
+			if (value != null) {
+				values[index] = value.toString().trim();
+				value = null;
+			}
+
+			int colon = line.indexOf(':');
+			if (colon == -1)
+				continue;
+
+			String name = line.substring(0, colon).trim();
+			for (index = 0; index < names.length; ++index) {
+				// the first occurrence wins
+				if (values[index] == null && names[index].equalsIgnoreCase(name)) {
+					value = new StringBuilder(line.substring(colon + 1));
+					break;
+				}
+			}
+		}
+
+		if (value != null)
+			values[index] = value.toString().trim();
+
+		return values;
+	}
+
+	/**
+	 * Returns the value of the given header without any attributes or
+	 * directives, e.g., the symbolic name in a {@code Bundle-SymbolicName} header.
+	 *
+	 * @param header header value, or {@code null}
+	 * @return the part before the first {@code ';'}, trimmed; {@code null} if none
+	 */
+	public static String getValue(String header) {
+		if (header == null)
+			return null;
+
+		int semicolon = header.indexOf(';');
+		return (semicolon == -1 ? header : header.substring(0, semicolon)).trim();
+	}
+}
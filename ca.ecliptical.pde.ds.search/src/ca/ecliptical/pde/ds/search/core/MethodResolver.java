@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.util.List;
+
+/**
+ * Provides the methods of a single component implementation class, for
+ * {@link LifecycleMethodSelector} to select lifecycle and event methods from.
+ *
+ * @param <M> method type
+ * @param <X> type of exception thrown by lookups
+ */
+public interface MethodResolver<M, X extends Exception> {
+
+	/**
+	 * Returns the methods with the given name that are eligible as lifecycle or
+	 * event methods, i.e., that return void and are accessible from the
+	 * implementation class; methods of subclasses come first.
+	 */
+	List<M> getCandidates(String name) throws X;
+
+	/**
+	 * Returns the fully qualified names of the given method's erased parameter
+	 * types (e.g., {@code java.util.Map} or {@code int}).
+	 */
+	String[] getParameterTypes(M method) throws X;
+
+	/**
+	 * Tests whether the second named type is the first named type or one of its
+	 * superclasses; {@code false} if either type can't be found.
+	 */
+	boolean isSuperclass(String typeName, String superclassName) throws X;
+}
@@ -0,0 +1,23 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+/**
+ * Matches type and method names (as built by the caller, e.g., simple or
+ * qualified, with or without parameters) against a search pattern.
+ */
+public interface NameMatcher {
+
+	/**
+	 * Tests whether the given name matches.
+	 */
+	boolean matches(String name);
+}
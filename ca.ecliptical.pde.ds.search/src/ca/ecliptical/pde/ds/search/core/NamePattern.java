@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+/**
+ * Name pattern compiled once per query for matching many candidate names, or
+ * regions of names (e.g., the simple name part of a qualified name), without
+ * creating intermediate strings.
+ * <p>
+ * Match rules have the same values and semantics as those of JDT's
+ * {@code SearchPattern.getMatchingRegions}: exact, prefix, pattern (in which
+ * {@code *} matches any sequence of characters and {@code ?} any single
+ * character), or camel case (which, unless case sensitive, also matches names
+ * that start with the pattern, ignoring case); all may be combined with
+ * {@link #CASE_SENSITIVE}.
+ * </p>
+ */
+public abstract class NamePattern implements NameMatcher {
+
+	public static final int EXACT = 0;
+
+	public static final int PREFIX = 1;
+
+	public static final int PATTERN = 2;
+
+	public static final int CASE_SENSITIVE = 8;
+
+	public static final int CAMEL_CASE = 128;
+
+	private final String pattern;
+
+	private final int matchRule;
+
+	final char[] chars;
+
+	final boolean caseSensitive;
+
+	NamePattern(String pattern, int matchRule) {
+		this.pattern = pattern;
+		this.matchRule = matchRule;
+		caseSensitive = (matchRule & CASE_SENSITIVE) != 0;
+		chars = pattern.toCharArray();
+	}
+
+	/**
+	 * Compiles the given pattern.
+	 *
+	 * @param pattern name pattern
+	 * @param matchRule one of {@link #EXACT}, {@link #PREFIX}, {@link #PATTERN}, or
+	 *            {@link #CAMEL_CASE}, optionally combined with {@link #CASE_SENSITIVE}
+	 * @return compiled pattern
+	 * @throws IllegalArgumentException if the match rule isn't supported
+	 */
+	public static NamePattern compile(String pattern, int matchRule) {
+		switch (matchRule & ~CASE_SENSITIVE) {
+		case EXACT:
+			return new Exact(pattern, matchRule);
+		case PREFIX:
+			return new Prefix(pattern, matchRule);
+		case PATTERN:
+			int star = pattern.indexOf('*');
+			if ((matchRule & CASE_SENSITIVE) != 0 && pattern.indexOf('?') == -1) {
+				// specialize simple patterns; insensitive ones compare lower case characters only
+				if (star == -1)
+					return new Exact(pattern, matchRule);
+
+				if (star == pattern.length() - 1)
+					return new Prefix(pattern, matchRule, star);
+			}
+
+			return new Wildcard(pattern, matchRule);
+		case CAMEL_CASE:
+			return new CamelCase(pattern, matchRule);
+		default:
+			throw new IllegalArgumentException(String.format("Unsupported match rule: %d", matchRule)); //$NON-NLS-1$
+		}
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	public int getMatchRule() {
+		return matchRule;
+	}
+
+	public boolean matches(String name) {
+		return matches(name, 0, name.length());
+	}
+
+	public boolean matches(CharSequence name) {
+		return matches(name, 0, name.length());
+	}
+
+	/**
+	 * Tests whether the given region of the given name matches.
+	 *
+	 * @param name candidate name
+	 * @param start region start index
+	 * @param end region end index (exclusive)
+	 */
+	public abstract boolean matches(CharSequence name, int start, int end);
+
+	@Override
+	public String toString() {
+		return pattern;
+	}
+
+	/**
+	 * Compares the given number of pattern characters to the region's leading characters.
+	 */
+	boolean regionMatches(int len, CharSequence name, int start) {
+		if (caseSensitive) {
+			for (int i = 0; i < len; ++i) {
+				if (chars[i] != name.charAt(start + i))
+					return false;
+			}
+		} else {
+			for (int i = 0; i < len; ++i) {
+				if (!equalsIgnoreCase(chars[i], name.charAt(start + i)))
+					return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Compares characters like {@link String#equalsIgnoreCase(String)} does.
+	 */
+	static boolean equalsIgnoreCase(char c1, char c2) {
+		if (c1 == c2)
+			return true;
+
+		char u1 = Character.toUpperCase(c1);
+		char u2 = Character.toUpperCase(c2);
+		return u1 == u2 || Character.toLowerCase(u1) == Character.toLowerCase(u2);
+	}
+
+	private static class Exact extends NamePattern {
+
+		Exact(String pattern, int matchRule) {
+			super(pattern, matchRule);
+		}
+
+		@Override
+		public boolean matches(CharSequence name, int start, int end) {
+			return end - start == chars.length && regionMatches(chars.length, name, start);
+		}
+	}
+
+	private static class Prefix extends NamePattern {
+
+		private final int len;
+
+		Prefix(String pattern, int matchRule) {
+			this(pattern, matchRule, pattern.length());
+		}
+
+		Prefix(String pattern, int matchRule, int len) {
+			super(pattern, matchRule);
+			this.len = len;
+		}
+
+		@Override
+		public boolean matches(CharSequence name, int start, int end) {
+			return end - start >= len && regionMatches(len, name, start);
+		}
+	}
+
+	private static class Wildcard extends NamePattern {
+
+		Wildcard(String pattern, int matchRule) {
+			super(pattern, matchRule);
+			if (!caseSensitive) {
+				for (int i = 0; i < chars.length; ++i) {
+					chars[i] = Character.toLowerCase(chars[i]);
+				}
+			}
+		}
+
+		@Override
+		public boolean matches(CharSequence name, int start, int end) {
+			int p = 0;
+			int n = start;
+			// positions to backtrack to after the last star
+			int starP = -1;
+			int starN = -1;
+			while (n < end) {
+				if (p < chars.length) {
+					char pc = chars[p];
+					if (pc == '*') {
+						starP = ++p;
+						starN = n;
+						continue;
+					}
+
+					char nc = name.charAt(n);
+					if (pc == '?' || pc == (caseSensitive ? nc : Character.toLowerCase(nc))) {
+						++p;
+						++n;
+						continue;
+					}
+				}
+
+				if (starP == -1)
+					return false;
+
+				p = starP;
+				n = ++starN;
+			}
+
+			while (p < chars.length && chars[p] == '*') {
+				++p;
+			}
+
+			return p == chars.length;
+		}
+	}
+
+	/**
+	 * Camel case matching as in JDT's {@code CharOperation.camelCaseMatch}: each
+	 * upper case letter or digit in the pattern starts a new part that must match
+	 * the start of a part in the name.
+	 */
+	private static class CamelCase extends NamePattern {
+
+		CamelCase(String pattern, int matchRule) {
+			super(pattern, matchRule);
+		}
+
+		@Override
+		public boolean matches(CharSequence name, int start, int end) {
+			if (end - start < chars.length)
+				return false;
+
+			if (camelCaseMatch(name, start, end))
+				return true;
+
+			// insensitive camel case falls back to case-insensitive prefix matching
+			return !caseSensitive && regionMatches(chars.length, name, start);
+		}
+
+		private boolean camelCaseMatch(CharSequence name, int start, int end) {
+			if (chars.length == 0)
+				return end <= start;
+
+			if (end <= start || name.charAt(start) != chars[0])
+				return false;
+
+			int iPattern = 0;
+			int iName = start;
+			while (true) {
+				++iPattern;
+				++iName;
+				if (iPattern == chars.length)
+					return true;
+
+				if (iName == end)
+					return false;
+
+				char patternChar = chars[iPattern];
+				if (patternChar == name.charAt(iName))
+					continue;
+
+				// lower case pattern characters must match exactly
+				if (patternChar < 128) {
+					if (!isUpperCase(patternChar) && !isDigit(patternChar))
+						return false;
+				} else if (Character.isJavaIdentifierPart(patternChar) && !Character.isUpperCase(patternChar) && !Character.isDigit(patternChar)) {
+					return false;
+				}
+
+				// skip to the next part of the name
+				while (true) {
+					if (iName == end)
+						return false;
+
+					char nameChar = name.charAt(iName);
+					if (nameChar < 128) {
+						if (isLowerCase(nameChar) || nameChar == '$' || nameChar == '_') {
+							++iName;
+						} else if (isDigit(nameChar)) {
+							if (patternChar == nameChar)
+								break;
+
+							++iName;
+						} else if (patternChar != nameChar) {
+							return false;
+						} else {
+							break;
+						}
+					} else if (Character.isJavaIdentifierPart(nameChar) && !Character.isUpperCase(nameChar)) {
+						++iName;
+					} else if (Character.isDigit(nameChar)) {
+						if (patternChar == nameChar)
+							break;
+
+						++iName;
+					} else if (patternChar != nameChar) {
+						return false;
+					} else {
+						break;
+					}
+				}
+			}
+		}
+
+		private static boolean isUpperCase(char c) {
+			return c >= 'A' && c <= 'Z';
+		}
+
+		private static boolean isLowerCase(char c) {
+			return c >= 'a' && c <= 'z';
+		}
+
+		private static boolean isDigit(char c) {
+			return c >= '0' && c <= '9';
+		}
+	}
+}
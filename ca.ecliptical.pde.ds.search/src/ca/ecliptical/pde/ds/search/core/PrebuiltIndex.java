@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Prebuilt index of the component descriptors of a set of bundles, e.g., of a
+ * target platform, as generated by {@link PrebuiltIndexGenerator}. Bundles are
+ * keyed by file name; each carries identity data of the bundle it was generated
+ * from, so that its facts are only used for the same bundle: its symbolic name,
+ * version, and {@code Service-Component} header, the length of its archive,
+ * and the CRC-32s of its manifest and descriptors. For archives, all of these
+ * can be checked without reading any entries (see {@link Bundle#matches}).
+ * <p>
+ * The file format is versioned, and ends with a CRC-32 checksum of its contents.
+ * </p>
+ */
+public class PrebuiltIndex {
+
+	private static final int MAGIC = 0x44534958; // DSIX
+
+	private static final int VERSION = 3;
+
+	private static final String MANIFEST_PATH = "META-INF/MANIFEST.MF"; //$NON-NLS-1$
+
+	private final LinkedHashMap<String, Bundle> bundles = new LinkedHashMap<String, Bundle>();
+
+	public void put(Bundle bundle) {
+		bundles.put(bundle.getName(), bundle);
+	}
+
+	/**
+	 * Returns the facts of the bundle with the given file name.
+	 *
+	 * @return bundle facts, or {@code null} if not in index
+	 */
+	public Bundle get(String name) {
+		return bundles.get(name);
+	}
+
+	public Collection<Bundle> getBundles() {
+		return Collections.unmodifiableCollection(bundles.values());
+	}
+
+	public void write(OutputStream out) throws IOException {
+		CheckedOutputStream checked = new CheckedOutputStream(out, new CRC32());
+		DataOutputStream data = new DataOutputStream(checked);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(bundles.size());
+		for (Bundle bundle : bundles.values()) {
+			data.writeUTF(bundle.name);
+			data.writeUTF(bundle.symbolicName);
+			data.writeUTF(bundle.version);
+			data.writeLong(bundle.length);
+			data.writeBoolean(bundle.header != null);
+			if (bundle.header != null)
+				data.writeUTF(bundle.header);
+
+			data.writeInt(bundle.crcs.size());
+			for (Map.Entry<String, Long> entry : bundle.crcs.entrySet()) {
+				data.writeUTF(entry.getKey());
+				data.writeLong(entry.getValue().longValue());
+			}
+
+			data.writeInt(bundle.descriptors.size());
+			for (Map.Entry<String, DescriptorInfo> entry : bundle.descriptors.entrySet()) {
+				data.writeUTF(entry.getKey());
+				data.writeBoolean(entry.getValue() != null);
+				if (entry.getValue() != null)
+					entry.getValue().write(data);
+			}
+		}
+
+		data.flush();
+		data.writeLong(checked.getChecksum().getValue());
+		data.flush();
+	}
+
+	/**
+	 * Reads an index written by {@link #write(OutputStream)}.
+	 *
+	 * @throws IOException if the index can't be read, is of an unsupported version, or is corrupt
+	 */
+	public static PrebuiltIndex read(InputStream in) throws IOException {
+		CheckedInputStream checked = new CheckedInputStream(in, new CRC32());
+		DataInputStream data = new DataInputStream(checked);
+		if (data.readInt() != MAGIC)
+			throw new IOException("Not a descriptor index."); //$NON-NLS-1$
+
+		int formatVersion = data.readInt();
+		if (formatVersion != VERSION)
+			throw new IOException(String.format("Unsupported descriptor index version: %d", formatVersion)); //$NON-NLS-1$
+
+		PrebuiltIndex index = new PrebuiltIndex();
+		for (int i = 0, n = data.readInt(); i < n; ++i) {
+			String name = data.readUTF();
+			String symbolicName = data.readUTF();
+			String version = data.readUTF();
+			long length = data.readLong();
+			String header = data.readBoolean() ? data.readUTF() : null;
+			LinkedHashMap<String, Long> crcs = new LinkedHashMap<String, Long>();
+			for (int j = 0, m = data.readInt(); j < m; ++j) {
+				String path = data.readUTF();
+				crcs.put(path, Long.valueOf(data.readLong()));
+			}
+
+			LinkedHashMap<String, DescriptorInfo> descriptors = new LinkedHashMap<String, DescriptorInfo>();
+			for (int j = 0, m = data.readInt(); j < m; ++j) {
+				String path = data.readUTF();
+				descriptors.put(path, data.readBoolean() ? DescriptorInfo.read(data) : null);
+			}
+
+			index.put(new Bundle(name, symbolicName, version, length, header, crcs, descriptors));
+		}
+
+		long expected = checked.getChecksum().getValue();
+		if (data.readLong() != expected)
+			throw new IOException("Descriptor index checksum mismatch."); //$NON-NLS-1$
+
+		return index;
+	}
+
+	/**
+	 * Returns the CRC-32s of the given bundle's manifest and the given
+	 * descriptors (see {@link BundleDescriptorSource#getCrc(String)}).
+	 *
+	 * @param paths descriptor paths
+	 * @return CRC-32 by bundle-relative path, manifest first; {@code -1} for missing files
+	 */
+	public static Map<String, Long> getCrcs(BundleDescriptorSource source, Collection<String> paths) throws IOException {
+		LinkedHashMap<String, Long> crcs = new LinkedHashMap<String, Long>();
+		crcs.put(MANIFEST_PATH, Long.valueOf(source.getCrc(MANIFEST_PATH)));
+		for (String path : paths) {
+			crcs.put(path, Long.valueOf(source.getCrc(path)));
+		}
+
+		return crcs;
+	}
+
+	/**
+	 * Returns the given {@code Bundle-Version} header in the canonical form
+	 * of OSGi versions, e.g., {@code 1.0.0} for {@code 1.0}.
+	 *
+	 * @param version header value, or {@code null} for the default version
+	 * @return canonical version, or the given value if it isn't a valid version
+	 */
+	public static String normalizeVersion(String version) {
+		if (version == null)
+			return "0.0.0"; //$NON-NLS-1$
+
+		String[] segments = version.trim().split("\\.", 4); //$NON-NLS-1$
+		try {
+			StringBuilder buf = new StringBuilder();
+			for (int i = 0; i < 3; ++i) {
+				if (i > 0)
+					buf.append('.');
+
+				buf.append(i < segments.length ? Integer.parseInt(segments[i]) : 0);
+			}
+
+			if (segments.length == 4 && segments[3].length() > 0)
+				buf.append('.').append(segments[3]);
+
+			return buf.toString();
+		} catch (NumberFormatException e) {
+			return version;
+		}
+	}
+
+	/**
+	 * Prebuilt facts of a single bundle.
+	 */
+	public static class Bundle {
+
+		private final String name;
+
+		private final String symbolicName;
+
+		private final String version;
+
+		private final long length;
+
+		private final String header;
+
+		private final Map<String, Long> crcs;
+
+		private final Map<String, DescriptorInfo> descriptors;
+
+		/**
+		 * Creates new bundle facts.
+		 *
+		 * @param name bundle file name
+		 * @param symbolicName bundle symbolic name
+		 * @param version canonical bundle version (see {@link PrebuiltIndex#normalizeVersion(String)})
+		 * @param length archive length, or {@code -1} for directories
+		 * @param header {@code Service-Component} header, or {@code null} if none
+		 * @param crcs CRC-32s of the manifest and descriptors (see {@link PrebuiltIndex#getCrcs(BundleDescriptorSource, Collection)})
+		 * @param descriptors descriptor facts by bundle-relative path
+		 */
+		public Bundle(String name, String symbolicName, String version, long length, String header, Map<String, Long> crcs, Map<String, DescriptorInfo> descriptors) {
+			this.name = name;
+			this.symbolicName = symbolicName;
+			this.version = version;
+			this.length = length;
+			this.header = header;
+			this.crcs = crcs;
+			this.descriptors = descriptors;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getSymbolicName() {
+			return symbolicName;
+		}
+
+		public String getVersion() {
+			return version;
+		}
+
+		public String getHeader() {
+			return header;
+		}
+
+		public Map<String, DescriptorInfo> getDescriptors() {
+			return Collections.unmodifiableMap(descriptors);
+		}
+
+		/**
+		 * Tests whether the given bundle may be the one these facts were
+		 * generated from, without reading it.
+		 *
+		 * @param location bundle location
+		 * @param symbolicName the bundle's symbolic name
+		 * @param version the bundle's canonical version
+		 * @param header the bundle's {@code Service-Component} header
+		 */
+		public boolean matches(File location, String symbolicName, String version, String header) {
+			if (!this.symbolicName.equals(symbolicName) || !this.version.equals(version) || !equals(this.header, header))
+				return false;
+
+			return length == (location.isDirectory() ? -1L : location.length());
+		}
+
+		/**
+		 * Tests whether the CRC-32s of the given bundle's manifest and
+		 * descriptors match those these facts were generated from. Only the
+		 * central directory of archives is read.
+		 */
+		public boolean matchesContents(BundleDescriptorSource source) throws IOException {
+			return crcs.equals(getCrcs(source, DescriptorExtractor.resolvePaths(source, header)));
+		}
+
+		private static boolean equals(String s1, String s2) {
+			return s1 == null ? s2 == null : s1.equals(s2);
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Headless generator of {@link PrebuiltIndex} files from a directory of bundles
+ * (archives and directories), e.g., as part of a target platform build:
+ *
+ * <pre>
+ * java -cp ca.ecliptical.pde.ds.search.jar ca.ecliptical.pde.ds.search.core.PrebuiltIndexGenerator &lt;bundles-dir&gt; &lt;index-file&gt;
+ * </pre>
+ *
+ * Descriptors are resolved from each bundle's {@code Service-Component} header
+ * the same way IDE searches resolve them.
+ */
+public class PrebuiltIndexGenerator {
+
+	private final DescriptorExtractor extractor = new DescriptorExtractor(null);
+
+	/**
+	 * Indexes all bundles in the given directory.
+	 */
+	public PrebuiltIndex generate(File bundlesDir) throws IOException {
+		File[] files = bundlesDir.listFiles();
+		if (files == null)
+			throw new IOException(String.format("Not a directory: %s", bundlesDir)); //$NON-NLS-1$
+
+		Arrays.sort(files);
+		PrebuiltIndex index = new PrebuiltIndex();
+		for (File file : files) {
+			if (file.isDirectory() ? new File(file, "META-INF/MANIFEST.MF").isFile() : file.getName().endsWith(".jar")) //$NON-NLS-1$ //$NON-NLS-2$
+				index.put(generateBundle(file));
+		}
+
+		return index;
+	}
+
+	/**
+	 * Indexes a single bundle.
+	 */
+	public PrebuiltIndex.Bundle generateBundle(File location) throws IOException {
+		BundleDescriptorSource source = new BundleDescriptorSource(location);
+		try {
+			String[] headers = source.getManifestHeaders(ManifestHeaders.BUNDLE_SYMBOLIC_NAME, ManifestHeaders.BUNDLE_VERSION, ServiceComponentHeader.NAME);
+			if (headers[0] == null)
+				throw new IOException(String.format("Not a bundle: %s", location)); //$NON-NLS-1$
+
+			String symbolicName = ManifestHeaders.getValue(headers[0]);
+			String header = headers[2];
+			Map<String, DescriptorInfo> descriptors = header == null ? Collections.<String, DescriptorInfo> emptyMap() : extractor.extract(source);
+			Map<String, Long> crcs = PrebuiltIndex.getCrcs(source, DescriptorExtractor.resolvePaths(source, header));
+			long length = location.isDirectory() ? -1L : location.length();
+			return new PrebuiltIndex.Bundle(location.getName(), symbolicName, PrebuiltIndex.normalizeVersion(headers[1]), length, header, crcs, descriptors);
+		} finally {
+			source.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: PrebuiltIndexGenerator <bundles-dir> <index-file>"); //$NON-NLS-1$
+			System.exit(1);
+		}
+
+		PrebuiltIndex index = new PrebuiltIndexGenerator().generate(new File(args[0]));
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(args[1]));
+		try {
+			index.write(out);
+		} finally {
+			out.close();
+		}
+
+		int descriptors = 0;
+		for (PrebuiltIndex.Bundle bundle : index.getBundles()) {
+			descriptors += bundle.getDescriptors().size();
+		}
+
+		System.out.println(String.format("Indexed %d descriptor(s) in %d bundle(s).", descriptors, index.getBundles().size())); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+/**
+ * Helpers for the {@code Service-Component} manifest header, which lists the
+ * bundle's component descriptors by path; the last segment of each path may
+ * contain {@code *} wildcards.
+ */
+public class ServiceComponentHeader {
+
+	public static final String NAME = "Service-Component"; //$NON-NLS-1$
+
+	private ServiceComponentHeader() {
+		// not instantiable
+	}
+
+	/**
+	 * Reads the header from the main section of the given manifest (see
+	 * {@link ManifestHeaders}). The stream is not closed.
+	 *
+	 * @param in manifest stream
+	 * @return header value, or {@code null} if not present
+	 * @throws IOException if the stream can't be read
+	 */
+	public static String read(InputStream in) throws IOException {
+		return ManifestHeaders.read(in, NAME)[0];
+	}
+
+	/**
+	 * Returns the non-empty elements (i.e., descriptor paths) of the given header value.
+	 */
+	public static String[] getElements(String header) {
+		String[] elements = header.split("\\s*,\\s*"); //$NON-NLS-1$
+		ArrayList<String> results = new ArrayList<String>(elements.length);
+		for (String element : elements) {
+			if (element.length() > 0)
+				results.add(element);
+		}
+
+		return results.toArray(new String[results.size()]);
+	}
+
+	/**
+	 * Tests whether the last segment of the given path contains wildcards.
+	 */
+	public static boolean isWildcard(String path) {
+		return path.indexOf('*', path.lastIndexOf('/') + 1) != -1;
+	}
+
+	/**
+	 * Returns the given path without its last segment, and without leading or
+	 * trailing separators; empty if the path has just one segment.
+	 */
+	public static String getFolder(String path) {
+		int end = path.lastIndexOf('/');
+		if (end == -1)
+			return ""; //$NON-NLS-1$
+
+		int start = 0;
+		while (start < end && path.charAt(start) == '/') {
+			++start;
+		}
+
+		return path.substring(start, end);
+	}
+
+	/**
+	 * Returns the last segment of the given path.
+	 */
+	public static String getFileName(String path) {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	/**
+	 * Tests whether the given file name matches the given pattern, in which
+	 * {@code *} matches any (possibly empty) sequence of characters; all other
+	 * characters match themselves, case-sensitively.
+	 */
+	public static boolean matches(String pattern, String name) {
+		int p = 0;
+		int n = 0;
+		int star = -1;
+		int mark = 0;
+		while (n < name.length()) {
+			if (p < pattern.length() && pattern.charAt(p) == '*') {
+				star = p++;
+				mark = n;
+			} else if (p < pattern.length() && pattern.charAt(p) == name.charAt(n)) {
+				++p;
+				++n;
+			} else if (star != -1) {
+				// let the last wildcard consume one more character
+				p = star + 1;
+				n = ++mark;
+			} else {
+				return false;
+			}
+		}
+
+		while (p < pattern.length() && pattern.charAt(p) == '*') {
+			++p;
+		}
+
+		return p == pattern.length();
+	}
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2015 Ecliptical Software Inc. and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Ecliptical Software Inc. - initial API and implementation
+ *******************************************************************************/
+package ca.ecliptical.pde.ds.search.core;
+
+/**
+ * Resolves the types and methods that component descriptors refer to, in the
+ * context of the bundle that contains them.
+ *
+ * @param <T> type type
+ * @param <M> method type
+ * @param <X> type of exception thrown by lookups
+ */
+public interface TypeResolver<T, M, X extends Exception> {
+
+	/**
+	 * Returns the type with the given fully qualified name.
+	 *
+	 * @return type, or {@code null} if not found
+	 */
+	T findType(String name) throws X;
+
+	/**
+	 * Returns the given component implementation class's lifecycle or event
+	 * method, typically as selected by {@link LifecycleMethodSelector}.
+	 *
+	 * @param implClassType component implementation class
+	 * @param kind one of {@link LifecycleMethodSelector#ACTIVATE}, {@link LifecycleMethodSelector#DEACTIVATE},
+	 *            {@link LifecycleMethodSelector#BIND}, or {@link LifecycleMethodSelector#UPDATED}
+	 * @param name method name
+	 * @param referenceInterface reference interface name (bind methods only)
+	 * @return method, or {@code null} if not found
+	 */
+	M findLifecycleMethod(T implClassType, int kind, String name, String referenceInterface) throws X;
+}